@@ -0,0 +1,44 @@
+package de.uni.trafficsim.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Arrays;
+
+
+/**
+ * Runs all TrafficSim benchmarks and writes the results as JSON.
+ * <p>
+ * Usage: {@code java -jar benchmarks.jar [RESULT_FILE] [JMH options]}. The result file
+ * defaults to {@code target/jmh-result.json}; further arguments are passed to JMH,
+ * e.g. a benchmark name pattern or {@code -p edges=1000}.
+ */
+public class BenchmarkMain {
+
+    private static final String DEFAULT_RESULT_FILE = "target/jmh-result.json";
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        String resultFile = DEFAULT_RESULT_FILE;
+        String[] jmhArgs = args;
+        if (args.length > 0 && args[0].endsWith(".json")) {
+            resultFile = args[0];
+            jmhArgs = Arrays.copyOfRange(args, 1, args.length);
+        }
+
+        OptionsBuilder builder = new OptionsBuilder();
+        builder.parent(new CommandLineOptions(jmhArgs));
+        if (jmhArgs.length == 0) {
+            builder.include("de\\.uni\\.trafficsim\\.benchmarks\\..*");
+        }
+        Options options = builder
+                .resultFormat(ResultFormatType.JSON)
+                .result(resultFile)
+                .build();
+        new Runner(options).run();
+    }
+}
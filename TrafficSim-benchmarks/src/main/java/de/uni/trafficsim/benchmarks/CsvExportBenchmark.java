@@ -0,0 +1,69 @@
+package de.uni.trafficsim.benchmarks;
+
+import de.uni.trafficsim.statistics.StatsSnapshot;
+import de.uni.trafficsim.statistics.export.ColumnarStatsExporter;
+import de.uni.trafficsim.statistics.export.StatsCsvExporter;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+
+/**
+ * Cost of exporting a long statistics history to CSV and to the columnar format.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CsvExportBenchmark {
+
+    @Param({"10000", "100000"})
+    public int steps;
+
+    @Param({"1000"})
+    public int edges;
+
+    private List<StatsSnapshot> history;
+    private Path directory;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        history = SyntheticData.statsHistory(steps, edges, 3);
+        directory = Files.createTempDirectory("trafficsim-csv-bench");
+    }
+
+    @Benchmark
+    public Path exportGlobalCsv() throws IOException {
+        return StatsCsvExporter.exportGlobalCsv(history, directory);
+    }
+
+    @Benchmark
+    public Path exportColumnar() throws IOException {
+        return ColumnarStatsExporter.export(history, directory);
+    }
+
+    // The file name only has second resolution, so every run writes into a clean directory
+    @TearDown(Level.Invocation)
+    public void deleteFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteDirectory() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package de.uni.trafficsim.benchmarks;
+
+import de.uni.trafficsim.statistics.EdgeIndex;
+import de.uni.trafficsim.statistics.EdgeStepValues;
+import de.uni.trafficsim.statistics.SumoEdgeApi;
+
+import java.util.List;
+import java.util.Random;
+
+
+/**
+ * Edge API that serves synthetic values instead of calling SUMO.
+ * <p>
+ * Every step returns fresh arrays, like the subscription based API does.
+ */
+final class FakeEdgeApi extends SumoEdgeApi {
+    private final List<String> ids;
+    private final Random random = new Random(42);
+
+    FakeEdgeApi(int edgeCount) {
+        super(null);                        //no SUMO backend, all values are synthetic
+        this.ids = SyntheticData.edgeIds(edgeCount);
+    }
+
+    @Override
+    public List<String> getIdList() {
+        return ids;
+    }
+
+    @Override
+    public double getLengthMeters(String edgeId) {
+        return 100.0;
+    }
+
+    @Override
+    public EdgeStepValues fetchStep(EdgeIndex edges) {
+        return SyntheticData.edgeValues(edges.size(), random);
+    }
+}
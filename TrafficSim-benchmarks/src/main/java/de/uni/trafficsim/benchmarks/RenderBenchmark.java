@@ -0,0 +1,63 @@
+package de.uni.trafficsim.benchmarks;
+
+import de.uni.trafficsim.model.SimulationFrame;
+import de.uni.trafficsim.view.VisualizationPanel;
+import org.openjdk.jmh.annotations.*;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Cost of painting the visualization panel into an offscreen image.
+ * <p>
+ * Painting runs on the EDT like in the application; the road tiles are rendered
+ * during warmup, so the measurement shows the steady state while the simulation runs.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Benchmark)
+public class RenderBenchmark {
+
+    @Param({"1000", "10000"})
+    public int vehicles;
+
+    /** "network" shows the whole network, "detail" a zoomed in part of it. */
+    @Param({"network", "detail"})
+    public String zoom;
+
+    private VisualizationPanel panel;
+    private BufferedImage image;
+
+    @Setup(Level.Trial)
+    public void setUp() throws InterruptedException, InvocationTargetException {
+        image = new BufferedImage(1600, 1000, BufferedImage.TYPE_INT_ARGB);
+        SwingUtilities.invokeAndWait(() -> {
+            panel = new VisualizationPanel();
+            panel.setSize(image.getWidth(), image.getHeight());
+            panel.setRoadNetwork(SyntheticData.gridNetwork(40));
+            SimulationFrame frame = new SimulationFrame(SyntheticData.vehicleManager(vehicles, 4));
+            panel.updateFrame(frame);
+            if ("network".equals(zoom)) {
+                // default zoom is 2 px/m, about 0.09 px/m fits the 10 km network
+                for (int i = 0; i < 33; i++) panel.zoomOut();
+            }
+        });
+    }
+
+    @Benchmark
+    public BufferedImage paint() throws InterruptedException, InvocationTargetException {
+        SwingUtilities.invokeAndWait(() -> {
+            Graphics2D g = image.createGraphics();
+            panel.paint(g);
+            g.dispose();
+        });
+        return image;
+    }
+}
@@ -0,0 +1,44 @@
+package de.uni.trafficsim.benchmarks;
+
+import de.uni.trafficsim.model.VehicleWrapper;
+import de.uni.trafficsim.statistics.StatsCollector;
+import de.uni.trafficsim.statistics.StatsSnapshot;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Cost of collecting the statistics of one step, including the per-edge columns.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StatsCollectorBenchmark {
+
+    @Param({"1000", "10000", "50000"})
+    public int edges;
+
+    @Param({"5000"})
+    public int vehicles;
+
+    private StatsCollector collector;
+    private List<VehicleWrapper> vehicleList;
+    private double time;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        collector = new StatsCollector(new FakeEdgeApi(edges));
+        vehicleList = SyntheticData.vehicles(vehicles, 1);
+    }
+
+    @Benchmark
+    public StatsSnapshot collect() {
+        time += 0.1;
+        return collector.collect(time, vehicleList, 0);
+    }
+}
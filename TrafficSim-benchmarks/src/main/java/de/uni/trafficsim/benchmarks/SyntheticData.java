@@ -0,0 +1,128 @@
+package de.uni.trafficsim.benchmarks;
+
+import de.uni.trafficsim.manager.VehicleManager;
+import de.uni.trafficsim.model.LaneGeometry;
+import de.uni.trafficsim.model.RoadNetwork;
+import de.uni.trafficsim.model.VehicleWrapper;
+import de.uni.trafficsim.statistics.EdgeIndex;
+import de.uni.trafficsim.statistics.EdgeStats;
+import de.uni.trafficsim.statistics.EdgeStepValues;
+import de.uni.trafficsim.statistics.StatsSnapshot;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+
+/**
+ * Generators for synthetic simulation data, so the benchmarks run without SUMO.
+ * <p>
+ * All generators are seeded and return the same data for the same arguments.
+ */
+final class SyntheticData {
+    /** Side length of the synthetic network in meters. */
+    static final double NETWORK_SIZE = 10_000.0;
+
+    private static final Color[] PALETTE = {
+            Color.YELLOW, Color.RED, Color.BLUE, Color.GREEN, Color.ORANGE, Color.CYAN, Color.MAGENTA, Color.WHITE
+    };
+
+    private SyntheticData() {}
+
+    // Edge IDs in SUMO style
+    static List<String> edgeIds(int count) {
+        List<String> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add("E" + i + "#0");
+        }
+        return ids;
+    }
+
+    // Vehicles spread over the network, a fifth of them standing
+    static List<VehicleWrapper> vehicles(int count, long seed) {
+        Random random = new Random(seed);
+        List<VehicleWrapper> vehicles = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            VehicleWrapper v = new VehicleWrapper("veh" + i);
+            double speed = random.nextInt(5) == 0 ? 0.0 : random.nextDouble() * 30.0;
+            v.update(random.nextDouble() * NETWORK_SIZE, random.nextDouble() * NETWORK_SIZE,
+                    random.nextDouble() * 360.0, speed, 4.0 + random.nextDouble() * 8.0, "route" + (i % 50),
+                    random.nextDouble() * 5000.0, random.nextDouble() * 2.0);
+            Color c = PALETTE[random.nextInt(PALETTE.length)];
+            v.updateColor(c.getRed(), c.getGreen(), c.getBlue());
+            v.updatePlacement(i % 10 == 0 ? "truck" : "passenger", "E" + (i % 1000) + "#0");
+            vehicles.add(v);
+        }
+        return vehicles;
+    }
+
+    // Vehicle manager holding the given vehicles, with a published snapshot
+    static VehicleManager vehicleManager(int count, long seed) {
+        VehicleManager manager = new VehicleManager();
+        for (VehicleWrapper v : vehicles(count, seed)) {
+            manager.addVehicle(v);
+        }
+        manager.publish(0.0);
+        return manager;
+    }
+
+    // Edge values of one step
+    static EdgeStepValues edgeValues(int edgeCount, Random random) {
+        EdgeStepValues values = EdgeStepValues.ofSize(edgeCount);
+        fillEdgeValues(values, random);
+        return values;
+    }
+
+    static void fillEdgeValues(EdgeStepValues values, Random random) {
+        for (int i = 0; i < values.vehicleNumber().length; i++) {
+            values.vehicleNumber()[i] = random.nextInt(20);
+            values.meanSpeedMs()[i] = random.nextDouble() * 20.0;
+            values.occupancyPercent()[i] = random.nextDouble() * 100.0;
+            values.lengthMeters()[i] = 20.0 + random.nextDouble() * 480.0;
+        }
+    }
+
+    // Statistics history of the given number of steps (0.1 s each)
+    static List<StatsSnapshot> statsHistory(int steps, int edgeCount, long seed) {
+        Random random = new Random(seed);
+        EdgeIndex index = new EdgeIndex(edgeIds(edgeCount));
+        List<StatsSnapshot> history = new ArrayList<>(steps);
+        for (int s = 0; s < steps; s++) {
+            EdgeStats edges = new EdgeStats(index, edgeValues(edgeCount, random));
+            history.add(new StatsSnapshot(s * 0.1, random.nextDouble() * 15.0, 1000 + random.nextInt(500),
+                    random.nextInt(200), s * 0.01, s * 0.004, s / 10, edges));
+        }
+        return history;
+    }
+
+    // Manhattan grid of two-lane roads, one lane per direction
+    static RoadNetwork gridNetwork(int blocksPerSide) {
+        RoadNetwork network = new RoadNetwork();
+        double spacing = NETWORK_SIZE / blocksPerSide;
+        List<String> ids = new ArrayList<>();
+        List<double[]> shapes = new ArrayList<>();
+        int id = 0;
+        for (int i = 0; i <= blocksPerSide; i++) {
+            for (int j = 0; j < blocksPerSide; j++) {
+                double a = i * spacing;
+                double b0 = j * spacing;
+                double b1 = b0 + spacing;
+                ids.add("h" + id);
+                shapes.add(new double[]{b0, a - 1.6, b1, a - 1.6});
+                ids.add("h" + id + "r");
+                shapes.add(new double[]{b1, a + 1.6, b0, a + 1.6});
+                ids.add("v" + id);
+                shapes.add(new double[]{a + 1.6, b0, a + 1.6, b1});
+                ids.add("v" + id + "r");
+                shapes.add(new double[]{a - 1.6, b1, a - 1.6, b0});
+                id++;
+            }
+        }
+        double[] widths = new double[ids.size()];
+        Arrays.fill(widths, 3.2);
+        network.setLanes(new LaneGeometry(ids, shapes, widths));
+        return network;
+    }
+}
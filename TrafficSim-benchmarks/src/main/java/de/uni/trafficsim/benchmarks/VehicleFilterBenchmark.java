@@ -0,0 +1,85 @@
+package de.uni.trafficsim.benchmarks;
+
+import de.uni.trafficsim.manager.VehicleManager;
+import de.uni.trafficsim.model.CompiledVehicleFilter;
+import de.uni.trafficsim.model.VehicleFilter;
+import de.uni.trafficsim.model.VehicleSnapshot;
+import de.uni.trafficsim.model.VehicleWrapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.*;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Cost of filtering large vehicle sets, on wrappers, on snapshot columns and with the compiled filter.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VehicleFilterBenchmark {
+
+    @Param({"10000", "100000"})
+    public int vehicles;
+
+    private List<VehicleWrapper> vehicleList;
+    private VehicleSnapshot snapshot;
+    private final VehicleFilter filter = new VehicleFilter();
+    private final VehicleFilter routeFilter = new VehicleFilter();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        vehicleList = SyntheticData.vehicles(vehicles, 2);
+        VehicleManager manager = SyntheticData.vehicleManager(vehicles, 2);
+        snapshot = manager.acquireSnapshot();
+
+        // speed range and color, the most expensive combination
+        filter.enabled = true;
+        filter.minSpeed = 5.0;
+        filter.maxSpeed = 25.0;
+        filter.filterColor = Color.RED;
+
+        // same plus a route set, evaluated only on the vehicles left by the numeric pass
+        routeFilter.enabled = true;
+        routeFilter.minSpeed = 5.0;
+        routeFilter.maxSpeed = 25.0;
+        routeFilter.filterColor = Color.RED;
+        routeFilter.routeIds = Set.of("route1", "route7", "route42");
+    }
+
+    @Benchmark
+    public int matchWrappers() {
+        int count = 0;
+        for (VehicleWrapper v : vehicleList) {
+            if (filter.matches(v)) count++;
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int matchSnapshotColumns() {
+        int count = 0;
+        for (int i = 0; i < snapshot.size(); i++) {
+            if (filter.matches(snapshot.speed(i), snapshot.rgb(i))) count++;
+        }
+        return count;
+    }
+
+    // compiled per call, otherwise the cached result for the snapshot would be measured
+    @Benchmark
+    public int matchCompiled() {
+        CompiledVehicleFilter compiled = filter.compile();
+        return compiled.evaluate(snapshot).count();
+    }
+
+    @Benchmark
+    public int matchCompiledWithRoutes() {
+        CompiledVehicleFilter compiled = routeFilter.compile();
+        return compiled.evaluate(snapshot).count();
+    }
+}
@@ -0,0 +1,238 @@
+package de.uni.trafficsim;
+
+import de.uni.trafficsim.backend.BackendType;
+import de.uni.trafficsim.controller.SimulationEngine;
+import de.uni.trafficsim.manager.InjectionPlan;
+import de.uni.trafficsim.manager.InjectionStats;
+import de.uni.trafficsim.model.SimulationFrame;
+import de.uni.trafficsim.statistics.StatsStore;
+import de.uni.trafficsim.statistics.export.ColumnarStatsExporter;
+import de.uni.trafficsim.statistics.export.StatsCsvExporter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.Properties;
+
+
+/**
+ * Runs a SUMO scenario without any UI.
+ * <p>
+ * Drives the same {@link SimulationEngine} as the Swing application, but as fast
+ * as SUMO allows and without loading geometry for drawing. Writes the statistics
+ * history (binary log, CSV and columnar export) to the output directory and prints the achieved throughput, so scenarios
+ * can be run in batch on machines without a display.
+ * <p>
+ * For load tests, {@code --inject N} adds N vehicles on random routes, at {@code --rate}
+ * vehicles per simulated second or as fast as possible. {@code --backend libsumo} runs SUMO
+ * inside the JVM instead of over a TraCI socket. {@code --additional FILES} loads e.g. other traffic light programs.
+ * <p>
+ * Besides the statistics, the results of the run are written to {@value #SUMMARY_FILE} in the output directory.
+ * <p>
+ * Usage: {@code HeadlessRunner <config.sumocfg> (--steps N | --end SECONDS) [--out DIR] [--inject N [--rate VEH_PER_S]] [--backend libtraci|libsumo] [--additional FILES]}
+ */
+public class HeadlessRunner {
+
+    /** Name of the result file in the output directory. */
+    public static final String SUMMARY_FILE = "summary.properties";
+    private static final int STATS_TAIL_SIZE = 16;
+
+    private final SimulationEngine engine;
+    private final long maxSteps;
+    private final double endTimeSec;
+    private final Path outputDir;
+    private InjectionPlan injection;        // optional load test injection
+
+    // Results of the last run
+    private long steps = 0;
+    private long vehicleUpdates = 0;
+    private double wallSeconds = 0.0;
+    private Path statsFile;
+    private Path columnarFile;
+
+    /**
+     * Constructor.
+     *
+     * @param sumoConfigPath path to the SUMO configuration file
+     * @param maxSteps maximum number of steps, or -1 for no step limit
+     * @param endTimeSec simulation time to stop at, or -1 for no time limit
+     * @param outputDir directory for the statistics output
+     * @throws IllegalArgumentException if neither a step count nor an end time is given
+     */
+    public HeadlessRunner(String sumoConfigPath, long maxSteps, double endTimeSec, Path outputDir) {
+        this(sumoConfigPath, maxSteps, endTimeSec, outputDir, BackendType.fromSystemProperty());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param sumoConfigPath path to the SUMO configuration file
+     * @param maxSteps maximum number of steps, or -1 for no step limit
+     * @param endTimeSec simulation time to stop at, or -1 for no time limit
+     * @param outputDir directory for the statistics output
+     * @param backendType SUMO backend to run the scenario with
+     * @throws IllegalArgumentException if neither a step count nor an end time is given
+     */
+    public HeadlessRunner(String sumoConfigPath, long maxSteps, double endTimeSec, Path outputDir, BackendType backendType) {
+        if (maxSteps < 0 && endTimeSec < 0) {
+            throw new IllegalArgumentException("either a step count or an end time is required");
+        }
+        this.maxSteps = maxSteps;
+        this.endTimeSec = endTimeSec;
+        this.outputDir = outputDir;
+        this.engine = new SimulationEngine(false, backendType.create());
+        engine.setSumoConfigPath(sumoConfigPath);
+    }
+
+    /**
+     * Command line entry point.
+     *
+     * @param args {@code <config.sumocfg> (--steps N | --end SECONDS) [--out DIR] [--inject N [--rate VEH_PER_S]] [--backend libtraci|libsumo] [--additional FILES]}
+     */
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+
+        String config = null;
+        long steps = -1;
+        double end = -1;
+        Path out = Paths.get("headless-output");
+        int inject = 0;
+        double rate = Double.POSITIVE_INFINITY;
+        BackendType backend = BackendType.fromSystemProperty();
+        String additional = null;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--steps" -> steps = Long.parseLong(args[++i]);
+                    case "--end" -> end = Double.parseDouble(args[++i]);
+                    case "--out" -> out = Paths.get(args[++i]);
+                    case "--inject" -> inject = Integer.parseInt(args[++i]);
+                    case "--rate" -> rate = Double.parseDouble(args[++i]);
+                    case "--backend" -> backend = BackendType.parse(args[++i]);
+                    case "--additional" -> additional = args[++i];
+                    default -> config = args[i];
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            config = null;
+        }
+        if (config == null || (steps < 0 && end < 0) || inject < 0 || !(rate > 0)) {
+            System.err.println("Usage: HeadlessRunner <config.sumocfg> (--steps N | --end SECONDS) [--out DIR] [--inject N [--rate VEH_PER_S]] [--backend libtraci|libsumo] [--additional FILES]");
+            System.exit(2);
+        }
+
+        HeadlessRunner runner = new HeadlessRunner(config, steps, end, out, backend);
+        runner.setAdditionalFiles(additional);
+        if (inject > 0) {
+            runner.setInjection(InjectionPlan.uniform(inject, rate));
+        }
+        try {
+            runner.run();
+        } catch (Exception e) {
+            App.logger.error("Headless run failed\nError message: {}", e.getMessage());
+            System.exit(1);
+        }
+        runner.printSummary();
+    }
+
+    /**
+     * Runs the scenario until the step limit or end time is reached and writes the statistics.
+     *
+     * @throws Exception if SUMO fails or the statistics cannot be written
+     */
+    public void run() throws Exception {
+        try (StatsStore store = new StatsStore(outputDir.resolve("stats-log"), STATS_TAIL_SIZE)) {
+            long startNanos = System.nanoTime();
+            try {
+                // started inside the try, so a SUMO process that fails during startup is closed as well
+                engine.start();
+                if (injection != null) {
+                    engine.startInjection(injection);
+                }
+                startNanos = System.nanoTime();
+                while (!isDone()) {
+                    SimulationFrame frame = engine.step();
+                    store.append(engine.getLastStats());            //streamed to disk, nothing accumulates in memory
+                    vehicleUpdates += frame.vehicleManager.getVehicles().size();
+                    steps++;
+                }
+            } finally {
+                wallSeconds = (System.nanoTime() - startNanos) / 1e9;
+                engine.close();
+            }
+            statsFile = StatsCsvExporter.exportGlobalCsv(store.history(), outputDir);
+            columnarFile = ColumnarStatsExporter.export(store.history(), outputDir);
+        }
+        writeSummary(outputDir.resolve(SUMMARY_FILE));
+    }
+
+    // Machine readable results, read back by the ScenarioSweep
+    private void writeSummary(Path file) throws IOException {
+        Properties p = new Properties();
+        p.setProperty("backend", String.valueOf(engine.getBackend().getType()));
+        p.setProperty("steps", Long.toString(steps));
+        p.setProperty("simulatedSeconds", Double.toString(engine.getTime()));
+        p.setProperty("wallSeconds", Double.toString(wallSeconds));
+        p.setProperty("vehicleUpdates", Long.toString(vehicleUpdates));
+        p.setProperty("statsFile", statsFile.toAbsolutePath().toString());
+        p.setProperty("columnarFile", columnarFile.toAbsolutePath().toString());
+        if (injection != null) {
+            p.setProperty("injected", Integer.toString(engine.getInjectionStats().injected()));
+        }
+        try (Writer out = Files.newBufferedWriter(file)) {
+            p.store(out, "HeadlessRunner results");
+        }
+    }
+
+    // Stop once the step limit or the end time has been reached
+    private boolean isDone() {
+        if (maxSteps >= 0 && steps >= maxSteps) return true;
+        return endTimeSec >= 0 && engine.getTime() >= endTimeSec;
+    }
+
+    /**
+     * Prints steps, simulated time and throughput of the last run to stdout.
+     */
+    public void printSummary() {
+        double seconds = Math.max(wallSeconds, 1e-9);
+        System.out.println("Backend: " + engine.getBackend().getType());
+        System.out.printf(Locale.US, "Steps: %d (simulated %.1f s) in %.2f s wall time%n",
+                steps, engine.getTime(), wallSeconds);
+        System.out.printf(Locale.US, "Throughput: %.1f steps/s, %.1f vehicle-updates/s%n",
+                steps / seconds, vehicleUpdates / seconds);
+        if (injection != null) {
+            InjectionStats inj = engine.getInjectionStats();
+            System.out.printf(Locale.US, "Injected: %d of %d vehicles (%d failed), %.2f ms avg / %.2f ms max per step%n",
+                    inj.injected(), inj.targetCount(), inj.failed(), inj.avgStepMillis(), inj.maxStepMillis());
+        }
+        System.out.println("Statistics written to: " + (statsFile == null ? "-" : statsFile.toAbsolutePath()));
+        System.out.println("Columnar statistics written to: " + (columnarFile == null ? "-" : columnarFile.toAbsolutePath()));
+    }
+
+    /**
+     * Sets a bulk injection that starts with the run.
+     *
+     * @param injection injection plan, or null for none
+     */
+    public void setInjection(InjectionPlan injection) {
+        this.injection = injection;
+    }
+
+    /**
+     * Sets additional SUMO files for the run, e.g. another traffic light program.
+     *
+     * @param additionalFiles comma separated file paths, or null for those of the configuration
+     */
+    public void setAdditionalFiles(String additionalFiles) {
+        engine.setAdditionalFiles(additionalFiles);
+    }
+
+    public long getSteps() { return steps; }
+
+    public long getVehicleUpdates() { return vehicleUpdates; }
+
+    public double getWallSeconds() { return wallSeconds; }
+}
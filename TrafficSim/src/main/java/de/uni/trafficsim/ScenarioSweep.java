@@ -0,0 +1,293 @@
+package de.uni.trafficsim;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Runs many headless scenarios in parallel, each with its own SUMO instance.
+ * <p>
+ * Every run is a separate {@link HeadlessRunner} process with its own SUMO connection and
+ * statistics collector; the libtraci connection switch is global to a process and libsumo
+ * only holds one simulation per process, so runs cannot share a JVM. A fixed number of worker
+ * threads (by default one per core) start and supervise the processes, so large sweeps use
+ * all cores without oversubscribing them.
+ * <p>
+ * The runs file lists one run per line: a unique name, the SUMO configuration and any
+ * {@link HeadlessRunner} options, e.g. {@code city-peak city.sumocfg --end 3600 --inject 5000 --additional peak_tls.add.xml}.
+ * Empty lines and lines starting with {@code #} are ignored. Each run writes to its own
+ * subdirectory of the output directory; the merged results of all runs are written to {@value #RESULTS_FILE}.
+ * <p>
+ * Usage: {@code ScenarioSweep <runs.txt> [--parallel N] [--out DIR] [--child-heap SIZE]}
+ */
+public class ScenarioSweep {
+    /** Name of the merged results table in the output directory. */
+    public static final String RESULTS_FILE = "results.csv";
+    private static final String LOG_FILE = "run.log";
+
+    private final List<Run> runs;
+    private final int parallelism;
+    private final Path outputDir;
+    private String childHeap = "512m";          // the runners stream their statistics, little heap is needed
+
+    /**
+     * A single run of the sweep.
+     *
+     * @param name unique name, also the name of the output subdirectory
+     * @param args {@link HeadlessRunner} arguments, starting with the SUMO configuration
+     */
+    public record Run(String name, List<String> args) {}
+
+    /**
+     * Outcome of a run.
+     *
+     * @param name name of the run
+     * @param config SUMO configuration of the run
+     * @param exitCode exit code of the runner process
+     * @param steps simulation steps performed
+     * @param simulatedSeconds simulated time in seconds
+     * @param wallSeconds wall time of the simulation loop in seconds
+     * @param vehicleUpdates vehicle states read over all steps
+     * @param error reason of a failure, null if the run succeeded
+     */
+    public record Result(String name, String config, int exitCode, long steps, double simulatedSeconds,
+                         double wallSeconds, long vehicleUpdates, String error) {
+
+        public boolean succeeded() { return error == null; }
+
+        public double stepsPerSecond() { return wallSeconds > 0 ? steps / wallSeconds : 0.0; }
+
+        public double vehicleUpdatesPerSecond() { return wallSeconds > 0 ? vehicleUpdates / wallSeconds : 0.0; }
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param runs runs to perform
+     * @param parallelism maximum number of runs at the same time
+     * @param outputDir directory for the run outputs and the merged results
+     * @throws IllegalArgumentException if parallelism is not positive or run names are not unique
+     */
+    public ScenarioSweep(List<Run> runs, int parallelism, Path outputDir) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1");
+        }
+        Set<String> names = new HashSet<>();
+        for (Run r : runs) {
+            if (!names.add(r.name())) throw new IllegalArgumentException("duplicate run name: " + r.name());
+        }
+        this.runs = List.copyOf(runs);
+        this.parallelism = parallelism;
+        this.outputDir = outputDir;
+    }
+
+    /**
+     * Command line entry point.
+     *
+     * @param args {@code <runs.txt> [--parallel N] [--out DIR] [--child-heap SIZE]}
+     */
+    public static void main(String[] args) {
+        String runsFile = null;
+        int parallel = Runtime.getRuntime().availableProcessors();
+        Path out = Paths.get("sweep-output");
+        String heap = null;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--parallel" -> parallel = Integer.parseInt(args[++i]);
+                    case "--out" -> out = Paths.get(args[++i]);
+                    case "--child-heap" -> heap = args[++i];
+                    default -> runsFile = args[i];
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            runsFile = null;
+        }
+        if (runsFile == null || parallel < 1) {
+            System.err.println("Usage: ScenarioSweep <runs.txt> [--parallel N] [--out DIR] [--child-heap SIZE]");
+            System.exit(2);
+        }
+
+        try {
+            ScenarioSweep sweep = new ScenarioSweep(readRuns(Paths.get(runsFile)), parallel, out);
+            if (heap != null) sweep.setChildHeap(heap);
+            long start = System.nanoTime();
+            List<Result> results = sweep.run();
+            printTable(results, (System.nanoTime() - start) / 1e9);
+            System.out.println("Results written to: " + out.resolve(RESULTS_FILE).toAbsolutePath());
+            if (results.stream().anyMatch(r -> !r.succeeded())) System.exit(1);
+        } catch (Exception e) {
+            App.logger.error("Scenario sweep failed\nError message: {}", e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Reads the runs file.
+     *
+     * @param file runs file, one run per line
+     * @return runs in file order
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if a line has no configuration
+     */
+    public static List<Run> readRuns(Path file) throws IOException {
+        List<Run> runs = new ArrayList<>();
+        int lineNo = 0;
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            lineNo++;
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) continue;
+            String[] parts = trimmed.split("\\s+");
+            if (parts.length < 2) {
+                throw new IllegalArgumentException("line " + lineNo + ": expected <name> <config.sumocfg> [options]");
+            }
+            runs.add(new Run(parts[0], List.of(parts).subList(1, parts.length)));
+        }
+        return runs;
+    }
+
+    /**
+     * Sets the maximum heap of each runner process.
+     *
+     * @param childHeap size as for {@code -Xmx}, e.g. {@code 1g}
+     */
+    public void setChildHeap(String childHeap) {
+        this.childHeap = childHeap;
+    }
+
+    /**
+     * Performs all runs, at most {@code parallelism} at a time, and writes the merged results.
+     *
+     * @return results in the order of the runs
+     * @throws IOException if the output directory or the results table cannot be written
+     * @throws InterruptedException if interrupted while waiting; running processes are stopped
+     */
+    public List<Result> run() throws IOException, InterruptedException {
+        Files.createDirectories(outputDir);
+        AtomicInteger threadNo = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(Math.min(parallelism, Math.max(1, runs.size())),
+                r -> new Thread(r, "sweep-worker-" + threadNo.incrementAndGet()));
+        try {
+            List<Future<Result>> futures = new ArrayList<>();
+            for (Run r : runs) {
+                futures.add(workers.submit(() -> runOne(r)));
+            }
+            List<Result> results = new ArrayList<>();
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    results.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    Run r = runs.get(i);
+                    results.add(failed(r, -1, String.valueOf(e.getCause())));
+                }
+            }
+            writeResults(results, outputDir.resolve(RESULTS_FILE));
+            return results;
+        } finally {
+            workers.shutdownNow();          // interrupts the workers, which destroy their processes
+        }
+    }
+
+    // Runs one scenario in its own JVM and reads back its summary
+    private Result runOne(Run run) throws IOException, InterruptedException {
+        Path dir = outputDir.resolve(run.name());
+        Files.createDirectories(dir);
+        Files.deleteIfExists(dir.resolve(HeadlessRunner.SUMMARY_FILE));
+
+        ProcessBuilder pb = new ProcessBuilder(childCommand(run, dir))
+                .redirectErrorStream(true)
+                .redirectOutput(dir.resolve(LOG_FILE).toFile());
+        App.logger.info("Starting run {}", run.name());
+        Process process = pb.start();
+        int exit;
+        try {
+            exit = process.waitFor();
+        } catch (InterruptedException e) {
+            process.destroyForcibly();
+            throw e;
+        }
+
+        Properties summary = new Properties();
+        try (Reader in = Files.newBufferedReader(dir.resolve(HeadlessRunner.SUMMARY_FILE))) {
+            summary.load(in);
+        } catch (NoSuchFileException e) {
+            App.logger.warn("Run {} failed with exit code {}, see {}", run.name(), exit, dir.resolve(LOG_FILE));
+            return failed(run, exit, "no results, see " + dir.resolve(LOG_FILE));
+        }
+        App.logger.info("Finished run {}", run.name());
+        return new Result(run.name(), run.args().get(0), exit,
+                Long.parseLong(summary.getProperty("steps", "0")),
+                Double.parseDouble(summary.getProperty("simulatedSeconds", "0")),
+                Double.parseDouble(summary.getProperty("wallSeconds", "0")),
+                Long.parseLong(summary.getProperty("vehicleUpdates", "0")),
+                exit == 0 ? null : "exit code " + exit);
+    }
+
+    // java -cp <our class path> [trafficsim.* properties] HeadlessRunner <run args> --out <dir>
+    private List<String> childCommand(Run run, Path dir) {
+        List<String> cmd = new ArrayList<>();
+        cmd.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        cmd.add("-Xmx" + childHeap);
+        for (String key : System.getProperties().stringPropertyNames()) {
+            if (key.startsWith("trafficsim.") || key.equals("java.library.path")) {
+                cmd.add("-D" + key + "=" + System.getProperty(key));
+            }
+        }
+        cmd.add("-cp");
+        cmd.add(System.getProperty("java.class.path"));
+        cmd.add(HeadlessRunner.class.getName());
+        cmd.addAll(run.args());
+        cmd.add("--out");                   // last, so the results are where the sweep reads them
+        cmd.add(dir.toAbsolutePath().toString());
+        return cmd;
+    }
+
+    private static Result failed(Run run, int exitCode, String error) {
+        return new Result(run.name(), run.args().get(0), exitCode, 0, 0.0, 0.0, 0, error);
+    }
+
+    private static void writeResults(List<Result> results, Path file) throws IOException {
+        try (BufferedWriter w = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            w.write("run;config;status;steps;simulatedSec;wallSec;stepsPerSec;vehicleUpdatesPerSec");
+            w.newLine();
+            for (Result r : results) {
+                w.write(String.format(Locale.US, "%s;%s;%s;%d;%.1f;%.2f;%.1f;%.1f",
+                        r.name(), r.config().replace(File.separatorChar, '/'),
+                        r.succeeded() ? "ok" : "failed: " + r.error().replace(';', ','),
+                        r.steps(), r.simulatedSeconds(), r.wallSeconds(),
+                        r.stepsPerSecond(), r.vehicleUpdatesPerSecond()));
+                w.newLine();
+            }
+        }
+    }
+
+    /**
+     * Prints the results as a table to stdout.
+     *
+     * @param results results of the sweep
+     * @param wallSeconds wall time of the whole sweep
+     */
+    public static void printTable(List<Result> results, double wallSeconds) {
+        System.out.printf(Locale.US, "%-24s %10s %10s %10s %12s %16s  %s%n",
+                "Run", "Steps", "Sim s", "Wall s", "Steps/s", "Veh-updates/s", "Status");
+        long totalSteps = 0;
+        for (Result r : results) {
+            System.out.printf(Locale.US, "%-24s %10d %10.1f %10.2f %12.1f %16.1f  %s%n",
+                    r.name(), r.steps(), r.simulatedSeconds(), r.wallSeconds(),
+                    r.stepsPerSecond(), r.vehicleUpdatesPerSecond(), r.succeeded() ? "ok" : r.error());
+            totalSteps += r.steps();
+        }
+        System.out.printf(Locale.US, "%d runs in %.2f s wall time, %.1f steps/s overall%n",
+                results.size(), wallSeconds, totalSteps / Math.max(wallSeconds, 1e-9));
+    }
+}
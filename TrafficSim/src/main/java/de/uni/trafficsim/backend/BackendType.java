@@ -0,0 +1,79 @@
+package de.uni.trafficsim.backend;
+
+import de.uni.trafficsim.App;
+
+
+/**
+ * Java bindings SUMO can be driven with.
+ * <p>
+ * The backend and the location of its native library are chosen once at startup
+ * with the {@code trafficsim.backend} and {@code trafficsim.nativeLib} system properties.
+ */
+public enum BackendType {
+    /** SUMO runs as a separate process, every call goes over the TraCI socket. */
+    LIBTRACI("libtracijni"),
+    /** SUMO runs inside the JVM, calls are plain function calls without IPC. */
+    LIBSUMO("libsumojni");
+
+    private final String libraryName;
+    private static BackendType loaded;      // native libraries can only be loaded once per JVM
+
+    BackendType(String libraryName) {
+        this.libraryName = libraryName;
+    }
+
+    /**
+     * Reads the backend from the {@code trafficsim.backend} system property.
+     * <p>
+     * Accepts {@code libtraci} or {@code libsumo}; anything else falls back to libtraci.
+     *
+     * @return configured backend type
+     */
+    public static BackendType fromSystemProperty() {
+        return parse(System.getProperty("trafficsim.backend", "libtraci"));
+    }
+
+    /**
+     * Parses a backend name.
+     *
+     * @param value {@code libtraci} or {@code libsumo}, case-insensitive
+     * @return backend type, libtraci for unknown values
+     */
+    public static BackendType parse(String value) {
+        return "libsumo".equalsIgnoreCase(value) ? LIBSUMO : LIBTRACI;
+    }
+
+    /**
+     * Creates a new backend of this type. The native library is loaded when it is started.
+     *
+     * @return new backend
+     */
+    public SumoBackend create() {
+        return this == LIBSUMO ? new LibsumoBackend() : new LibtraciBackend();
+    }
+
+    /**
+     * Loads the JNI library of this backend, if not done yet.
+     * <p>
+     * Uses the path from {@code -Dtrafficsim.nativeLib=...} if set, otherwise the
+     * library is searched on {@code java.library.path} (e.g. {@code $SUMO_HOME/bin}).
+     *
+     * @throws IllegalStateException if the library of the other backend is already loaded
+     */
+    void loadNativeLibrary() {
+        synchronized (BackendType.class) {
+            if (loaded == this) return;
+            if (loaded != null) {
+                throw new IllegalStateException("SUMO backend " + loaded + " is already loaded, restart to use " + this);
+            }
+            String path = System.getProperty("trafficsim.nativeLib");
+            if (path != null && !path.isBlank()) {
+                System.load(path);
+            } else {
+                System.loadLibrary(libraryName);
+            }
+            loaded = this;
+            App.logger.info("Loaded SUMO backend {} from {}", this, path != null ? path : "java.library.path");
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package de.uni.trafficsim.backend;
+
+import de.uni.trafficsim.model.TrafficLight.TrafficLightPhase;
+import org.eclipse.sumo.libsumo.*;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * SUMO backend based on libsumo: SUMO runs inside the JVM and every call is a
+ * direct function call, without the socket round trip of libtraci.
+ * <p>
+ * The API is the same as libtraci's, only the binding classes differ. libsumo
+ * cannot run sumo-gui and only one simulation can run per JVM.
+ * Only used from the simulation thread.
+ */
+public class LibsumoBackend implements SumoBackend {
+    private final IntVector vehicleVariables = new IntVector(new int[] {
+            TraciVariables.VAR_POSITION, TraciVariables.VAR_ANGLE, TraciVariables.VAR_SPEED, TraciVariables.VAR_LENGTH,
+            TraciVariables.VAR_ROUTE_ID, TraciVariables.VAR_TYPE, TraciVariables.VAR_ROAD_ID,
+            TraciVariables.VAR_COLOR, TraciVariables.VAR_CO2EMISSION, TraciVariables.VAR_FUELCONSUMPTION
+    });
+    private final IntVector edgeVariables = new IntVector(new int[] {
+            TraciVariables.LAST_STEP_VEHICLE_NUMBER, TraciVariables.LAST_STEP_MEAN_SPEED, TraciVariables.LAST_STEP_OCCUPANCY
+    });
+
+    @Override
+    public BackendType getType() {
+        return BackendType.LIBSUMO;
+    }
+
+    // --- Simulation ---
+
+    @Override
+    public void start(List<String> command) {
+        BackendType.LIBSUMO.loadNativeLibrary();
+        Simulation.start(new StringVector(command));
+    }
+
+    @Override
+    public void step() {
+        Simulation.step();
+    }
+
+    @Override
+    public void close() {
+        Simulation.close();
+    }
+
+    @Override
+    public double getTime() {
+        return Simulation.getTime();
+    }
+
+    @Override
+    public int getArrivedNumber() {
+        return Simulation.getArrivedNumber();
+    }
+
+    @Override
+    public List<String> getArrivedVehicleIds() {
+        return Simulation.getArrivedIDList();
+    }
+
+    @Override
+    public List<String> getDepartedVehicleIds() {
+        return Simulation.getDepartedIDList();
+    }
+
+    // --- Vehicles ---
+
+    @Override
+    public List<String> getVehicleIds() {
+        return Vehicle.getIDList();
+    }
+
+    @Override
+    public void readVehicle(String vehicleId, VehicleSink sink) {
+        TraCIPosition pos = Vehicle.getPosition(vehicleId);
+        TraCIColor color = Vehicle.getColor(vehicleId);
+        sink.accept(vehicleId, pos.getX(), pos.getY(),
+                Vehicle.getAngle(vehicleId),
+                Vehicle.getSpeed(vehicleId),
+                Vehicle.getLength(vehicleId),
+                Vehicle.getRouteID(vehicleId),
+                Vehicle.getTypeID(vehicleId),
+                Vehicle.getRoadID(vehicleId),
+                Vehicle.getCO2Emission(vehicleId),
+                Vehicle.getFuelConsumption(vehicleId),
+                color.getR(), color.getG(), color.getB());
+    }
+
+    @Override
+    public void subscribeVehicle(String vehicleId) {
+        Vehicle.subscribe(vehicleId, vehicleVariables);
+    }
+
+    @Override
+    public void unsubscribeVehicle(String vehicleId) {
+        Vehicle.unsubscribe(vehicleId);
+    }
+
+    @Override
+    public int readVehicleSubscriptions(VehicleSink sink) {
+        SubscriptionResults results = Vehicle.getAllSubscriptionResults();
+        for (Map.Entry<String, TraCIResults> entry : results.entrySet()) {
+            TraCIResults values = entry.getValue();
+            TraCIPosition pos = TraCIPosition.cast(values.get(TraciVariables.VAR_POSITION));
+            TraCIColor color = TraCIColor.cast(values.get(TraciVariables.VAR_COLOR));
+            sink.accept(entry.getKey(), pos.getX(), pos.getY(),
+                    TraCIDouble.cast(values.get(TraciVariables.VAR_ANGLE)).getValue(),
+                    TraCIDouble.cast(values.get(TraciVariables.VAR_SPEED)).getValue(),
+                    TraCIDouble.cast(values.get(TraciVariables.VAR_LENGTH)).getValue(),
+                    TraCIString.cast(values.get(TraciVariables.VAR_ROUTE_ID)).getValue(),
+                    TraCIString.cast(values.get(TraciVariables.VAR_TYPE)).getValue(),
+                    TraCIString.cast(values.get(TraciVariables.VAR_ROAD_ID)).getValue(),
+                    TraCIDouble.cast(values.get(TraciVariables.VAR_CO2EMISSION)).getValue(),
+                    TraCIDouble.cast(values.get(TraciVariables.VAR_FUELCONSUMPTION)).getValue(),
+                    color.getR(), color.getG(), color.getB());
+        }
+        return results.size();
+    }
+
+    @Override
+    public void addVehicle(String vehicleId, String routeId, String typeId, String departLane, String departPos) {
+        Vehicle.add(vehicleId, routeId, typeId, "now", departLane, departPos, "0");
+    }
+
+    @Override
+    public void setVehicleColor(String vehicleId, Color color) {
+        Vehicle.setColor(vehicleId, toTraCIColor(color));
+    }
+
+    // --- Routes and vehicle types ---
+
+    @Override
+    public List<String> getRouteIds() {
+        return Route.getIDList();
+    }
+
+    @Override
+    public List<String> getVehicleTypeIds() {
+        return VehicleType.getIDList();
+    }
+
+    @Override
+    public void copyVehicleType(String baseTypeId, String newTypeId) {
+        VehicleType.copy(baseTypeId, newTypeId);
+    }
+
+    @Override
+    public void setVehicleTypeLength(String typeId, double length) {
+        VehicleType.setLength(typeId, length);
+    }
+
+    @Override
+    public void setVehicleTypeMaxSpeed(String typeId, double speed) {
+        VehicleType.setMaxSpeed(typeId, speed);
+    }
+
+    @Override
+    public void setVehicleTypeColor(String typeId, Color color) {
+        VehicleType.setColor(typeId, toTraCIColor(color));
+    }
+
+    // --- Lanes and edges ---
+
+    @Override
+    public List<String> getLaneIds() {
+        return Lane.getIDList();
+    }
+
+    @Override
+    public double[] getLaneShape(String laneId) {
+        List<TraCIPosition> points = Lane.getShape(laneId).getValue();
+        double[] coords = new double[points.size() * 2];
+        for (int i = 0; i < points.size(); i++) {
+            coords[2 * i] = points.get(i).getX();
+            coords[2 * i + 1] = points.get(i).getY();
+        }
+        return coords;
+    }
+
+    @Override
+    public double getLaneWidth(String laneId) {
+        return Lane.getWidth(laneId);
+    }
+
+    @Override
+    public double getLaneLength(String laneId) {
+        return Lane.getLength(laneId);
+    }
+
+    @Override
+    public List<String> getEdgeIds() {
+        return Edge.getIDList();
+    }
+
+    @Override
+    public int getEdgeVehicleNumber(String edgeId) {
+        return Edge.getLastStepVehicleNumber(edgeId);
+    }
+
+    @Override
+    public double getEdgeMeanSpeed(String edgeId) {
+        return Edge.getLastStepMeanSpeed(edgeId);
+    }
+
+    @Override
+    public double getEdgeOccupancy(String edgeId) {
+        return Edge.getLastStepOccupancy(edgeId);
+    }
+
+    @Override
+    public void subscribeEdge(String edgeId) {
+        Edge.subscribe(edgeId, edgeVariables);
+    }
+
+    @Override
+    public void readEdgeSubscriptions(EdgeSink sink) {
+        SubscriptionResults results = Edge.getAllSubscriptionResults();
+        for (Map.Entry<String, TraCIResults> entry : results.entrySet()) {
+            TraCIResults r = entry.getValue();
+            sink.accept(entry.getKey(),
+                    TraCIInt.cast(r.get(TraciVariables.LAST_STEP_VEHICLE_NUMBER)).getValue(),
+                    TraCIDouble.cast(r.get(TraciVariables.LAST_STEP_MEAN_SPEED)).getValue(),
+                    TraCIDouble.cast(r.get(TraciVariables.LAST_STEP_OCCUPANCY)).getValue());
+        }
+    }
+
+    // --- Traffic lights ---
+
+    @Override
+    public List<String> getTrafficLightIds() {
+        return TrafficLight.getIDList();
+    }
+
+    @Override
+    public String getTrafficLightState(String tlsId) {
+        return TrafficLight.getRedYellowGreenState(tlsId);
+    }
+
+    @Override
+    public double getNextSwitch(String tlsId) {
+        return TrafficLight.getNextSwitch(tlsId);
+    }
+
+    @Override
+    public List<String> getControlledLanes(String tlsId) {
+        return TrafficLight.getControlledLanes(tlsId);
+    }
+
+    @Override
+    public void setPhaseDuration(String tlsId, double duration) {
+        TrafficLight.setPhaseDuration(tlsId, duration);
+    }
+
+    @Override
+    public List<TrafficLightPhase> getProgramPhases(String tlsId) {
+        List<TrafficLightPhase> phases = new ArrayList<>();
+        for (TraCIPhase phase : currentLogic(tlsId).getPhases()) {
+            phases.add(new TrafficLightPhase(phase.getState(), phase.getDuration()));
+        }
+        return phases;
+    }
+
+    @Override
+    public void setProgramPhases(String tlsId, List<TrafficLightPhase> phases) {
+        TraCILogic logic = currentLogic(tlsId);
+        TraCIPhaseVector newPhases = new TraCIPhaseVector();
+        for (TrafficLightPhase phase : phases) {
+            newPhases.add(new TraCIPhase(phase.getDuration(), phase.getState()));
+        }
+        if (logic.getPhases().size() > newPhases.size()) {
+            logic.setCurrentPhaseIndex(0);
+        }
+        logic.setPhases(newPhases);
+        TrafficLight.setProgramLogic(tlsId, logic);
+    }
+
+    // Program logic of the active program
+    private static TraCILogic currentLogic(String tlsId) {
+        String programId = TrafficLight.getProgram(tlsId);
+        for (TraCILogic logic : TrafficLight.getAllProgramLogics(tlsId)) {
+            if (logic.getProgramID().equals(programId)) return logic;
+        }
+        throw new IllegalStateException("No active program for traffic light " + tlsId);
+    }
+
+    private static TraCIColor toTraCIColor(Color c) {
+        return new TraCIColor(c.getRed(), c.getGreen(), c.getBlue(), 255);
+    }
+}
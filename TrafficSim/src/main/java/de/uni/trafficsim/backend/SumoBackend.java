@@ -0,0 +1,193 @@
+package de.uni.trafficsim.backend;
+
+import de.uni.trafficsim.model.TrafficLight.TrafficLightPhase;
+
+import java.awt.*;
+import java.util.List;
+
+
+/**
+ * Access to a running SUMO simulation, independent of the Java binding used.
+ * <p>
+ * Covers the SUMO calls the application makes and only uses plain Java types, so
+ * the rest of the code does not depend on the generated binding classes. Bulk
+ * vehicle and edge values are handed to a sink callback instead of being returned
+ * as objects, so reading a step does not allocate per vehicle or edge.
+ * <p>
+ * Implementations are not thread-safe; all calls must come from the thread that
+ * started the simulation.
+ *
+ * @see BackendType
+ */
+public interface SumoBackend {
+
+    /**
+     * Receives the values of one vehicle.
+     */
+    @FunctionalInterface
+    interface VehicleSink {
+        void accept(String vehicleId, double x, double y, double angle, double speed, double length,
+                    String routeId, String typeId, String roadId, double co2, double fuel, int r, int g, int b);
+    }
+
+    /**
+     * Receives the values of one edge from the last step.
+     */
+    @FunctionalInterface
+    interface EdgeSink {
+        void accept(String edgeId, int vehicleNumber, double meanSpeed, double occupancy);
+    }
+
+    BackendType getType();
+
+    // --- Simulation ---
+
+    /**
+     * Loads the native library if necessary and starts SUMO.
+     *
+     * @param command SUMO command line, starting with the binary name
+     */
+    void start(List<String> command);
+
+    void step();
+
+    void close();
+
+    double getTime();
+
+    int getArrivedNumber();
+
+    List<String> getArrivedVehicleIds();
+
+    List<String> getDepartedVehicleIds();
+
+    // --- Vehicles ---
+
+    List<String> getVehicleIds();
+
+    /**
+     * Reads all values of one vehicle with separate calls.
+     *
+     * @param vehicleId vehicle ID
+     * @param sink receives the values
+     */
+    void readVehicle(String vehicleId, VehicleSink sink);
+
+    /**
+     * Subscribes all values reported by {@link #readVehicleSubscriptions(VehicleSink)}.
+     *
+     * @param vehicleId vehicle ID
+     */
+    void subscribeVehicle(String vehicleId);
+
+    void unsubscribeVehicle(String vehicleId);
+
+    /**
+     * Reads the values of all subscribed vehicles from the last step result.
+     *
+     * @param sink receives the values of each vehicle
+     * @return number of vehicles reported
+     */
+    int readVehicleSubscriptions(VehicleSink sink);
+
+    /**
+     * Adds a vehicle that departs immediately.
+     *
+     * @param vehicleId new vehicle ID
+     * @param routeId route ID
+     * @param typeId vehicle type ID
+     * @param departLane SUMO depart lane value, e.g. "best" or "first"
+     * @param departPos SUMO depart position value, e.g. "base" or a distance from the lane start like "0"
+     */
+    void addVehicle(String vehicleId, String routeId, String typeId, String departLane, String departPos);
+
+    void setVehicleColor(String vehicleId, Color color);
+
+    // --- Routes and vehicle types ---
+
+    List<String> getRouteIds();
+
+    List<String> getVehicleTypeIds();
+
+    void copyVehicleType(String baseTypeId, String newTypeId);
+
+    void setVehicleTypeLength(String typeId, double length);
+
+    void setVehicleTypeMaxSpeed(String typeId, double speed);
+
+    void setVehicleTypeColor(String typeId, Color color);
+
+    // --- Lanes and edges ---
+
+    List<String> getLaneIds();
+
+    /**
+     * Returns the center line of a lane.
+     *
+     * @param laneId lane ID
+     * @return coordinates as x0, y0, x1, y1, ...
+     */
+    double[] getLaneShape(String laneId);
+
+    double getLaneWidth(String laneId);
+
+    double getLaneLength(String laneId);
+
+    List<String> getEdgeIds();
+
+    int getEdgeVehicleNumber(String edgeId);
+
+    double getEdgeMeanSpeed(String edgeId);
+
+    double getEdgeOccupancy(String edgeId);
+
+    /**
+     * Subscribes the values reported by {@link #readEdgeSubscriptions(EdgeSink)}.
+     *
+     * @param edgeId edge ID
+     */
+    void subscribeEdge(String edgeId);
+
+    /**
+     * Reads the values of all subscribed edges from the last step result.
+     *
+     * @param sink receives the values of each edge
+     */
+    void readEdgeSubscriptions(EdgeSink sink);
+
+    // --- Traffic lights ---
+
+    List<String> getTrafficLightIds();
+
+    String getTrafficLightState(String tlsId);
+
+    double getNextSwitch(String tlsId);
+
+    /**
+     * Returns the lanes controlled by a traffic light, in the order of the state string.
+     *
+     * @param tlsId traffic light system ID
+     * @return controlled lane IDs
+     */
+    List<String> getControlledLanes(String tlsId);
+
+    void setPhaseDuration(String tlsId, double duration);
+
+    /**
+     * Returns the phases of the active program of a traffic light.
+     *
+     * @param tlsId traffic light system ID
+     * @return phases in program order
+     */
+    List<TrafficLightPhase> getProgramPhases(String tlsId);
+
+    /**
+     * Replaces the phases of the active program of a traffic light.
+     * <p>
+     * Restarts the program at the first phase if the new program is shorter.
+     *
+     * @param tlsId traffic light system ID
+     * @param phases new phases in program order
+     */
+    void setProgramPhases(String tlsId, List<TrafficLightPhase> phases);
+}
@@ -0,0 +1,27 @@
+package de.uni.trafficsim.backend;
+
+/**
+ * TraCI variable IDs used for subscriptions (values from SUMO's TraCIConstants).
+ * <p>
+ * Both bindings use the same IDs.
+ */
+final class TraciVariables {
+    // Vehicle variables
+    static final int VAR_SPEED = 0x40;
+    static final int VAR_POSITION = 0x42;
+    static final int VAR_ANGLE = 0x43;
+    static final int VAR_LENGTH = 0x44;
+    static final int VAR_COLOR = 0x45;
+    static final int VAR_TYPE = 0x4f;
+    static final int VAR_ROAD_ID = 0x50;
+    static final int VAR_ROUTE_ID = 0x53;
+    static final int VAR_CO2EMISSION = 0x60;
+    static final int VAR_FUELCONSUMPTION = 0x65;
+
+    // Edge variables
+    static final int LAST_STEP_VEHICLE_NUMBER = 0x10;
+    static final int LAST_STEP_MEAN_SPEED = 0x11;
+    static final int LAST_STEP_OCCUPANCY = 0x13;
+
+    private TraciVariables() {}
+}
@@ -0,0 +1,22 @@
+package de.uni.trafficsim.controller;
+
+import de.uni.trafficsim.model.SimulationFrame;
+import de.uni.trafficsim.model.VehicleSnapshot;
+import de.uni.trafficsim.statistics.StatsSnapshot;
+
+
+/**
+ * Results of one simulation step as handed from the simulation thread to the UI.
+ * <p>
+ * Time, frame, vehicle snapshot and statistics are published together in one object, so the
+ * UI never combines values of different steps. The vehicle snapshot is taken from the frame's
+ * manager on the simulation thread and belongs to whoever holds the step; it goes back to the
+ * manager once the step is shown or replaced.
+ */
+public record PublishedStep(
+        long step,                  // number of the step since the run started, starts at 1
+        double time,                // simulation time in seconds
+        SimulationFrame frame,      // vehicles and traffic lights of the step
+        VehicleSnapshot vehicles,   // published vehicle data of the step, may be null
+        StatsSnapshot stats         // statistics of the step, may be null
+) {}
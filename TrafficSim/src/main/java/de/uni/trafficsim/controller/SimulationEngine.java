@@ -0,0 +1,431 @@
+package de.uni.trafficsim.controller;
+
+import de.uni.trafficsim.App;
+import de.uni.trafficsim.backend.BackendType;
+import de.uni.trafficsim.backend.SumoBackend;
+import de.uni.trafficsim.manager.BulkInjector;
+import de.uni.trafficsim.manager.InjectionPlan;
+import de.uni.trafficsim.manager.InjectionStats;
+import de.uni.trafficsim.manager.NetworkMetadataCache;
+import de.uni.trafficsim.manager.TrafficLightStateTracker;
+import de.uni.trafficsim.manager.VehicleManager;
+import de.uni.trafficsim.model.RoadNetwork;
+import de.uni.trafficsim.model.SimulationFrame;
+import de.uni.trafficsim.model.VehicleWrapper;
+import de.uni.trafficsim.network.NetworkGeometry;
+import de.uni.trafficsim.network.NetworkGeometryCache;
+import de.uni.trafficsim.statistics.StatsCollector;
+import de.uni.trafficsim.statistics.StatsSnapshot;
+import de.uni.trafficsim.statistics.SubscribedEdgeApi;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+
+/**
+ * Drives a single SUMO simulation run without any UI dependency.
+ * <p>
+ * Launches SUMO, loads static data, and performs one simulation step at a time:
+ * queued tasks are executed, SUMO is stepped, and vehicle, traffic light and
+ * statistics data are collected into a {@link SimulationFrame}.
+ * Used by the Swing {@link SumoController} as well as the headless runner.
+ * <p>
+ * All methods except {@link #scheduleTask}, {@link #runStressTest}, the injection methods and the setters
+ * must be called from the thread that started the engine.
+ */
+public class SimulationEngine {
+    /** Simulated seconds per step. */
+    public static final double STEP_LENGTH_SEC = 0.1;
+
+    private final SumoBackend backend;      // libtraci or libsumo, chosen at startup
+    private String sumoConfigPath;
+    private String additionalFiles;         // extra SUMO additional files, e.g. TLS programs
+    private final boolean loadRoadNetwork;  // static geometry and vehicle snapshots are only needed for drawing
+    private RoadNetwork roadNetwork = new RoadNetwork();
+    private StatsCollector statsCollector; //for Statistics collection
+    private SimulationFrame frame;
+    private VehicleManager vehicleManager = new VehicleManager();  //persistent vehicle registry of the run
+    private final NetworkMetadataCache networkMetadata;      //route and type IDs for the dialogs
+    private volatile TrafficLightStateTracker trafficLights;     //only when the road network is loaded
+    private StatsSnapshot lastStats;
+    private double time = 0.0;
+
+    // Generic Task Queue for interacting with SUMO (bounded, lock-free, budgeted per step)
+    private final SimulationTaskQueue taskQueue = SimulationTaskQueue.fromSystemProperties();
+
+    // Bulk vehicle injection (stress test and load tests)
+    private final BulkInjector injector;
+
+    // Variable for storing number of arrived vehicles
+    private int arrivedVehiclesCount = 0;
+
+    // Vehicle data fetching (per-call or subscription based)
+    private volatile VehicleFetchMode fetchMode = VehicleFetchMode.fromSystemProperty();
+    private VehicleFetchMode stepFetchMode = null;      // mode of the last step, only used on the simulation thread
+    private VehicleSubscriptionFetcher subscriptionFetcher;
+
+    /**
+     * Constructor.
+     * Uses the backend configured with the {@code trafficsim.backend} system property.
+     *
+     * @param loadRoadNetwork whether lane and traffic light geometry is loaded and vehicle snapshots
+     *                        are published for drawing
+     */
+    public SimulationEngine(boolean loadRoadNetwork) {
+        this(loadRoadNetwork, BackendType.fromSystemProperty().create());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param loadRoadNetwork whether lane and traffic light geometry is loaded and vehicle snapshots
+     *                        are published for drawing
+     * @param backend SUMO backend used for all calls of this engine
+     */
+    public SimulationEngine(boolean loadRoadNetwork, SumoBackend backend) {
+        this.loadRoadNetwork = loadRoadNetwork;
+        this.backend = backend;
+        this.networkMetadata = new NetworkMetadataCache(backend);
+        this.injector = new BulkInjector(networkMetadata, backend);
+        this.subscriptionFetcher = new VehicleSubscriptionFetcher(backend);
+    }
+
+    /**
+     * Returns the SUMO backend. Its methods must only be called from the simulation thread,
+     * e.g. inside a scheduled task.
+     *
+     * @return backend of this engine
+     */
+    public SumoBackend getBackend() {
+        return backend;
+    }
+
+    public void setSumoConfigPath(String sumoConfigPath) {
+        this.sumoConfigPath = sumoConfigPath;
+    }
+
+    public String getSumoConfigPath() {
+        return sumoConfigPath;
+    }
+
+    /**
+     * Sets additional files SUMO loads on start, e.g. alternative traffic light programs.
+     * <p>
+     * They are passed on the command line and replace the additional files of the configuration.
+     *
+     * @param additionalFiles comma separated file paths, or null for none
+     */
+    public void setAdditionalFiles(String additionalFiles) {
+        this.additionalFiles = additionalFiles;
+    }
+
+    public RoadNetwork getRoadNetwork() {
+        return roadNetwork;
+    }
+
+    public SimulationFrame getFrame() {
+        return frame;
+    }
+
+    public NetworkMetadataCache getNetworkMetadata() {
+        return networkMetadata;
+    }
+
+    /**
+     * Returns the traffic light state tracker of the current run.
+     *
+     * @return tracker, or null if no road network is loaded
+     */
+    public TrafficLightStateTracker getTrafficLights() {
+        return trafficLights;
+    }
+
+    public StatsSnapshot getLastStats() {
+        return lastStats;
+    }
+
+    public double getTime() {
+        return time;
+    }
+
+    /**
+     * Launches SUMO and loads the static data of the scenario.
+     * <p>
+     * Resets all per-run state, so an engine can be started again after {@link #close()}.
+     *
+     * @throws IllegalStateException if no SUMO configuration was set
+     */
+    public void start() {
+        if (sumoConfigPath == null) {
+            throw new IllegalStateException("No SUMO configuration selected");
+        }
+
+        // 1. Start SUMO Process (Headless Mode)
+        App.logger.info("Launching SUMO...");
+
+        List<String> cmd = new ArrayList<>(List.of(
+                "sumo",
+                "-c", sumoConfigPath,
+                "--step-length", String.valueOf(STEP_LENGTH_SEC)
+        ));
+        if (additionalFiles != null && !additionalFiles.isBlank()) {
+            cmd.add("--additional-files");
+            cmd.add(additionalFiles);
+        }
+
+        // Lane geometry is parsed from the network file (or its cache) while SUMO starts up
+        CompletableFuture<NetworkGeometry> geometry = loadRoadNetwork ? loadGeometryAsync(sumoConfigPath) : null;
+
+        // 2. Connect via the configured backend (loads the native library on first use)
+        App.logger.info("Connecting to SUMO via {}", backend.getType());
+        backend.start(cmd);
+
+        // fresh per-run state
+        subscriptionFetcher = new VehicleSubscriptionFetcher(backend);
+        stepFetchMode = null;
+        arrivedVehiclesCount = 0;
+        injector.reset();
+        time = backend.getTime();
+        vehicleManager = new VehicleManager();
+        frame = new SimulationFrame(vehicleManager);
+        lastStats = null;
+
+        statsCollector = new StatsCollector(new SubscribedEdgeApi(backend));           //creates new batched EdgeApi Object and hands
+        //it to StatsCollector to read from SUMO
+
+        // 3. Initialization (Static Data)
+        // We fetch the road network ONCE because it doesn't change.
+        roadNetwork = new RoadNetwork();
+        trafficLights = null;
+        if (loadRoadNetwork) {
+            NetworkGeometry parsed = awaitGeometry(geometry);
+            if (parsed != null) {
+                roadNetwork.loadFromGeometry(parsed);
+            } else {
+                roadNetwork.loadFromSumo(backend);          // fallback: one TraCI call per lane
+            }
+            trafficLights = new TrafficLightStateTracker(roadNetwork, backend);
+        }
+        // Routes and types only change when tasks add them, so they are loaded once here
+        networkMetadata.load();
+    }
+
+    // Reads the geometry of the configured network on a pool thread
+    private static CompletableFuture<NetworkGeometry> loadGeometryAsync(String sumoConfigPath) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return NetworkGeometryCache.fromSystemProperty().loadForConfig(Paths.get(sumoConfigPath));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    // Geometry parsed from the network file, or null if that failed
+    private static NetworkGeometry awaitGeometry(CompletableFuture<NetworkGeometry> geometry) {
+        try {
+            return geometry.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() instanceof UncheckedIOException u ? u.getCause() : e.getCause();
+            App.logger.warn("Could not read network file, loading geometry from SUMO\nError message: {}",
+                    cause == null ? e.getMessage() : cause.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Performs one simulation step.
+     * <p>
+     * Runs queued tasks and pending stress test injections, steps SUMO, and collects
+     * vehicles, statistics and traffic light states of the new step.
+     *
+     * @return the frame of the new step
+     */
+    public SimulationFrame step() {
+        // --- Process Task Queue (Injections, Switches, etc.), within the per-step budget ---
+        taskQueue.runPending();
+
+        // Tasks may have added routes or types
+        networkMetadata.refreshIfStale();
+
+        // --- Bulk Injection (stress test and load tests) ---
+        injector.step(STEP_LENGTH_SEC);
+
+        backend.step();
+        // 1. Fetch Time
+        time = backend.getTime();
+
+        // 2. Fetch Data (vehicles are updated in place in the persistent registry)
+        SimulationFrame next = new SimulationFrame(vehicleManager);
+
+        // The mode is read once per step; leaving subscription mode drops the subscriptions here,
+        // on the simulation thread, so the switch cannot get lost in a full task queue
+        VehicleFetchMode mode = fetchMode;
+        if (stepFetchMode == VehicleFetchMode.SUBSCRIPTION && mode != VehicleFetchMode.SUBSCRIPTION) {
+            subscriptionFetcher.clear();
+        }
+        stepFetchMode = mode;
+        if (mode == VehicleFetchMode.SUBSCRIPTION) {
+            subscriptionFetcher.updateSubscriptions(vehicleManager);
+            subscriptionFetcher.fetch(vehicleManager);
+        } else {
+            fetchVehicles(vehicleManager, backend.getVehicleIds());
+        }
+        if (loadRoadNetwork) {
+            vehicleManager.publish(time);      //consistent copy for the renderer, headless runs have none
+        }
+
+        // 4.Update arrived count FIRST (so the snapshot contains it)
+        this.arrivedVehiclesCount += backend.getArrivedNumber();
+
+        // 5. Saving Statistic Snapshot
+        lastStats = statsCollector.collect(
+                time,
+                vehicleManager.getVehicles(),
+                this.arrivedVehiclesCount
+        );
+
+        if (trafficLights != null) {
+            fetchTrafficLights(next);
+        }
+
+        frame = next;
+        return next;
+    }
+
+    /**
+     * Closes the connection to SUMO.
+     */
+    public void close() {
+        try {
+            backend.close();
+        } catch (Exception e) {
+            App.logger.error("Error occurred while running simulation\nError message: {}", e.getMessage());
+        }
+        injector.cancel();                  // statistics of the last injection stay readable
+        networkMetadata.clear();
+    }
+
+    /**
+     * Runs queued tasks without stepping SUMO, e.g. while the simulation is paused.
+     * <p>
+     * Must be called from the simulation thread.
+     *
+     * @return number of tasks run
+     */
+    public int runPendingTasks() {
+        return taskQueue.runPending();
+    }
+
+    /**
+     * Schedules a task to run on the simulation thread before the next step.
+     * <p>
+     * Tasks are executed during the simulation loop to keep SUMO calls thread-safe.
+     *
+     * @param task runnable task to execute
+     * @return true if the task was queued, false if the queue is full
+     */
+    public boolean scheduleTask(Runnable task) {
+        return scheduleTask(TaskKind.OTHER, task);
+    }
+
+    /**
+     * Schedules a task of the given kind to run on the simulation thread.
+     * <p>
+     * Tasks of the same kind are run together; if the per-step budget is used up,
+     * the remaining tasks run before the following steps.
+     *
+     * @param kind kind of the task
+     * @param task runnable task to execute
+     * @return true if the task was queued, false if the queue is full
+     */
+    public boolean scheduleTask(TaskKind kind, Runnable task) {
+        return taskQueue.offer(kind, task);
+    }
+
+    public SimulationTaskQueue getTaskQueue() {
+        return taskQueue;
+    }
+
+    /**
+     * Requests a stress test by scheduling bulk vehicle injection.
+     * <p>
+     * The simulation loop will add vehicles over following steps.
+     */
+    public void runStressTest() {
+        startInjection(InjectionPlan.stressTest());
+    }
+
+    /**
+     * Starts a bulk injection on the next step, replacing a running one.
+     *
+     * @param plan vehicles, rate, routes and types to inject
+     */
+    public void startInjection(InjectionPlan plan) {
+        injector.submit(plan);
+    }
+
+    /**
+     * Stops the running bulk injection on the next step.
+     */
+    public void cancelInjection() {
+        injector.cancel();
+    }
+
+    /**
+     * Returns progress and per-step latency of the current or last bulk injection.
+     *
+     * @return injection statistics
+     */
+    public InjectionStats getInjectionStats() {
+        return injector.getStats();
+    }
+
+    /**
+     * Selects how vehicle data is read from SUMO.
+     * <p>
+     * Leaving subscription mode drops all vehicle subscriptions at the start of the next step,
+     * on the simulation thread.
+     *
+     * @param mode fetch mode to use from the next step on
+     */
+    public void setVehicleFetchMode(VehicleFetchMode mode) {
+        this.fetchMode = mode;
+        App.logger.info("Vehicle fetch mode set to {}", mode);
+    }
+
+    public VehicleFetchMode getVehicleFetchMode() {
+        return fetchMode;
+    }
+
+    //Pulls all current vehicle data from SUMO (position, speed, route, emissions, etc.)
+    // and updates the persistent VehicleWrapper of each vehicle in place.
+    private void fetchVehicles(VehicleManager manager, List<String> vehIds) {
+        manager.beginUpdate();
+        SumoBackend.VehicleSink sink = (id, x, y, angle, speed, length, routeId, typeId, roadId, co2, fuel, r, g, b) -> {
+            VehicleWrapper vehicle = manager.obtain(id);
+            vehicle.update(x, y, angle, speed, length, routeId, co2, fuel);
+            vehicle.updatePlacement(typeId, roadId);
+            vehicle.updateColor(r, g, b);
+        };
+        for (String vid : vehIds) {
+            // one backend call per variable
+            backend.readVehicle(vid, sink);
+        }
+        manager.endUpdate();
+    }
+
+    //Updates the traffic light states that may have changed and hands the persistent
+    // signal wrappers plus the compact state arrays of this step to the frame.
+    private void fetchTrafficLights(SimulationFrame frame) {
+        trafficLights.update(time);
+        frame.trafficLights = trafficLights.getSignals();
+        frame.trafficLightStates = trafficLights.snapshotStates();
+        frame.trafficLightIndex = trafficLights.getSignalIndex();
+    }
+}
@@ -0,0 +1,179 @@
+package de.uni.trafficsim.controller;
+
+import de.uni.trafficsim.App;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Bounded queue of tasks that must run on the simulation thread.
+ * <p>
+ * Any thread may add tasks without taking a lock. The queue holds at most
+ * {@code capacity} tasks; further tasks are rejected and counted, so callers can
+ * tell the user instead of letting the queue grow without limit.
+ * <p>
+ * Before each step the simulation thread runs the pending tasks within a budget of
+ * tasks and time. Tasks that do not fit stay in order for the next step, so a burst
+ * cannot stall a single step. The tasks taken in one step are grouped by
+ * {@link TaskKind} and run kind by kind; within a kind the order is kept.
+ */
+public class SimulationTaskQueue {
+    public static final int DEFAULT_CAPACITY = 10_000;
+    public static final int DEFAULT_MAX_TASKS_PER_STEP = 1_000;
+    public static final long DEFAULT_MAX_MILLIS_PER_STEP = 20;
+
+    private record Entry(TaskKind kind, Runnable task) {}
+
+    private final ConcurrentLinkedQueue<Entry> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();    //queued plus carried over, used for the bound
+    private final int capacity;
+    private volatile int maxTasksPerStep;
+    private volatile long maxNanosPerStep;
+
+    // Metrics
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong executed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong deferredSteps = new AtomicLong();
+
+    // Simulation thread only
+    private final ArrayDeque<Entry> carryOver = new ArrayDeque<>();   //taken but not run because of the time budget
+    private final EnumMap<TaskKind, List<Runnable>> groups = new EnumMap<>(TaskKind.class);
+    private final List<TaskKind> groupOrder = new ArrayList<>();
+
+    /**
+     * Constructor.
+     *
+     * @param capacity maximum number of pending tasks
+     * @param maxTasksPerStep maximum number of tasks run before one step
+     * @param maxMillisPerStep maximum time spent on tasks before one step
+     */
+    public SimulationTaskQueue(int capacity, int maxTasksPerStep, long maxMillisPerStep) {
+        if (capacity <= 0) throw new IllegalArgumentException("capacity must be positive");
+        this.capacity = capacity;
+        setBudget(maxTasksPerStep, maxMillisPerStep);
+        for (TaskKind kind : TaskKind.values()) {
+            groups.put(kind, new ArrayList<>());
+        }
+    }
+
+    /**
+     * Creates a queue configured by the system properties {@code trafficsim.taskQueue.capacity},
+     * {@code trafficsim.taskQueue.maxTasksPerStep} and {@code trafficsim.taskQueue.maxMillisPerStep}.
+     *
+     * @return configured queue, with defaults for missing properties
+     */
+    public static SimulationTaskQueue fromSystemProperties() {
+        return new SimulationTaskQueue(
+                Integer.getInteger("trafficsim.taskQueue.capacity", DEFAULT_CAPACITY),
+                Integer.getInteger("trafficsim.taskQueue.maxTasksPerStep", DEFAULT_MAX_TASKS_PER_STEP),
+                Long.getLong("trafficsim.taskQueue.maxMillisPerStep", DEFAULT_MAX_MILLIS_PER_STEP));
+    }
+
+    /**
+     * Changes the per-step budget.
+     *
+     * @param maxTasksPerStep maximum number of tasks run before one step, at least 1
+     * @param maxMillisPerStep maximum time spent on tasks before one step, at least 1 ms
+     */
+    public void setBudget(int maxTasksPerStep, long maxMillisPerStep) {
+        if (maxTasksPerStep <= 0 || maxMillisPerStep <= 0) {
+            throw new IllegalArgumentException("task budget must be positive");
+        }
+        this.maxTasksPerStep = maxTasksPerStep;
+        this.maxNanosPerStep = TimeUnit.MILLISECONDS.toNanos(maxMillisPerStep);
+    }
+
+    /**
+     * Adds a task, unless the queue is full. Can be called from any thread.
+     *
+     * @param kind kind of the task, used for grouping
+     * @param task task to run on the simulation thread
+     * @return true if the task was accepted, false if it was rejected
+     */
+    public boolean offer(TaskKind kind, Runnable task) {
+        Objects.requireNonNull(kind, "kind");
+        Objects.requireNonNull(task, "task");
+        if (pending.incrementAndGet() > capacity) {
+            pending.decrementAndGet();
+            rejected.incrementAndGet();
+            return false;
+        }
+        queue.add(new Entry(kind, task));
+        submitted.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Runs pending tasks within the per-step budget. Must be called from the simulation thread.
+     *
+     * @return number of tasks run
+     */
+    public int runPending() {
+        long deadline = System.nanoTime() + maxNanosPerStep;
+        int limit = maxTasksPerStep;
+
+        // Take tasks up to the task budget, older carried-over tasks first, and group them by kind
+        int taken = 0;
+        Entry entry;
+        while (taken < limit && ((entry = carryOver.poll()) != null || (entry = queue.poll()) != null)) {
+            List<Runnable> group = groups.get(entry.kind());
+            if (group.isEmpty()) groupOrder.add(entry.kind());
+            group.add(entry.task());
+            taken++;
+        }
+        if (taken == 0) return 0;
+
+        // Run the groups one after another until the time budget is used up
+        int run = 0;
+        boolean outOfTime = false;
+        for (TaskKind kind : groupOrder) {
+            List<Runnable> group = groups.get(kind);
+            int groupFailed = 0;
+            String lastError = null;
+            int k = 0;
+            for (; k < group.size() && !outOfTime; k++) {
+                try {
+                    group.get(k).run();
+                } catch (Exception e) {
+                    groupFailed++;
+                    lastError = e.getMessage();
+                }
+                run++;
+                outOfTime = System.nanoTime() > deadline;
+            }
+            if (groupFailed > 0) {
+                failed.addAndGet(groupFailed);
+                App.logger.error("{} of {} {} tasks failed\nLast error message: {}", groupFailed, k, kind, lastError);
+            }
+            // keep what did not fit for the next step
+            for (; k < group.size(); k++) {
+                carryOver.add(new Entry(kind, group.get(k)));
+            }
+            group.clear();
+        }
+        groupOrder.clear();
+
+        pending.addAndGet(-run);
+        executed.addAndGet(run);
+        if (!carryOver.isEmpty() || !queue.isEmpty()) {
+            deferredSteps.incrementAndGet();
+        }
+        return run;
+    }
+
+    /**
+     * Returns the current counters. Can be called from any thread.
+     *
+     * @return queue metrics
+     */
+    public TaskQueueStats getStats() {
+        return new TaskQueueStats(pending.get(), submitted.get(), executed.get(),
+                failed.get(), rejected.get(), deferredSteps.get());
+    }
+}
@@ -0,0 +1,85 @@
+package de.uni.trafficsim.controller;
+
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Paces the simulation thread to a target speed relative to real time.
+ * <p>
+ * A speed factor of 1 steps the simulation in real time, 10 runs it ten times
+ * faster and {@link #UNLIMITED} runs it as fast as SUMO allows. Waiting is based
+ * on absolute deadlines, so the time spent inside a step is not added on top.
+ */
+public class StepPacer {
+    /** Speed factor for stepping without any waiting. */
+    public static final double UNLIMITED = Double.POSITIVE_INFINITY;
+
+    // If we fall behind by more than this, the schedule is reset instead of catching up in a burst
+    private static final long MAX_LAG_NANOS = TimeUnit.MILLISECONDS.toNanos(250);
+
+    private final double stepLengthSec;
+    private volatile double speedFactor;
+    private long nextDeadline = 0;      // only touched by the simulation thread
+
+    /**
+     * Constructor.
+     *
+     * @param stepLengthSec simulated seconds per step
+     * @param speedFactor initial target speed factor
+     */
+    public StepPacer(double stepLengthSec, double speedFactor) {
+        this.stepLengthSec = stepLengthSec;
+        setSpeedFactor(speedFactor);
+    }
+
+    /**
+     * Sets the target speed factor (simulated time / wall time).
+     *
+     * @param speedFactor factor &gt; 0, or {@link #UNLIMITED}
+     * @throws IllegalArgumentException if the factor is not positive
+     */
+    public void setSpeedFactor(double speedFactor) {
+        if (!(speedFactor > 0)) {
+            throw new IllegalArgumentException("speed factor must be > 0");
+        }
+        this.speedFactor = speedFactor;
+    }
+
+    public double getSpeedFactor() {
+        return speedFactor;
+    }
+
+    /**
+     * Blocks until the next step is due.
+     * <p>
+     * Returns immediately in unlimited mode or if the simulation is behind schedule.
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public void awaitNextStep() throws InterruptedException {
+        double factor = speedFactor;
+        if (Double.isInfinite(factor)) {
+            nextDeadline = 0;
+            return;
+        }
+
+        long period = (long) (stepLengthSec * 1_000_000_000L / factor);
+        long now = System.nanoTime();
+        if (nextDeadline == 0 || now - nextDeadline > MAX_LAG_NANOS) {
+            nextDeadline = now;
+        }
+        nextDeadline += period;
+
+        long wait = nextDeadline - now;
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+
+    /**
+     * Forgets the current schedule, e.g. after a pause.
+     */
+    public void reset() {
+        nextDeadline = 0;
+    }
+}
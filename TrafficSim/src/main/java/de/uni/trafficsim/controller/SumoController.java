@@ -1,59 +1,73 @@
 package de.uni.trafficsim.controller;
 
 import de.uni.trafficsim.App;
+import de.uni.trafficsim.backend.SumoBackend;
+import de.uni.trafficsim.manager.InjectionPlan;
+import de.uni.trafficsim.manager.InjectionStats;
+import de.uni.trafficsim.manager.NetworkMetadataCache;
+import de.uni.trafficsim.manager.TrafficLightStateTracker;
 import de.uni.trafficsim.model.*;
 import de.uni.trafficsim.model.TrafficLight.TrafficLightPhase;
 import de.uni.trafficsim.model.TrafficLight.TrafficLightWrapper;
+import de.uni.trafficsim.replay.ReplayRecorder;
 import de.uni.trafficsim.view.DashboardPanel;
 import de.uni.trafficsim.view.dialogViews.PhaseEditorDialog;
 import de.uni.trafficsim.view.VisualizationPanel;
-import org.eclipse.sumo.libtraci.*;
 import de.uni.trafficsim.statistics.*;
 
 import javax.swing.*;
 import java.awt.*;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.List;
-import java.util.Queue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 
 /**
  * Coordinates the SUMO simulation and the Swing UI.
  * <p>
- * Starts and steps the SUMO simulation, collects data for rendering
- * and statistics, and exposes methods used by the UI for control.
+ * Runs a {@link SimulationEngine} on a background thread, hands its results
+ * to the UI for rendering and statistics, and exposes methods used by the UI for control.
  */
 public class SumoController implements Runnable {
-    private String sumoConfigPath;
+    private static final int RENDER_INTERVAL_MS = 33;          // render clock, approx 30 FPS
+    private static final long PAUSE_POLL_MS = 10;              // wait time while paused
+    private static final int STATS_TAIL_SIZE = 100;            // snapshots kept in memory (10 s at 0.1 s steps)
+
+    private final SimulationEngine engine = new SimulationEngine(true);
     private final VisualizationPanel view;
     private final DashboardPanel dashboard; // Reference to Dashboard
-    private RoadNetwork roadNetwork;
     private final JLabel timeLabel; // Reference to UI label
-    private SimulationFrame simulationFrame;
-    private StatsCollector statsCollector; //for Statistics collection
-    private final List<StatsSnapshot> statsHistory = new ArrayList<>();  //List for all statistic snapshots so far -> writing to export
+    private volatile StatsStore statsStore;     //statistics history of the current run, streamed to disk -> export
+    private volatile Path recordingDirectory = recordingDirectoryFromSystemProperty();   //replay logs of new runs, null = off
 
     private volatile boolean running = false;
     private volatile boolean paused = false;
     private volatile boolean stepRequested = false; // Flag for single step
 
-    // new for stress test
-    private volatile boolean stressTestRequested = false; // Stress test requested
-    private volatile int stressVehiclesLeft = 0; // amount of cars generated
-    private int stressVehicleCounter = 0; // Counter for vehicle ID
-
-    // Random generator for mock data
-    private final Random random = new Random();
-
-    // Generic Task Queue for interacting with SUMO
-    private final Queue<Runnable> taskQueue = new LinkedList<>();
-
     // Filtering
     private VehicleFilter activeFilter = new VehicleFilter();
+    private CompiledVehicleFilter compiledFilter = activeFilter.compile();  // evaluated per frame on the EDT
+
+    // Stepping speed of the simulation thread, independent of the render rate
+    private final StepPacer pacer = new StepPacer(SimulationEngine.STEP_LENGTH_SEC, 1.0);
 
-    // Variable for storing number of arrived vehicles
-    private int arrivedVehiclesCount = 0;
+    // Latest results published by the simulation thread, taken by the render clock.
+    // Single slot: a newer step replaces an unrendered one, so nothing queues up on the EDT.
+    // Whoever removes a step from the slot owns its vehicle snapshot and hands it back to the manager.
+    private final AtomicReference<PublishedStep> latestStep = new AtomicReference<>();
+    private long publishedCount = 0;    // only used on the simulation thread
+    private long renderedStep = 0;      // only used on the EDT
+    private PublishedStep shownStep;    // step on screen, only used on the EDT
+    private final AtomicLong droppedFrames = new AtomicLong();   // steps replaced before they were shown
+
+    // Render clock: pulls the latest frame at display rate on the EDT
+    private final javax.swing.Timer renderClock = new javax.swing.Timer(RENDER_INTERVAL_MS, e -> renderLatestFrame());
 
 
     /**
@@ -67,28 +81,51 @@ public class SumoController implements Runnable {
         this.view = view;
         this.dashboard = dashboard;
         this.timeLabel = timeLabel;
-        this.roadNetwork = new RoadNetwork();
     }
 
     public void setSumoConfigPath(String sumoConfigPath) {
-        this.sumoConfigPath = sumoConfigPath;
+        engine.setSumoConfigPath(sumoConfigPath);
+    }
+
+    public String getSumoConfigPath() {
+        return engine.getSumoConfigPath();
     }
 
-    // Helpers for the Dialog
+    // Helpers for the Dialog, read from the metadata cache on demand
     public List<String> getAvailableRoutes() {
-        return simulationFrame.availableRoutes;
+        return engine.getNetworkMetadata().getRoutes();
     }
 
     public List<String> getAvailableTypes() {
-        return simulationFrame.availableTypes;
+        return engine.getNetworkMetadata().getTypes();
+    }
+
+    public NetworkMetadataCache getNetworkMetadata() {
+        return engine.getNetworkMetadata();
+    }
+
+    /**
+    * Returns the SUMO backend of the engine.
+    * <p>
+    * Its methods must only be called on the simulation thread, i.e. inside scheduled tasks.
+    *
+    * @return SUMO backend
+    */
+    public SumoBackend getBackend() {
+        return engine.getBackend();
     }
 
     public SimulationFrame getSimulationFrame() {
-        return simulationFrame;
+        return engine.getFrame();
     }
 
-    public List<StatsSnapshot> getStatsHistory() {
-        return List.copyOf(statsHistory);
+    /**
+    * Returns the statistics store of the current (or last) run.
+    *
+    * @return statistics store, or null if no run was started yet
+    */
+    public StatsStore getStatsStore() {
+        return statsStore;
     }
 
     public void setPaused(boolean paused) {
@@ -99,6 +136,40 @@ public class SumoController implements Runnable {
         return paused;
     }
 
+    /**
+    * Sets how fast the simulation runs compared to real time.
+    *
+    * @param speedFactor factor &gt; 0 (1 = real time), or {@link StepPacer#UNLIMITED} to step as fast as possible
+    */
+    public void setSpeedFactor(double speedFactor) {
+        pacer.setSpeedFactor(speedFactor);
+        App.logger.info("Simulation speed factor set to {}", speedFactor);
+    }
+
+    public double getSpeedFactor() {
+        return pacer.getSpeedFactor();
+    }
+
+
+    /**
+    * Sets where runs are recorded for replay; each run gets its own subdirectory.
+    * <p>
+    * Takes effect with the next start. Defaults to the {@code trafficsim.recordDir} system property.
+    *
+    * @param directory parent directory for replay logs, or null to not record
+    */
+    public void setRecordingDirectory(Path directory) {
+        this.recordingDirectory = directory;
+    }
+
+    public Path getRecordingDirectory() {
+        return recordingDirectory;
+    }
+
+    private static Path recordingDirectoryFromSystemProperty() {
+        String dir = System.getProperty("trafficsim.recordDir");
+        return dir == null || dir.isBlank() ? null : Paths.get(dir);
+    }
 
     /**
     * Starts the simulation loop in a background thread.
@@ -109,7 +180,12 @@ public class SumoController implements Runnable {
         if (running) return;
         running = true;
         paused = false;
-        new Thread(this).start();
+        latestStep.set(null);
+        publishedCount = 0;
+        renderedStep = 0;
+        shownStep = null;
+        renderClock.start();
+        new Thread(this, "sumo-simulation").start();
     }
 
     /**
@@ -121,17 +197,12 @@ public class SumoController implements Runnable {
         running = false;
         paused = false;
         stepRequested = false;
+        renderClock.stop();
 
         // Clear map
-        this.simulationFrame = new SimulationFrame();
-        this.roadNetwork = new RoadNetwork();
-        view.updateFrame(this.simulationFrame);
-        view.setRoadNetwork(this.roadNetwork);
+        view.updateFrame(new SimulationFrame());
+        view.setRoadNetwork(new RoadNetwork());
         // Clean close is handled in the run loop
-
-        //new stress test
-        stressTestRequested = false;
-        stressVehiclesLeft = 0;
     }
 
     /**
@@ -149,6 +220,7 @@ public class SumoController implements Runnable {
     // Filtering API
     public void setFilter(VehicleFilter filter) {
         this.activeFilter = filter;
+        this.compiledFilter = filter.compile();            // compiled once per change, not per vehicle
         if (paused) view.repaint();
     }
 
@@ -156,6 +228,23 @@ public class SumoController implements Runnable {
         return activeFilter;
     }
 
+    public CompiledVehicleFilter getCompiledFilter() {
+        return compiledFilter;
+    }
+
+    /**
+    * Selects how vehicle data is read from SUMO.
+    *
+    * @param mode fetch mode to use from the next step on
+    */
+    public void setVehicleFetchMode(VehicleFetchMode mode) {
+        engine.setVehicleFetchMode(mode);
+    }
+
+    public VehicleFetchMode getVehicleFetchMode() {
+        return engine.getVehicleFetchMode();
+    }
+
     
     /**
     * Queues a request to switch a traffic light to its next phase.
@@ -166,20 +255,56 @@ public class SumoController implements Runnable {
     * @param tl traffic light wrapper to switch
     */
     public void switchTrafficLight(TrafficLightWrapper tl) {
-        scheduleTask(tl::changeState);
-        App.logger.info("Queued switch for TLS: {}", tl.getId());
+        boolean queued = scheduleTask(TaskKind.TRAFFIC_LIGHT, () -> {
+            tl.changeState(engine.getBackend());
+            invalidateTrafficLight(tl.getId());
+        });
+        if (queued) {
+            App.logger.info("Queued switch for TLS: {}", tl.getId());
+        } else {
+            App.logger.warn("Task queue full, switch for TLS {} dropped", tl.getId());
+        }
     }
 
     
+    // Makes the state tracker read the TLS again after a manual change (runs inside the queued task)
+    private void invalidateTrafficLight(String tlsId) {
+        TrafficLightStateTracker tracker = engine.getTrafficLights();
+        if (tracker != null) tracker.invalidate(tlsId);
+    }
+
     /**
     * Schedules a task to run on the simulation thread.
     * <p>
     * Tasks are executed during the simulation loop to keep SUMO calls thread-safe.
     *
     * @param task runnable task to execute
+    * @return true if the task was queued, false if the queue is full
+    */
+    public boolean scheduleTask(Runnable task) {
+        return engine.scheduleTask(task);
+    }
+
+    /**
+    * Schedules a task of the given kind to run on the simulation thread.
+    * <p>
+    * Tasks of the same kind are grouped; a full queue rejects the task.
+    *
+    * @param kind kind of the task
+    * @param task runnable task to execute
+    * @return true if the task was queued, false if the queue is full
     */
-    public synchronized void scheduleTask(Runnable task) {
-        taskQueue.add(task);
+    public boolean scheduleTask(TaskKind kind, Runnable task) {
+        return engine.scheduleTask(kind, task);
+    }
+
+    /**
+    * Returns the counters of the simulation task queue.
+    *
+    * @return queue metrics
+    */
+    public TaskQueueStats getTaskQueueStats() {
+        return engine.getTaskQueue().getStats();
     }
 
     /**
@@ -188,274 +313,237 @@ public class SumoController implements Runnable {
     * The simulation loop will add vehicles over following steps.
     */
     public void runStressTest() {
-        stressVehiclesLeft = 100;
-        stressTestRequested = true;
+        engine.runStressTest();
     }
 
-    //new function for stress Test
-    private String getAnyRouteId() {
-        try {
-            StringVector routes = Route.getIDList();
-            if (!routes.isEmpty()) {
-                return routes.get(0);
-            }
-        } catch (Exception e) {
-            App.logger.error("Error occurred while getting any routeID\nError message: {}", e.getMessage());
-        }
-        return null;
+    /**
+    * Starts a bulk injection with the given rate, routes and vehicle types.
+    *
+    * @param plan injection to run
+    */
+    public void startInjection(InjectionPlan plan) {
+        engine.startInjection(plan);
+    }
+
+    public InjectionStats getInjectionStats() {
+        return engine.getInjectionStats();
     }
 
     /**
     * Opens the phase editor dialog for a traffic light.
     * <p>
-    * The dialog is created on the Swing Event Dispatch Thread.
+    * The current program is read on the simulation thread (SUMO calls are not thread-safe);
+    * the dialog is then created on the Swing Event Dispatch Thread.
     *
     * @param tlsId traffic light system ID
     */
     public void openPhaseEditorFor(String tlsId) {
-        SwingUtilities.invokeLater(() -> {
-            Window win = SwingUtilities.getWindowAncestor(view);
-            new PhaseEditorDialog(win, tlsId, this).setVisible(true);
+        boolean queued = scheduleTask(TaskKind.TRAFFIC_LIGHT, () -> {
+            List<TrafficLightPhase> phases;
+            try {
+                phases = List.copyOf(engine.getBackend().getProgramPhases(tlsId));
+            } catch (Exception e) {
+                App.logger.error("Error while reading program of {}\nError message: {}", tlsId, e.getMessage());
+                return;
+            }
+            SwingUtilities.invokeLater(() -> {
+                Window win = SwingUtilities.getWindowAncestor(view);
+                new PhaseEditorDialog(win, tlsId, phases, this).setVisible(true);
+            });
         });
+        if (!queued) {
+            App.logger.warn("Task queue full, phase editor for TLS {} not opened", tlsId);
+        }
     }
 
     /**
     * Applies a custom traffic light program to the given TLS.
     * <p>
-    * Replaces the current program's phase list with the provided phases
-    * and schedules the update to run in the simulation thread and be apllied to SUMO.
+    * Replaces the current program's phase list with the provided phases;
+    * the update is scheduled to run in the simulation thread and be applied to SUMO.
     *
     * @param tlsId traffic light system ID
     * @param phases ordered list of phases to apply
     */
     public void setCustomProgram(String tlsId, List<TrafficLightPhase> phases) {
-        String currentPG = TrafficLight.getProgram(tlsId);
-        TraCILogic currentLogic = TrafficLight.getAllProgramLogics(tlsId).stream()
-                .filter(program -> program.getProgramID().equals(currentPG))
-                .toList()
-                .get(0);
-        TraCIPhaseVector newPhases = new TraCIPhaseVector();
-        for (TrafficLightPhase phase : phases) {
-            newPhases.add(new TraCIPhase(phase.getDuration(), phase.getState()));
-        }
-        if (currentLogic.getPhases().size() > newPhases.size()) {
-            currentLogic.setCurrentPhaseIndex(0);
-        }
-        currentLogic.setPhases(newPhases);
-
-        scheduleTask(() -> {
+        List<TrafficLightPhase> newPhases = List.copyOf(phases);
+        boolean queued = scheduleTask(TaskKind.TRAFFIC_LIGHT, () -> {
             try {
-                TrafficLight.setProgramLogic(tlsId, currentLogic);
+                engine.getBackend().setProgramPhases(tlsId, newPhases);
+                invalidateTrafficLight(tlsId);
                 App.logger.info("Applied custom program start for {}", tlsId);
             } catch (Exception e) {
                 App.logger.error("Error while applying custom program start for {}\nError message: {}", tlsId, e.getMessage());
             }
         });
+        if (!queued) {
+            App.logger.warn("Task queue full, custom program for TLS {} dropped", tlsId);
+        }
     }
 
 
     /**
     * Runs the main SUMO simulation loop.
     * <p>
-    * launches SUMO via TraCI, loads the static road network, processes queued tasks,
-    * steps the simulation, updates UI data, and collects statistics until stopped.
+    * Starts the engine (SUMO and static road network), then steps it and
+    * publishes each step to the UI until stopped.
     */
     @Override
     public void run() {
-        Process sumoProcess = null;
+        ReplayRecorder recorder = null;
         try {
-            // 1. Start SUMO Process (Headless Mode)
-            App.logger.info("Launching SUMO...");
-
-            String[] cmd = {
-                    "sumo",
-                    "-c", sumoConfigPath,
-                    "--step-length", "0.1" // 100ms per step
-            };
-
-            //Not needed, because we start via Simulation.start
-            //sumoProcess = Runtime.getRuntime().exec(cmd);
-
-            // Give SUMO a moment to start up and open the port
-            //Thread.sleep(2000);
-
-            // 2. Connect via TraCI
-            App.logger.info("Connecting to TraCI");
-
-            /// If you're using Windows/Linux, you should use line 69, in other cases - use line 68 with your path.
-//            System.load("/Users/alexandrbahno/sumo/bin/liblibtracijni.jnilib");
-            System.load("/Users/johngrosch/sumo/bin/liblibtracijni.jnilib");
-//            Simulation.preloadLibraries();
-
-            Simulation.start(new StringVector(cmd));
-
-            statsCollector = new StatsCollector(new SumoEdgeApi());                 //creates new EdgeApi Object and hands
-            //it to StatsCollector to read from SUMO
-            // 3. Initialization (Static Data)
-            // We fetch the road network ONCE because it doesn't change.
-
-            roadNetwork.loadFromSumo();
-            view.setRoadNetwork(roadNetwork);
-
-            // 4. Simulation Loop (Dynamic Data)
+            engine.start();
+            openStatsStore();
+            recorder = openRecorder();
+            RoadNetwork network = engine.getRoadNetwork();
+            SwingUtilities.invokeLater(() -> view.setRoadNetwork(network));   // view state is only touched on the EDT
+
+            // Simulation Loop (Dynamic Data)
+            // The loop only steps and publishes results; drawing is done by the render clock.
+            pacer.reset();
             while (running) {
                 // Execute step if:
                 // 1. Not paused (running normally)
                 // 2. OR Paused but a manual step was requested
                 if (!paused || stepRequested) {
-                    // --- Process Task Queue (Injections, Switches, etc.) ---
-                    synchronized (this) {
-                        while (!taskQueue.isEmpty()) {
-                            try {
-                                taskQueue.poll().run();
-                            } catch (Exception e) {
-                                App.logger.error("Error occurred while doing asynchronous task\nError message: {}", e.getMessage());
-                            }
-                        }
-                    }
-
-                    // --- Handle Stress Test Request ---
-                    if (stressTestRequested && stressVehiclesLeft > 0) {
-                        handleStressTest();
-                    }
-
-                    Simulation.step();
-                    // 1. Fetch Time
-                    fetchSimulationTime();
-
-                    // 2. Fetch Data
-                    simulationFrame = new SimulationFrame();
-
-                    // 3. Cache available routes and vehicle types for dropdowns
-                    simulationFrame.availableRoutes.addAll(Route.getIDList());
-                    simulationFrame.availableTypes.addAll(VehicleType.getIDList());
-
-                    StringVector vehIds = Vehicle.getIDList();
-                    fetchVehicles(simulationFrame, vehIds);
+                    SimulationFrame frame = engine.step();
 
-                    // 4.Update arrived count FIRST (so the snapshot contains it)
-                    this.arrivedVehiclesCount += Simulation.getArrivedNumber();
-
-                    // 5. Saving Statistic Snapshot
-                    StatsSnapshot snap = statsCollector.collect(
-                            Simulation.getTime(),
-                            simulationFrame.vehicleManager.getVehicles(),
-                            this.arrivedVehiclesCount
-                    );
-
-                    // 6.save to Statistics history for exports
-                    statsHistory.add(snap);
-
-                    updateStatDashboard(snap, simulationFrame);
-
-                    StringVector tlsIds = TrafficLight.getIDList();
-                    fetchTrafficLights(simulationFrame, tlsIds);
+                    // save to Statistics history (disk log + in-memory tail for the dashboard)
+                    StatsSnapshot stats = engine.getLastStats();
+                    statsStore.append(stats);
 
+                    // record for replay; a failing recorder stops recording, not the simulation
+                    if (recorder != null && !record(recorder, frame)) {
+                        recorder = null;
+                    }
 
-                    // 7. Update our map
-                    view.updateFrame(simulationFrame);
+                    // Publish results for the render clock (time, frame and stats together)
+                    publishFrame(frame, engine.getTime(), stats);
 
                     // Reset a single step flag immediately after processing
                     stepRequested = false;
-                }
 
-                // Rate Limiting (approx 30 FPS drawing)
-                Thread.sleep(33);
+                    // Rate Limiting (target speed factor, no waiting in unlimited mode)
+                    pacer.awaitNextStep();
+                } else {
+                    // Paused: wait for resume or a single step request; queued UI requests
+                    // (e.g. reading a program for the phase editor) still run without stepping
+                    engine.runPendingTasks();
+                    Thread.sleep(PAUSE_POLL_MS);
+                    pacer.reset();
+                }
             }
 
         } catch (InterruptedException e) {
             App.logger.error("Error communicating with SUMO: {}", e.getMessage());
+        } catch (Exception e) {
+            App.logger.error("Error occurred while running simulation\nError message: {}", e.getMessage());
         } finally {
-            try {
-                Simulation.close();
-            } catch (Exception e) {
-                App.logger.error("Error occurred while running simulation\nError message: {}", e.getMessage());
-            }
-            if (sumoProcess != null) {
-                sumoProcess.destroy();
-            }
+            engine.close();
+            closeRecorder(recorder);
+            running = false;
             App.logger.info("Simulation stopped.");
         }
     }
 
-    private void fetchSimulationTime() {
-        double currentTime = Simulation.getTime();
-
-        // Update UI Label (Must be done on EDT)
-        SwingUtilities.invokeLater(() ->
-                timeLabel.setText(String.format("Time: %.1f s", Double.valueOf(currentTime)))
-        );
-    }
-
-    //Pulls all current vehicle data from SUMO (position, speed, route, emissions, etc.) 
-    // and wraps each one in a VehicleWrapper for the current SimulationFrame.
-    private void fetchVehicles(SimulationFrame frame, StringVector vehIds) {
-        for (String vid : vehIds) {
-            VehicleWrapper vehicle = new VehicleWrapper(
-                    vid,
-                    // Call libtraci Vehicle`s methods
-                    Vehicle.getPosition(vid),
-                    Vehicle.getAngle(vid),
-                    Vehicle.getSpeed(vid),
-                    Vehicle.getLength(vid),
-                    Vehicle.getRouteID(vid),
-                    Vehicle.getColor(vid),
-                    Vehicle.getCO2Emission(vid),
-                    Vehicle.getFuelConsumption(vid)
-            );
-            frame.vehicleManager.addVehicle(vehicle);
+    // Replaces the store of the previous run; its temporary log is deleted
+    private void openStatsStore() throws IOException {
+        StatsStore old = statsStore;
+        statsStore = StatsStore.createTemporary(STATS_TAIL_SIZE);
+        if (old != null) {
+            old.close();
         }
     }
 
-    //Reads the current traffic light states from SUMO and combines them with precomputed stop‑line positions 
-    // to create TrafficLightWrapper objects for the frame.
-    private void fetchTrafficLights(SimulationFrame frame, StringVector tlsIds) {
-        for (String tid : tlsIds) {
-            String state = TrafficLight.getRedYellowGreenState(tid);
-            List<RoadNetwork.SignalData> positions = roadNetwork.getTlsStopLines().get(tid);
-            // Zip the state string with the positions
-            if (positions != null) {
-                int count = Math.min(state.length(), positions.size());
-                for (int k = 0; k < count; k++) {
-                    RoadNetwork.SignalData sd = positions.get(k);
-                    frame.trafficLights.add(
-                            new TrafficLightWrapper(tid, sd.pos, sd.angle, state.charAt(k))
-                    );
-                }
-            }
+    // Creates the replay log of this run if recording is enabled
+    private ReplayRecorder openRecorder() {
+        Path parent = recordingDirectory;
+        if (parent == null) return null;
+        String name = "run-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+        try {
+            ReplayRecorder recorder = new ReplayRecorder(parent.resolve(name), engine.getRoadNetwork());
+            App.logger.info("Recording run to {}", recorder.getDirectory());
+            return recorder;
+        } catch (IOException e) {
+            App.logger.error("Error occurred while creating replay log\nError message: {}", e.getMessage());
+            return null;
         }
     }
 
-    // New updateStatDashboard Method, All data comes from StatsSnapshot
-    // Computes how many vehicles are visible under the current filter, then updates the dashboard UI on the EDT with the latest StatsSnapshot.
-    private void updateStatDashboard(StatsSnapshot snap, SimulationFrame frame) {
-        long visibleCount = frame.vehicleManager.getVehicles().stream()
-                .filter(v -> activeFilter.matches(v))
-                .count();
-
-        SwingUtilities.invokeLater(() -> {
-            // Dashboard-Method, all data from StatsSnapshot
-            dashboard.updateStats(snap, (int) visibleCount);
-        });
+    private boolean record(ReplayRecorder recorder, SimulationFrame frame) {
+        try {
+            recorder.append(engine.getTime(), frame);
+            return true;
+        } catch (IOException e) {
+            App.logger.error("Error occurred while recording, recording stopped\nError message: {}", e.getMessage());
+            closeRecorder(recorder);
+            return false;
+        }
     }
 
-    //Injects a batch of vehicles into SUMO over multiple steps, decrementing the remaining vehicles count until stress test is done
-    private void handleStressTest() {
+    private void closeRecorder(ReplayRecorder recorder) {
+        if (recorder == null) return;
         try {
-            String routeId = getAnyRouteId();
-            if (routeId != null) {
-                String vehId = "stressVeh_" + stressVehicleCounter++;
-                Vehicle.add(vehId, routeId, "DEFAULT_VEHTYPE", "now", "best", "0", "0");
-                stressVehiclesLeft--;
-
-                if (stressVehiclesLeft == 0) {
-                    stressTestRequested = false;
-                }
-            } else {
-                stressTestRequested = false;
-            }
-        } catch (Exception e) {
-            stressTestRequested = false;
+            recorder.close();
+        } catch (IOException e) {
+            App.logger.error("Error occurred while closing replay log\nError message: {}", e.getMessage());
+        }
+    }
+
+    // Stores the results of a step for the render clock; intermediate steps between two ticks are skipped
+    // The vehicle snapshot is taken here, on the simulation thread, so it belongs to the same step as the stats
+    private void publishFrame(SimulationFrame frame, double time, StatsSnapshot stats) {
+        VehicleSnapshot vehicles = frame.vehicleManager.takeSnapshot();
+        PublishedStep skipped = latestStep.getAndSet(new PublishedStep(++publishedCount, time, frame, vehicles, stats));
+        if (skipped != null) {
+            release(skipped);
         }
     }
+
+    // Render clock tick (EDT): shows the latest published step if a new one arrived since the last tick
+    private void renderLatestFrame() {
+        PublishedStep latest = latestStep.getAndSet(null);
+        if (latest == null) return;
+        if (latest.step() > renderedStep + 1) {
+            droppedFrames.addAndGet(latest.step() - renderedStep - 1);
+        }
+        renderedStep = latest.step();
+
+        SimulationFrame frame = latest.frame();
+        StatsSnapshot snap = latest.stats();
+        timeLabel.setText(String.format("Time: %.1f s", Double.valueOf(latest.time())));
+        view.updateFrame(frame, latest.vehicles());
+        if (latest.vehicles() != null && snap != null) {
+            updateStatDashboard(snap, latest.vehicles());
+        }
+
+        // the view no longer draws the previous step, so its buffer can be reused
+        if (shownStep != null) {
+            release(shownStep);
+        }
+        shownStep = latest;
+    }
+
+    private static void release(PublishedStep step) {
+        step.frame().vehicleManager.releaseSnapshot(step.vehicles());
+    }
+
+    /**
+    * Returns how many published steps were replaced by a newer one before the UI showed them.
+    *
+    * @return number of coalesced steps since the controller was created
+    */
+    public long getDroppedFrames() {
+        return droppedFrames.get();
+    }
+
+    // New updateStatDashboard Method, All data comes from StatsSnapshot
+    // Computes how many vehicles are visible under the current filter, then updates the dashboard UI with the latest StatsSnapshot.
+    // Called from the render clock on the EDT.
+    private void updateStatDashboard(StatsSnapshot snap, VehicleSnapshot vehicles) {
+        int visibleCount = compiledFilter.evaluate(vehicles).count();      // same result the renderer uses
+
+        // Dashboard-Method, all data from StatsSnapshot
+        dashboard.updateStats(snap, visibleCount);
+    }
 }
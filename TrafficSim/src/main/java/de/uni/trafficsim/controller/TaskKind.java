@@ -0,0 +1,16 @@
+package de.uni.trafficsim.controller;
+
+/**
+ * Kind of a task queued for the simulation thread.
+ * <p>
+ * Tasks of the same kind that are due in the same step are executed together
+ * in one pass, e.g. a burst of vehicle injections.
+ */
+public enum TaskKind {
+    /** Adds vehicles or vehicle types to SUMO. */
+    INJECTION,
+    /** Switches traffic lights or changes their programs. */
+    TRAFFIC_LIGHT,
+    /** Anything else, e.g. internal housekeeping. */
+    OTHER
+}
@@ -0,0 +1,13 @@
+package de.uni.trafficsim.controller;
+
+/**
+ * Counters of the simulation task queue at one point in time.
+ */
+public record TaskQueueStats(
+        int pending,            // tasks waiting to be executed
+        long submitted,         // tasks accepted since the queue was created
+        long executed,          // tasks that ran (successful or not)
+        long failed,            // tasks that threw an exception
+        long rejected,          // tasks refused because the queue was full
+        long deferredSteps      // steps that left tasks for later because the budget was used up
+) {}
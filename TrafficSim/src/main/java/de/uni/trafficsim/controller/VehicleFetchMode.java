@@ -0,0 +1,26 @@
+package de.uni.trafficsim.controller;
+
+/**
+ * Strategy used by the controller to read vehicle data from SUMO each step.
+ * <p>
+ * Both modes produce the same {@link de.uni.trafficsim.model.VehicleWrapper} data,
+ * so they can be switched at runtime to compare their cost.
+ */
+public enum VehicleFetchMode {
+    /** One TraCI call per variable and vehicle (original behaviour). */
+    PER_CALL,
+    /** Variable subscriptions, read as one batched result per step. */
+    SUBSCRIPTION;
+
+    /**
+     * Reads the mode from the {@code trafficsim.vehicleFetch} system property.
+     * <p>
+     * Accepts {@code per-call} or {@code subscription}; anything else falls back to subscriptions.
+     *
+     * @return configured fetch mode
+     */
+    public static VehicleFetchMode fromSystemProperty() {
+        String value = System.getProperty("trafficsim.vehicleFetch", "subscription");
+        return "per-call".equalsIgnoreCase(value) ? PER_CALL : SUBSCRIPTION;
+    }
+}
@@ -0,0 +1,107 @@
+package de.uni.trafficsim.controller;
+
+import de.uni.trafficsim.App;
+import de.uni.trafficsim.backend.SumoBackend;
+import de.uni.trafficsim.manager.VehicleManager;
+import de.uni.trafficsim.model.VehicleWrapper;
+
+import java.util.HashSet;
+import java.util.Set;
+
+
+/**
+ * Reads vehicle data from SUMO through TraCI variable subscriptions.
+ * <p>
+ * Vehicles are subscribed once when they depart; SUMO drops the subscription when they arrive.
+ * SUMO then delivers all subscribed values together with the step response, so a
+ * whole frame is read from one batched result instead of nine calls per vehicle.
+ * <p>
+ * Must only be used from the simulation thread.
+ */
+public class VehicleSubscriptionFetcher {
+    private final SumoBackend backend;
+
+    // IDs of all vehicles we currently hold a subscription for
+    private final Set<String> subscribed = new HashSet<>();
+    private boolean initialized = false;
+
+    /**
+     * Constructor.
+     *
+     * @param backend SUMO backend of the running simulation
+     */
+    public VehicleSubscriptionFetcher(SumoBackend backend) {
+        this.backend = backend;
+    }
+
+    /**
+     * Updates the subscriptions after a simulation step.
+     * <p>
+     * On first use every vehicle already in the simulation is subscribed, afterwards
+     * only the departed vehicles of the last step are added and arrived ones removed
+     * from the subscription set and the vehicle registry.
+     *
+     * @param manager vehicle registry
+     */
+    public void updateSubscriptions(VehicleManager manager) {
+        if (!initialized) {
+            for (String vid : backend.getVehicleIds()) {
+                subscribe(vid);
+            }
+            initialized = true;
+        }
+
+        // A vehicle can depart and arrive in the same step (short routes, teleports);
+        // SUMO no longer knows it, so it must not be subscribed
+        Set<String> arrived = new HashSet<>(backend.getArrivedVehicleIds());
+        for (String vid : backend.getDepartedVehicleIds()) {
+            if (!arrived.contains(vid)) {
+                subscribe(vid);
+            }
+        }
+        for (String vid : arrived) {
+            subscribed.remove(vid);         // SUMO drops subscriptions of arrived vehicles itself
+            manager.release(vid);
+        }
+    }
+
+    /**
+     * Updates the registry in place from the latest subscription results.
+     * <p>
+     * Wrappers are only created for vehicles that are new to the registry; vehicles
+     * without a result are released.
+     *
+     * @param manager vehicle registry to update
+     */
+    public void fetch(VehicleManager manager) {
+        manager.beginUpdate();
+        backend.readVehicleSubscriptions((id, x, y, angle, speed, length, routeId, typeId, roadId, co2, fuel, r, g, b) -> {
+            VehicleWrapper vehicle = manager.obtain(id);
+            vehicle.update(x, y, angle, speed, length, routeId, co2, fuel);
+            vehicle.updatePlacement(typeId, roadId);
+            vehicle.updateColor(r, g, b);
+        });
+        manager.endUpdate();
+    }
+
+    /**
+     * Drops all subscriptions, e.g. when switching back to per-call fetching.
+     */
+    public void clear() {
+        for (String vid : subscribed) {
+            try {
+                backend.unsubscribeVehicle(vid);
+            } catch (Exception e) {
+                App.logger.debug("Could not unsubscribe vehicle {}: {}", vid, e.getMessage());
+            }
+        }
+        subscribed.clear();
+        initialized = false;
+    }
+
+    private void subscribe(String vid) {
+        if (subscribed.add(vid)) {
+            backend.subscribeVehicle(vid);
+        }
+    }
+}
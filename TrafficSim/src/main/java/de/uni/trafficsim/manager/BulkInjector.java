@@ -0,0 +1,224 @@
+package de.uni.trafficsim.manager;
+
+import de.uni.trafficsim.App;
+import de.uni.trafficsim.backend.SumoBackend;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+
+/**
+ * Injects vehicles into SUMO according to an {@link InjectionPlan}.
+ * <p>
+ * Plans can be submitted or cancelled from any thread; the injection itself runs on
+ * the simulation thread, one batch per step. The batch size follows the configured
+ * rate (fractions are carried over to the next step) and is capped at
+ * {@link #MAX_PER_STEP}. Routes come from the {@link NetworkMetadataCache}, so no
+ * route list is fetched while injecting.
+ */
+public class BulkInjector {
+    /** Upper limit of vehicles injected in one step, also used for unlimited rates. */
+    public static final int MAX_PER_STEP = 2_000;
+    private static final String DEFAULT_TYPE = "DEFAULT_VEHTYPE";
+
+    private final NetworkMetadataCache metadata;
+    private final SumoBackend backend;
+    private final AtomicReference<InjectionPlan> requested = new AtomicReference<>();
+    private volatile boolean cancelRequested = false;
+    private volatile InjectionStats stats = InjectionStats.IDLE;
+
+    // Active plan, simulation thread only
+    private InjectionPlan plan;
+    private String[] routes;
+    private double[] routeCumulative;
+    private String[] types;
+    private double[] typeCumulative;
+    private Random random;
+    private double credit;              //vehicles due but not injected yet (fraction of the rate)
+    private int injected;
+    private int failed;
+    private int planCounter = 0;        //makes vehicle IDs unique across plans
+    private int batchSteps;
+    private long totalNanos;
+    private long maxNanos;
+
+    /**
+     * Constructor.
+     *
+     * @param metadata cache with the route IDs of the scenario
+     * @param backend SUMO backend the vehicles are added with
+     */
+    public BulkInjector(NetworkMetadataCache metadata, SumoBackend backend) {
+        this.metadata = metadata;
+        this.backend = backend;
+    }
+
+    /**
+     * Starts a new injection on the next step, replacing a running one.
+     * Can be called from any thread.
+     *
+     * @param plan injection to run
+     */
+    public void submit(InjectionPlan plan) {
+        cancelRequested = false;
+        requested.set(plan);
+    }
+
+    /**
+     * Stops the running injection on the next step. Can be called from any thread.
+     */
+    public void cancel() {
+        requested.set(null);
+        cancelRequested = true;
+    }
+
+    /**
+     * Returns the progress of the current or last injection. Can be called from any thread.
+     *
+     * @return injection statistics
+     */
+    public InjectionStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Drops any plan, e.g. when a new simulation run starts.
+     */
+    public void reset() {
+        requested.set(null);
+        cancelRequested = false;
+        plan = null;
+        stats = InjectionStats.IDLE;
+    }
+
+    /**
+     * Injects the vehicles due in this step. Must be called from the simulation thread.
+     *
+     * @param stepLengthSec simulated seconds per step
+     * @return number of vehicles injected in this step
+     */
+    public int step(double stepLengthSec) {
+        InjectionPlan next = requested.getAndSet(null);
+        if (next != null) {
+            activate(next);
+        } else if (cancelRequested && plan != null) {
+            cancelRequested = false;
+            finish("cancelled");
+            return 0;
+        }
+        if (plan == null) return 0;
+
+        // Vehicles due in this step
+        credit += Double.isInfinite(plan.ratePerSec()) ? MAX_PER_STEP : plan.ratePerSec() * stepLengthSec;
+        int remaining = plan.targetCount() - injected - failed;
+        int count = (int) Math.min(Math.min(Math.floor(credit), MAX_PER_STEP), remaining);
+        if (count <= 0) return 0;
+        credit -= count;
+
+        long start = System.nanoTime();
+        int done = 0;
+        String departLane = plan.departLane().getSumoValue();
+        String departPos = plan.departPos();
+        for (int k = 0; k < count; k++) {
+            String vehId = plan.idPrefix() + "_" + planCounter + "_" + (injected + failed);
+            String route = pick(routes, routeCumulative);
+            String type = pick(types, typeCumulative);
+            try {
+                backend.addVehicle(vehId, route, type, departLane, departPos);
+                injected++;
+                done++;
+            } catch (Exception e) {
+                failed++;
+                if (failed == 1) {
+                    App.logger.error("Failed to inject vehicle {} on route {}\nError message: {}", vehId, route, e.getMessage());
+                }
+            }
+        }
+        long nanos = System.nanoTime() - start;
+        batchSteps++;
+        totalNanos += nanos;
+        maxNanos = Math.max(maxNanos, nanos);
+        stats = new InjectionStats(true, plan.targetCount(), injected, failed, done,
+                nanos / 1e6, maxNanos / 1e6, totalNanos / 1e6 / batchSteps);
+
+        if (injected + failed >= plan.targetCount()) {
+            finish("finished");
+        }
+        return done;
+    }
+
+    // Prepares the samplers of a new plan
+    private void activate(InjectionPlan next) {
+        if (plan != null) {
+            finish("replaced");
+        }
+        Map<String, Double> routeWeights = next.routeWeights();
+        if (routeWeights.isEmpty()) {
+            List<String> all = metadata.getRoutes();
+            routes = all.toArray(new String[0]);
+            routeCumulative = null;                     //uniform
+        } else {
+            routes = routeWeights.keySet().toArray(new String[0]);
+            routeCumulative = cumulative(routeWeights);
+        }
+        if (next.typeWeights().isEmpty()) {
+            types = new String[]{DEFAULT_TYPE};
+            typeCumulative = null;
+        } else {
+            types = next.typeWeights().keySet().toArray(new String[0]);
+            typeCumulative = cumulative(next.typeWeights());
+        }
+        if (routes.length == 0) {
+            App.logger.error("Bulk injection ignored: no routes available");
+            return;
+        }
+
+        plan = next;
+        planCounter++;
+        random = new Random(next.seed());
+        credit = 0.0;
+        injected = 0;
+        failed = 0;
+        batchSteps = 0;
+        totalNanos = 0;
+        maxNanos = 0;
+        stats = new InjectionStats(true, next.targetCount(), 0, 0, 0, 0.0, 0.0, 0.0);
+        App.logger.info("Bulk injection started: {} vehicles at {} veh/s over {} routes",
+                next.targetCount(), next.ratePerSec(), routes.length);
+    }
+
+    private void finish(String reason) {
+        stats = new InjectionStats(false, plan.targetCount(), injected, failed, stats.lastStepCount(),
+                stats.lastStepMillis(), stats.maxStepMillis(), stats.avgStepMillis());
+        App.logger.info("Bulk injection {}: {} injected, {} failed, avg {} ms / max {} ms per step",
+                reason, injected, failed,
+                String.format("%.2f", stats.avgStepMillis()), String.format("%.2f", stats.maxStepMillis()));
+        plan = null;
+    }
+
+    // Picks an entry, uniform if no cumulative weights are given
+    private String pick(String[] values, double[] cumulative) {
+        if (values.length == 1) return values[0];
+        if (cumulative == null) return values[random.nextInt(values.length)];
+        double r = random.nextDouble() * cumulative[cumulative.length - 1];
+        int i = Arrays.binarySearch(cumulative, r);
+        if (i < 0) i = -i - 1;
+        // skip entries with weight 0 that share the same cumulative value
+        while (i < values.length - 1 && cumulative[i] <= r) i++;
+        return values[i];
+    }
+
+    private static double[] cumulative(Map<String, Double> weights) {
+        double[] result = new double[weights.size()];
+        double sum = 0;
+        int i = 0;
+        for (double w : weights.values()) {
+            sum += w;
+            result[i++] = sum;
+        }
+        return result;     //positive sum is checked by InjectionPlan
+    }
+}
@@ -0,0 +1,27 @@
+package de.uni.trafficsim.manager;
+
+/**
+ * Lane a bulk injected vehicle departs on, as understood by SUMO's {@code departLane}.
+ */
+public enum DepartLanePolicy {
+    /** Lane that is best for continuing the route (original stress test behaviour). */
+    BEST("best"),
+    /** Rightmost lane the vehicle may use. */
+    FIRST("first"),
+    /** Random lane among the allowed ones. */
+    RANDOM("random"),
+    /** Least occupied lane. */
+    FREE("free"),
+    /** Least occupied lane among the allowed ones. */
+    ALLOWED("allowed");
+
+    private final String sumoValue;
+
+    DepartLanePolicy(String sumoValue) {
+        this.sumoValue = sumoValue;
+    }
+
+    public String getSumoValue() {
+        return sumoValue;
+    }
+}
@@ -0,0 +1,73 @@
+package de.uni.trafficsim.manager;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * Description of a bulk vehicle injection.
+ * <p>
+ * Routes and types are picked at random according to their weights. An empty route
+ * map uses all routes of the scenario with equal weight, an empty type map uses
+ * SUMO's default vehicle type.
+ */
+public record InjectionPlan(
+        int targetCount,                        // vehicles to inject in total
+        double ratePerSec,                      // vehicles per simulated second, infinity for as fast as possible
+        Map<String, Double> routeWeights,       // route ID -> relative weight
+        Map<String, Double> typeWeights,        // vehicle type ID -> relative weight
+        DepartLanePolicy departLane,
+        String departPos,                       // SUMO departPos value, "0" is the start of the first edge
+        String idPrefix,                        // prefix of the generated vehicle IDs
+        long seed                               // seed for route and type selection, for repeatable runs
+) {
+    public InjectionPlan {
+        if (targetCount <= 0) throw new IllegalArgumentException("targetCount must be positive");
+        if (!(ratePerSec > 0)) throw new IllegalArgumentException("ratePerSec must be positive");
+        if (departLane == null) throw new IllegalArgumentException("departLane must not be null");
+        if (departPos == null || departPos.isEmpty()) throw new IllegalArgumentException("departPos must not be empty");
+        if (idPrefix == null || idPrefix.isEmpty()) throw new IllegalArgumentException("idPrefix must not be empty");
+        routeWeights = copyWeights(routeWeights, "route");
+        typeWeights = copyWeights(typeWeights, "type");
+    }
+
+    /**
+     * Creates a plan with equal weights for all routes and the default vehicle type.
+     *
+     * @param targetCount vehicles to inject in total
+     * @param ratePerSec vehicles per simulated second
+     * @return injection plan
+     */
+    public static InjectionPlan uniform(int targetCount, double ratePerSec) {
+        return new InjectionPlan(targetCount, ratePerSec, Map.of(), Map.of(),
+                DepartLanePolicy.BEST, "0", "bulkVeh", System.nanoTime());
+    }
+
+    /**
+     * The plan behind the stress test button: 100 vehicles, one per 0.1 s step, departing
+     * at the start of their route's first edge like the original stress test.
+     *
+     * @return stress test plan
+     */
+    public static InjectionPlan stressTest() {
+        return new InjectionPlan(100, 10.0, Map.of(), Map.of(),
+                DepartLanePolicy.BEST, "0", "stressVeh", System.nanoTime());
+    }
+
+    // Keeps the given order, so a seed always gives the same selection
+    private static Map<String, Double> copyWeights(Map<String, Double> weights, String what) {
+        if (weights == null) return Map.of();
+        double sum = 0;
+        for (Map.Entry<String, Double> e : weights.entrySet()) {
+            if (e.getValue() == null || !(e.getValue() >= 0) || e.getValue().isInfinite()) {
+                throw new IllegalArgumentException("invalid " + what + " weight for " + e.getKey());
+            }
+            sum += e.getValue();
+        }
+        if (!weights.isEmpty() && !(sum > 0)) {
+            throw new IllegalArgumentException("at least one " + what + " weight must be positive");
+        }
+        return Collections.unmodifiableMap(new LinkedHashMap<>(weights));
+    }
+}
@@ -0,0 +1,17 @@
+package de.uni.trafficsim.manager;
+
+/**
+ * Progress and cost of the current or last bulk injection.
+ */
+public record InjectionStats(
+        boolean active,             // injection still running
+        int targetCount,            // vehicles requested
+        int injected,               // vehicles handed to SUMO
+        int failed,                 // Vehicle.add calls that failed
+        int lastStepCount,          // vehicles injected in the last step
+        double lastStepMillis,      // injection time of the last step
+        double maxStepMillis,       // longest injection time of one step
+        double avgStepMillis        // average injection time per step
+) {
+    public static final InjectionStats IDLE = new InjectionStats(false, 0, 0, 0, 0, 0.0, 0.0, 0.0);
+}
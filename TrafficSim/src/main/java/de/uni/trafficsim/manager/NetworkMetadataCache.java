@@ -0,0 +1,101 @@
+package de.uni.trafficsim.manager;
+
+import de.uni.trafficsim.App;
+import de.uni.trafficsim.backend.SumoBackend;
+
+import java.util.List;
+
+
+/**
+ * Cache for static network metadata: the route and vehicle type IDs known to SUMO.
+ * <p>
+ * The lists are loaded once when a run starts and only reloaded after they were
+ * invalidated, e.g. when a new vehicle type was created. Loading talks to TraCI and
+ * must happen on the simulation thread; the lists themselves are immutable and can
+ * be read from any thread, e.g. by the dialogs on the EDT.
+ */
+public class NetworkMetadataCache {
+    private final SumoBackend backend;
+    private volatile List<String> routes = List.of();
+    private volatile List<String> types = List.of();
+    private volatile boolean routesStale = false;
+    private volatile boolean typesStale = false;
+
+    /**
+     * Constructor.
+     *
+     * @param backend SUMO backend the IDs are loaded from
+     */
+    public NetworkMetadataCache(SumoBackend backend) {
+        this.backend = backend;
+    }
+
+    /**
+     * Loads route and vehicle type IDs from SUMO.
+     * Must be called from the simulation thread.
+     */
+    public void load() {
+        routes = List.copyOf(backend.getRouteIds());
+        types = List.copyOf(backend.getVehicleTypeIds());
+        routesStale = false;
+        typesStale = false;
+        App.logger.info("Cached {} routes and {} vehicle types", routes.size(), types.size());
+    }
+
+    /**
+     * Reloads the lists that were invalidated since the last load.
+     * Must be called from the simulation thread.
+     */
+    public void refreshIfStale() {
+        if (routesStale) {
+            routesStale = false;
+            routes = List.copyOf(backend.getRouteIds());
+        }
+        if (typesStale) {
+            typesStale = false;
+            types = List.copyOf(backend.getVehicleTypeIds());
+        }
+    }
+
+    /**
+     * Marks the route list as outdated, e.g. after a route was added.
+     */
+    public void invalidateRoutes() {
+        routesStale = true;
+    }
+
+    /**
+     * Marks the vehicle type list as outdated, e.g. after a type was added.
+     */
+    public void invalidateTypes() {
+        typesStale = true;
+    }
+
+    /**
+     * Drops all cached IDs, e.g. when the simulation is closed.
+     */
+    public void clear() {
+        routes = List.of();
+        types = List.of();
+        routesStale = false;
+        typesStale = false;
+    }
+
+    /**
+     * Returns the cached route IDs.
+     *
+     * @return immutable list of route IDs, empty if nothing was loaded yet
+     */
+    public List<String> getRoutes() {
+        return routes;
+    }
+
+    /**
+     * Returns the cached vehicle type IDs.
+     *
+     * @return immutable list of vehicle type IDs, empty if nothing was loaded yet
+     */
+    public List<String> getTypes() {
+        return types;
+    }
+}
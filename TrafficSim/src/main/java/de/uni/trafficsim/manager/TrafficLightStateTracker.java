@@ -0,0 +1,194 @@
+package de.uni.trafficsim.manager;
+
+import de.uni.trafficsim.backend.SumoBackend;
+import de.uni.trafficsim.model.RoadNetwork;
+import de.uni.trafficsim.model.SpatialGrid;
+import de.uni.trafficsim.model.TrafficLight.TrafficLightWrapper;
+
+import java.awt.geom.Rectangle2D;
+import java.util.*;
+
+
+/**
+ * Keeps track of the signal states of all traffic lights.
+ * <p>
+ * Instead of reading every state string each step, the tracker remembers the next
+ * switch time of every traffic light system (TLS) and only asks SUMO again when that
+ * time is reached, when a manual change was queued for it, or after at most
+ * {@link #MAX_STATE_AGE_SEC}, which covers actuated programs that may switch early.
+ * <p>
+ * The signal wrappers are created once and their state is updated in place. For every
+ * step the tracker provides one compact state array per TLS; an array is replaced, never
+ * modified, when the state changes, so frames can share them with the renderer.
+ * All methods except {@link #invalidate(String)} must be called from the simulation thread.
+ */
+public class TrafficLightStateTracker {
+    /** Maximum simulated time a state is reused without asking SUMO. */
+    public static final double MAX_STATE_AGE_SEC = 1.0;
+    private static final double EPS = 1e-6;
+
+    private final SumoBackend backend;
+    private final String[] tlsIds;
+    private final Map<String, Integer> indexById = new HashMap<>();
+    private final List<TrafficLightWrapper> signals;               //persistent wrappers, one per signal
+    private final TrafficLightWrapper[][] signalsByTls;
+    private final SpatialGrid signalIndex;                         //positions of the signals, for culling and clicks
+    private final char[][] states;                                 //current state per TLS, copy on write
+    private final double[] nextSwitch;
+    private final double[] lastQuery;
+    private final boolean[] dirty;                                 //manual change queued
+    private final Set<String> pendingInvalidations = new HashSet<>();
+
+    /**
+     * Constructor.
+     * Creates the persistent signal wrappers for all traffic lights with stop-line positions.
+     *
+     * @param roadNetwork loaded road network with the stop-line positions
+     * @param backend SUMO backend the states are read from
+     */
+    public TrafficLightStateTracker(RoadNetwork roadNetwork, SumoBackend backend) {
+        this.backend = backend;
+        List<String> ids = new ArrayList<>();
+        List<TrafficLightWrapper[]> perTls = new ArrayList<>();
+        List<TrafficLightWrapper> all = new ArrayList<>();
+        for (String tid : backend.getTrafficLightIds()) {
+            List<RoadNetwork.SignalData> positions = roadNetwork.getTlsStopLines().get(tid);
+            if (positions == null) continue;
+
+            String state = backend.getTrafficLightState(tid);
+            // Zip the state string with the positions
+            int count = Math.min(state.length(), positions.size());
+            TrafficLightWrapper[] wrappers = new TrafficLightWrapper[count];
+            for (int k = 0; k < count; k++) {
+                RoadNetwork.SignalData sd = positions.get(k);
+                wrappers[k] = new TrafficLightWrapper(tid, sd.pos, sd.angle, ids.size(), k, state.charAt(k));
+                all.add(wrappers[k]);
+            }
+            indexById.put(tid, ids.size());
+            ids.add(tid);
+            perTls.add(wrappers);
+        }
+
+        tlsIds = ids.toArray(new String[0]);
+        signalsByTls = perTls.toArray(new TrafficLightWrapper[0][]);
+        signals = Collections.unmodifiableList(all);
+        signalIndex = indexSignals(signals);
+        states = new char[tlsIds.length][];
+        nextSwitch = new double[tlsIds.length];
+        lastQuery = new double[tlsIds.length];
+        dirty = new boolean[tlsIds.length];
+        Arrays.fill(dirty, true);                                  //read everything on the first update
+    }
+
+    /**
+     * Builds a spatial index over signal positions, e.g. for culling and clicks.
+     *
+     * @param signals signal wrappers
+     * @return index over the signals, indexed like the list
+     */
+    public static SpatialGrid indexSignals(List<TrafficLightWrapper> signals) {
+        Rectangle2D[] bounds = new Rectangle2D[signals.size()];
+        for (int i = 0; i < bounds.length; i++) {
+            TrafficLightWrapper w = signals.get(i);
+            // a signal is drawn as a 1.5 m bar, one meter around the position covers it
+            bounds[i] = new Rectangle2D.Double(w.getPosition().getX() - 1, w.getPosition().getY() - 1, 2, 2);
+        }
+        return new SpatialGrid(bounds, 50.0);
+    }
+
+    /**
+     * Marks a traffic light as changed, e.g. after a manual switch or a new program.
+     * Can be called from any thread; the state is read again on the next update.
+     *
+     * @param tlsId traffic light system ID
+     */
+    public void invalidate(String tlsId) {
+        synchronized (pendingInvalidations) {
+            pendingInvalidations.add(tlsId);
+        }
+    }
+
+    /**
+     * Reads the state of every traffic light whose state may have changed.
+     *
+     * @param time current simulation time in seconds
+     * @return number of traffic lights that were read from SUMO
+     */
+    public int update(double time) {
+        applyInvalidations();
+        int queried = 0;
+        for (int i = 0; i < tlsIds.length; i++) {
+            if (!dirty[i] && time + EPS < nextSwitch[i] && time - lastQuery[i] < MAX_STATE_AGE_SEC) {
+                continue;
+            }
+            String tid = tlsIds[i];
+            String state = backend.getTrafficLightState(tid);
+            nextSwitch[i] = backend.getNextSwitch(tid);
+            lastQuery[i] = time;
+            dirty[i] = false;
+            queried++;
+
+            if (!sameState(states[i], state)) {
+                states[i] = state.toCharArray();
+                TrafficLightWrapper[] wrappers = signalsByTls[i];
+                for (int k = 0; k < wrappers.length && k < state.length(); k++) {
+                    wrappers[k].setState(state.charAt(k));
+                }
+            }
+        }
+        return queried;
+    }
+
+    // Compares a stored state array with a state string without allocating
+    private static boolean sameState(char[] stored, String state) {
+        if (stored == null || stored.length != state.length()) return false;
+        for (int k = 0; k < stored.length; k++) {
+            if (stored[k] != state.charAt(k)) return false;
+        }
+        return true;
+    }
+
+    // Moves invalidations from other threads into the dirty flags
+    private void applyInvalidations() {
+        synchronized (pendingInvalidations) {
+            for (String tid : pendingInvalidations) {
+                Integer idx = indexById.get(tid);
+                if (idx != null) dirty[idx] = true;
+            }
+            pendingInvalidations.clear();
+        }
+    }
+
+    /**
+     * Returns the current state arrays, indexed by {@link TrafficLightWrapper#getTlsIndex()}.
+     * <p>
+     * The returned outer array is a fresh copy; the inner arrays must not be modified.
+     *
+     * @return one state array per traffic light system
+     */
+    public char[][] snapshotStates() {
+        return states.clone();
+    }
+
+    /**
+     * Returns all signal wrappers.
+     *
+     * @return unmodifiable list of the persistent signal wrappers
+     */
+    public List<TrafficLightWrapper> getSignals() {
+        return signals;
+    }
+
+    /**
+     * Returns the spatial index over the signals, indexed like {@link #getSignals()}.
+     *
+     * @return signal index
+     */
+    public SpatialGrid getSignalIndex() {
+        return signalIndex;
+    }
+
+    public int getTlsCount() {
+        return tlsIds.length;
+    }
+}
@@ -1,11 +1,13 @@
 package de.uni.trafficsim.manager;
 
 import de.uni.trafficsim.App;
+import de.uni.trafficsim.backend.SumoBackend;
+import de.uni.trafficsim.model.VehicleSnapshot;
 import de.uni.trafficsim.model.VehicleWrapper;         //import Vehicle class
-import org.eclipse.sumo.libtraci.Vehicle;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReference;
 
 
 /*
@@ -17,57 +19,217 @@ add method getAllVehicles, that returns the whole map of ids and vehicle object
 
 
 /**
- * Manages vehicle wrappers for the current simulation frame.
- * Holds all vehicle wrappers that are currently relevant for the simulation.
- * Manager itself does not talk to TraCI, that work is handled by the vehicle instances.
+ * Registry of all vehicles currently in the simulation.
+ * Holds one persistent vehicle wrapper per vehicle ID, which is updated in place every step.
+ * Wrappers are only created when a vehicle departs and are pooled again when it arrives.
+ * Manager itself does not talk to TraCI, that work is handled by the fetchers.
  * <p>
- * Provides methods to store vehicles and inject new ones into SUMO.
+ * The live registry is owned by the simulation thread. For rendering, the manager
+ * publishes a {@link VehicleSnapshot} per step through a small pool of buffers, so a
+ * reader always sees a consistent step while the next one is being written. A published
+ * buffer is either taken by one reader, who hands it back when done, or reused once a
+ * newer step replaces it.
+ * <p>
+ * Also provides a method to inject new vehicles into SUMO.
  */
 public class VehicleManager {
-    
-    // List with all Vehicles in simulation
+    private static final int MAX_POOLED = 1024;
+
+    // List with all Vehicles in simulation (live data, simulation thread only)
     private final List<VehicleWrapper> vehicles = new ArrayList<>();
+    private final Map<String, VehicleWrapper> registry = new HashMap<>();
+    private final ArrayDeque<VehicleWrapper> pool = new ArrayDeque<>();     //released wrappers for reuse
+    private long generation = 0;                                             //current update round
+
+    // Snapshot buffers: ready holds the latest published one until a reader takes it, taken buffers
+    // come back through freeSnapshots. A buffer is never written while a reader holds it.
+    private final ConcurrentLinkedQueue<VehicleSnapshot> freeSnapshots = new ConcurrentLinkedQueue<>();
+    private final AtomicReference<VehicleSnapshot> ready = new AtomicReference<>();
+    private VehicleSnapshot front = new VehicleSnapshot();      //held by acquireSnapshot()
+    private long publishCount = 0;
 
     /**
      * Injects a vehicle into the SUMO simulation.
      *
+     * @param backend SUMO backend of the running simulation
      * @param vehicle vehicle wrapper to add
      * @param typeId SUMO vehicle type ID
      * @throws IllegalArgumentException if vehicle is null
      */
-    public void addVehicleToSimulation(VehicleWrapper vehicle, String typeId) {
+    public void addVehicleToSimulation(SumoBackend backend, VehicleWrapper vehicle, String typeId) {
         // makes sure input can`t be NULL
         if (vehicle == null) {
             throw new IllegalArgumentException("vehicle must not be null");
         }
-        // libtraci Vehicle`s methods called
-        Vehicle.add(vehicle.getId(), vehicle.getRoute(), typeId, "now", "first", "base", "0");
-        Vehicle.setColor(vehicle.getId(), vehicle.getTraCIColor());
+        // SUMO backend`s vehicle methods called
+        backend.addVehicle(vehicle.getId(), vehicle.getRoute(), typeId, "first", "base");
+        backend.setVehicleColor(vehicle.getId(), vehicle.getColor());
         App.logger.info("Injected vehicle {} on route {}", vehicle.getId(), vehicle.getRoute());
     }
 
     /**
-     * Adds a vehicle wrapper to the local list.
+     * Starts a new update round; vehicles not obtained until {@link #endUpdate()} are released.
+     */
+    public void beginUpdate() {
+        generation++;
+    }
+
+    /**
+     * Returns the wrapper of a vehicle, creating (or reusing a pooled) one for new vehicles.
+     * <p>
+     * Marks the vehicle as present in the current update round.
+     *
+     * @param id vehicle ID
+     * @return persistent wrapper of the vehicle
+     */
+    public VehicleWrapper obtain(String id) {
+        VehicleWrapper v = registry.get(id);
+        if (v == null) {
+            v = pool.pollFirst();
+            if (v == null) {
+                v = new VehicleWrapper(id);
+            } else {
+                v.reset(id);
+            }
+            registry.put(id, v);
+            v.setSlot(vehicles.size());
+            vehicles.add(v);
+        }
+        v.markSeen(generation);
+        return v;
+    }
+
+    /**
+     * Ends the update round and releases all vehicles that were not obtained in it.
+     */
+    public void endUpdate() {
+        int kept = 0;
+        for (int i = 0; i < vehicles.size(); i++) {
+            VehicleWrapper v = vehicles.get(i);
+            if (v.getLastSeen() == generation) {
+                v.setSlot(kept);
+                vehicles.set(kept++, v);
+            } else {
+                registry.remove(v.getId());
+                recycle(v);
+            }
+        }
+        vehicles.subList(kept, vehicles.size()).clear();
+    }
+
+    /**
+     * Adds a vehicle wrapper to the registry.
      *
      * @param vehicle vehicle to store
      */
     public void addVehicle(VehicleWrapper vehicle) {
-        vehicles.add(vehicle);
+        if (registry.putIfAbsent(vehicle.getId(), vehicle) == null) {
+            vehicle.setSlot(vehicles.size());
+            vehicles.add(vehicle);
+        }
+        vehicle.markSeen(generation);
     }
 
+    /**
+     * Returns the live vehicle wrappers.
+     * <p>
+     * Only valid on the simulation thread; other threads use {@link #acquireSnapshot()}.
+     *
+     * @return vehicles currently in the simulation
+     */
     public List<VehicleWrapper> getVehicles() {
         return vehicles;
     }
 
     /**
-     * Removes a vehicle wrapper from the local list.
+     * Removes a vehicle (e.g. on arrival) and returns its wrapper to the pool.
+     *
+     * @param id vehicle ID
+     * @return true if the vehicle was present and removed
+     */
+    public boolean release(String id) {
+        VehicleWrapper v = registry.remove(id);
+        if (v == null) return false;
+        // swap-remove: the last vehicle takes the free slot, O(1) instead of searching the list
+        int slot = v.getSlot();
+        VehicleWrapper last = vehicles.remove(vehicles.size() - 1);
+        if (last != v) {
+            vehicles.set(slot, last);
+            last.setSlot(slot);
+        }
+        recycle(v);
+        return true;
+    }
+
+    /**
+     * Removes a vehicle wrapper from the registry.
      *
      * @param vehicle vehicle to remove
      * @return true if the vehicle was present and removed
      */
     public boolean removeVehicle(VehicleWrapper vehicle) {
-        //calls Java-Map method vehicles.remove() to remove entry from the list
-        return vehicles.remove(vehicle);
+        return release(vehicle.getId());
+    }
+
+    /**
+     * Copies the live vehicle data into a snapshot buffer and publishes it.
+     * <p>
+     * Called by the simulation thread once per step. A previous snapshot that no reader
+     * took is reused.
+     *
+     * @param time simulation time of the step
+     */
+    public void publish(double time) {
+        VehicleSnapshot next = freeSnapshots.poll();
+        if (next == null) next = new VehicleSnapshot();
+        next.fill(vehicles, ++publishCount, time);
+        VehicleSnapshot skipped = ready.getAndSet(next);
+        if (skipped != null) freeSnapshots.offer(skipped);
+    }
+
+    /**
+     * Takes the most recently published snapshot.
+     * <p>
+     * The caller owns the buffer until it passes it to {@link #releaseSnapshot(VehicleSnapshot)};
+     * the manager does not write it in the meantime, so it can be handed to another thread.
+     *
+     * @return latest snapshot, or null if none was published since the last take
+     */
+    public VehicleSnapshot takeSnapshot() {
+        return ready.getAndSet(null);
     }
 
+    /**
+     * Gives a taken snapshot back for reuse.
+     *
+     * @param snapshot buffer from {@link #takeSnapshot()}, ignored if null
+     */
+    public void releaseSnapshot(VehicleSnapshot snapshot) {
+        if (snapshot != null) freeSnapshots.offer(snapshot);
+    }
+
+    /**
+     * Returns the most recently published snapshot.
+     * <p>
+     * Meant for a single reader thread that keeps no other snapshot of this manager (e.g. the EDT
+     * during replay). The returned buffer stays unchanged until the next call of this method.
+     *
+     * @return latest complete vehicle snapshot
+     */
+    public VehicleSnapshot acquireSnapshot() {
+        VehicleSnapshot next = takeSnapshot();
+        if (next != null) {
+            releaseSnapshot(front);
+            front = next;
+        }
+        return front;
+    }
+
+    private void recycle(VehicleWrapper v) {
+        v.markSeen(-1);
+        v.setSlot(-1);
+        if (pool.size() < MAX_POOLED) {
+            pool.addLast(v);
+        }
+    }
 }
@@ -0,0 +1,124 @@
+package de.uni.trafficsim.model;
+
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.util.List;
+
+
+/**
+ * Center lines and widths of all lanes of a network, packed into flat arrays.
+ * <p>
+ * Lane i has the points {@code (x(i, k), y(i, k))} for k in 0..pointCount(i)-1; the
+ * coordinates of all lanes are stored in one {@code float[]}, so a network needs a few
+ * arrays instead of one outline object per lane. Single precision keeps network coordinates
+ * to within millimeters, which is plenty for drawing. Lanes are stroked with their width when
+ * drawn. Instances are immutable and can be shared between threads.
+ */
+public final class LaneGeometry {
+    /** Geometry without any lanes. */
+    public static final LaneGeometry EMPTY = new LaneGeometry(List.of(), List.of(), new double[0]);
+
+    private final String[] ids;
+    private final int[] start;              //first coordinate of each lane in coords, size() + 1 entries
+    private final float[] coords;           //x0, y0, x1, y1, ... of all lanes
+    private final float[] widths;
+
+    /**
+     * Constructor.
+     * Copies the shapes into the packed array, in single precision.
+     *
+     * @param ids lane IDs
+     * @param shapes center line of every lane as x0, y0, x1, y1, ...
+     * @param widths width of every lane in meters
+     * @throws IllegalArgumentException if the sizes differ
+     */
+    public LaneGeometry(List<String> ids, List<double[]> shapes, double[] widths) {
+        int n = ids.size();
+        if (shapes.size() != n || widths.length != n) {
+            throw new IllegalArgumentException("ids, shapes and widths must have the same size");
+        }
+        this.ids = ids.toArray(new String[0]);
+        this.start = new int[n + 1];
+        this.widths = new float[n];
+        int total = 0;
+        for (int i = 0; i < n; i++) {
+            start[i] = total;
+            total += shapes.get(i).length & ~1;     //an odd trailing value is not a point
+            this.widths[i] = (float) widths[i];
+        }
+        start[n] = total;
+        this.coords = new float[total];
+        for (int i = 0; i < n; i++) {
+            double[] shape = shapes.get(i);
+            for (int c = start[i]; c < start[i + 1]; c++) {
+                coords[c] = (float) shape[c - start[i]];
+            }
+        }
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    public String id(int lane) {
+        return ids[lane];
+    }
+
+    public float width(int lane) {
+        return widths[lane];
+    }
+
+    public int pointCount(int lane) {
+        return (start[lane + 1] - start[lane]) / 2;
+    }
+
+    public double x(int lane, int point) {
+        return coords[start[lane] + 2 * point];
+    }
+
+    public double y(int lane, int point) {
+        return coords[start[lane] + 2 * point + 1];
+    }
+
+    /**
+     * Returns the area covered by a stroked lane: the bounds of its center line, grown by the width.
+     *
+     * @param lane lane index
+     * @return bounds in world coordinates, or null for a lane without points
+     */
+    public Rectangle2D bounds(int lane) {
+        int from = start[lane], to = start[lane + 1];
+        if (from == to) return null;
+        double x0 = Double.POSITIVE_INFINITY, y0 = Double.POSITIVE_INFINITY;
+        double x1 = Double.NEGATIVE_INFINITY, y1 = Double.NEGATIVE_INFINITY;
+        for (int c = from; c < to; c += 2) {
+            x0 = Math.min(x0, coords[c]);
+            x1 = Math.max(x1, coords[c]);
+            y0 = Math.min(y0, coords[c + 1]);
+            y1 = Math.max(y1, coords[c + 1]);
+        }
+        double margin = widths[lane];          //covers square caps and miter joins of moderate angles
+        return new Rectangle2D.Double(x0 - margin, y0 - margin, x1 - x0 + 2 * margin, y1 - y0 + 2 * margin);
+    }
+
+    /**
+     * Appends the center line of a lane to a path, mapped to screen coordinates.
+     * <p>
+     * Screen x is {@code offsetX + x * scale}, screen y is {@code offsetY - y * scale} (Y-Axis flipped),
+     * the same transform the visualization uses.
+     *
+     * @param lane lane index
+     * @param path path to append to
+     * @param scale pixels per meter
+     * @param offsetX screen x of the world origin
+     * @param offsetY screen y of the world origin
+     */
+    public void appendTo(int lane, Path2D path, double scale, double offsetX, double offsetY) {
+        int from = start[lane], to = start[lane + 1];
+        if (from == to) return;
+        path.moveTo(offsetX + coords[from] * scale, offsetY - coords[from + 1] * scale);
+        for (int c = from + 2; c < to; c += 2) {
+            path.lineTo(offsetX + coords[c] * scale, offsetY - coords[c + 1] * scale);
+        }
+    }
+}
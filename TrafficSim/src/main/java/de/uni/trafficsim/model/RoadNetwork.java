@@ -1,153 +1,193 @@
 package de.uni.trafficsim.model;
 
 import de.uni.trafficsim.App;
-import org.eclipse.sumo.libtraci.*;
+import de.uni.trafficsim.backend.SumoBackend;
+import de.uni.trafficsim.network.NetworkGeometry;
 
-import java.awt.*;
-import java.awt.geom.Path2D;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 
 
 /**
- * Loads and stores static road and traffic light geometry from SUMO.
+ * Loads and stores static road and traffic light geometry, from SUMO or parsed from the network file.
  * <p>
- * Provides lane shapes for drawing and stop-line positions for traffic lights.
+ * Provides lane center lines and widths for drawing and stop-line positions for traffic lights.
  */
 public class RoadNetwork {
     public static class SignalData {
-        public TraCIPosition pos;
+        public Point2D pos;
         public double angle;
-        public SignalData(TraCIPosition p, double a) { pos=p; angle=a; }
+        public SignalData(Point2D p, double a) { pos=p; angle=a; }
     }
 
-    // Map of Lane ID -> Java Shape object
-    private final Map<String, Shape> laneShapes = new HashMap<>();
+    // Lane center lines and widths, stroked when drawn
+    private LaneGeometry lanes = LaneGeometry.EMPTY;
     // Map: TLS_ID -> List of Stop Line Positions (one per controlled lane index)
     private final Map<String, List<SignalData>> tlsStopLines = new HashMap<>();
+    // Spatial index over the lane bounds, for viewport culling
+    private static final double LANE_CELL_SIZE = 100.0;
+    private SpatialGrid laneIndex = new SpatialGrid(new Rectangle2D[0], LANE_CELL_SIZE);
 
-    public Map<String, Shape> getLaneShapes() {
-        return laneShapes;
+    public LaneGeometry getLanes() {
+        return lanes;
     }
 
     public Map<String, List<SignalData>> getTlsStopLines() {
         return tlsStopLines;
     }
 
+    /**
+     * Returns the spatial index over the lanes; its object indices are lane indices of {@link #getLanes()}.
+     *
+     * @return lane index
+     */
+    public SpatialGrid getLaneIndex() {
+        return laneIndex;
+    }
+
+    /**
+     * Replaces the lanes and builds the spatial index over them.
+     *
+     * @param lanes lane center lines and widths
+     */
+    public void setLanes(LaneGeometry lanes) {
+        Rectangle2D[] bounds = new Rectangle2D[lanes.size()];
+        for (int i = 0; i < bounds.length; i++) {
+            bounds[i] = lanes.bounds(i);
+        }
+        this.laneIndex = new SpatialGrid(bounds, LANE_CELL_SIZE);
+        this.lanes = lanes;
+    }
+
     /**
      * Loads static road and traffic light geometry from SUMO.
      * <p>
      * Populates lane shapes and traffic light stop-line positions.
+     *
+     * @param backend SUMO backend of the running simulation
      */
-    public void loadFromSumo() {
+    public void loadFromSumo(SumoBackend backend) {
         // 1. Load Lane Geometries
-        loadLanes();
+        loadLanes(backend);
 
         // 2. Load Traffic Light Geometries
-        loadTrafficLights();
+        loadTrafficLights(backend);
     }
 
-    // Reads all lane IDs from SUMO and converts each lanes shape into a Java Path
-    private void loadLanes() {
+    /**
+     * Loads static road and traffic light geometry parsed from the network file.
+     * <p>
+     * Same result as {@link #loadFromSumo(SumoBackend)}, without a call to SUMO per lane.
+     *
+     * @param geometry geometry of the network the simulation runs on
+     */
+    public void loadFromGeometry(NetworkGeometry geometry) {
+        setLanes(new LaneGeometry(Arrays.asList(geometry.laneIds()), Arrays.asList(geometry.laneShapes()),
+                geometry.laneWidths()));
+        App.logger.info("Loaded {} lanes from the network file.", lanes.size());
+
+        Map<String, double[]> shapesById = new HashMap<>(geometry.laneCount() * 2);
+        for (int i = 0; i < geometry.laneCount(); i++) {
+            shapesById.put(geometry.laneIds()[i], geometry.laneShapes()[i]);
+        }
+        for (Map.Entry<String, List<String>> e : geometry.controlledLanes().entrySet()) {
+            tlsStopLines.put(e.getKey(), computeStopLines(e.getValue(),
+                    laneId -> shapesById.getOrDefault(laneId, new double[0])));
+        }
+        App.logger.info("Loaded positions for {} traffic light systems.", tlsStopLines.size());
+    }
+
+    // Reads all lane IDs from SUMO and collects the center line and width of each lane
+    private void loadLanes(SumoBackend backend) {
         App.logger.info("Loading static road network from SUMO...");
 
         // 1. Get all Lane IDs from SUMO
-        StringVector laneIds = Lane.getIDList();
-        for (String id : laneIds) {
-            // 2. Get the shape (geometry) of the lane
-            TraCIPositionVector shapeVector = Lane.getShape(id);
-            double width = Lane.getWidth(id);
-
-            // 3. Convert SUMO coordinates to a Java Path
-            Path2D path = new Path2D.Double();
-            if (!shapeVector.getValue().isEmpty()) {
-                TraCIPosition start = shapeVector.getValue().get(0);
-                path.moveTo(start.getX(), start.getY());
-
-                for (int j = 1; j < shapeVector.getValue().size(); j++) {
-                    TraCIPosition p = shapeVector.getValue().get(j);
-                    path.lineTo(p.getX(), p.getY());
-                }
-            }
-
-            // Create a stroke based on lane width (approximate scaling)
-            // We use a stroke width of 'width' assuming 1 pixel = 1 meter for simplicity
-            // or we just draw the centerline. Here we create a stroked shape for thickness.
-            laneShapes.put(id, new BasicStroke((float) width).createStrokedShape(path));
+        List<String> laneIds = backend.getLaneIds();
+        List<double[]> shapes = new ArrayList<>(laneIds.size());
+        double[] widths = new double[laneIds.size()];
+        for (int i = 0; i < laneIds.size(); i++) {
+            // 2. Get the shape (geometry) of the lane, as x0, y0, x1, y1, ...
+            shapes.add(backend.getLaneShape(laneIds.get(i)));
+            widths[i] = backend.getLaneWidth(laneIds.get(i));
         }
-        App.logger.info("Loaded {} lanes.", laneShapes.size());
+        // 3. Packed into flat arrays; lanes are stroked with their width at draw time
+        setLanes(new LaneGeometry(laneIds, shapes, widths));
+        App.logger.info("Loaded {} lanes.", lanes.size());
     }
 
 
     // Reads traffic light IDs from SUMO, finds thr controlled lanes and computes stop-line positions and angles
-    private void loadTrafficLights() {
+    private void loadTrafficLights(SumoBackend backend) {
         App.logger.info("Loading traffic light positions...");
-        StringVector tlsIds = TrafficLight.getIDList();
+        List<String> tlsIds = backend.getTrafficLightIds();
 
         for (String tid : tlsIds) {
             // Get all lanes controlled by this TLS. The order corresponds to the state string indices.
-            StringVector controlledLanes = TrafficLight.getControlledLanes(tid);
-            List<SignalData> positions = new ArrayList<>();
-
-            // Initialize a list with placeholders
-            List<String> laneIdsForIndex = new ArrayList<>();
-            for (String controlledLane : controlledLanes) {
-                laneIdsForIndex.add(controlledLane);
-                TraCIPosition newPos = new TraCIPosition();
-                newPos.setX(0);
-                newPos.setY(0);
-                positions.add(new SignalData(newPos, 0));
-            }
+            List<String> controlledLanes = backend.getControlledLanes(tid);
+            tlsStopLines.put(tid, computeStopLines(controlledLanes, backend::getLaneShape));
+        }
+        App.logger.info("Loaded positions for {} traffic light systems.", tlsStopLines.size());
+    }
 
-            // Group signal indices by their Lane ID
-            Map<String, List<Integer>> laneToIndices = new HashMap<>();
-            for (int j = 0; j < laneIdsForIndex.size(); j++) {
-                String laneId = laneIdsForIndex.get(j);
-                laneToIndices.computeIfAbsent(laneId, k -> new ArrayList<>()).add(j);
-            }
+    // Computes one stop-line position per controlled lane index; each lane shape is only requested once
+    private static List<SignalData> computeStopLines(List<String> controlledLanes, Function<String, double[]> laneShape) {
+        List<SignalData> positions = new ArrayList<>();
+
+        // Initialize a list with placeholders
+        List<String> laneIdsForIndex = new ArrayList<>();
+        for (String controlledLane : controlledLanes) {
+            laneIdsForIndex.add(controlledLane);
+            positions.add(new SignalData(new Point2D.Double(0, 0), 0));
+        }
+
+        // Group signal indices by their Lane ID
+        Map<String, List<Integer>> laneToIndices = new HashMap<>();
+        for (int j = 0; j < laneIdsForIndex.size(); j++) {
+            String laneId = laneIdsForIndex.get(j);
+            laneToIndices.computeIfAbsent(laneId, k -> new ArrayList<>()).add(j);
+        }
+
+        // Calculate positions with offsets for overlapping signals
+        for (Map.Entry<String, List<Integer>> entry : laneToIndices.entrySet()) {
+            String laneId = entry.getKey();
+            List<Integer> indices = entry.getValue();
+
+            double[] shape = laneShape.apply(laneId);
+            if (shape.length < 4) continue;
+
+            int n = shape.length;
+            double endX = shape[n - 2], endY = shape[n - 1];
+
+            // Calculate Lane Direction
+            double dx = endX - shape[n - 4];
+            double dy = endY - shape[n - 3];
+            double len = Math.sqrt(dx * dx + dy * dy);
 
-            // Calculate positions with offsets for overlapping signals
-            for (Map.Entry<String, List<Integer>> entry : laneToIndices.entrySet()) {
-                String laneId = entry.getKey();
-                List<Integer> indices = entry.getValue();
-
-                TraCIPositionVector shape = Lane.getShape(laneId);
-                if (shape.getValue().size() < 2) continue;
-
-                TraCIPosition end = shape.getValue().get(shape.getValue().size() - 1);
-                TraCIPosition beforeEnd = shape.getValue().get(shape.getValue().size() - 2);
-
-                // Calculate Lane Direction
-                double dx = end.getX() - beforeEnd.getX();
-                double dy = end.getY() - beforeEnd.getY();
-                double len = Math.sqrt(dx * dx + dy * dy);
-
-                // Perpendicular vector (Right side relative to a driving direction)
-                double perpX = -dy / len;
-                double perpY = dx / len;
-                double angle = Math.toDegrees(Math.atan2(perpY, perpX));
-
-                // Spread signals out: if multiple signals on one lane, shift them
-                // e.g., spacing 1.5 m apart centered on the lane end
-                double spacing = 1.5;
-                double startOffset = -(indices.size() - 1) * spacing / 2.0;
-
-                for (int k = 0; k < indices.size(); k++) {
-                    int globalIndex = indices.get(k);
-                    double offset = startOffset + k * spacing;
-
-                    double finalX = end.getX() + perpX * offset;
-                    double finalY = end.getY() + perpY * offset;
-                    TraCIPosition newPos = new TraCIPosition();
-                    newPos.setX(finalX);
-                    newPos.setY(finalY);
-                    positions.set(globalIndex, new SignalData(newPos, angle));
-                }
+            // Perpendicular vector (Right side relative to a driving direction)
+            double perpX = -dy / len;
+            double perpY = dx / len;
+            double angle = Math.toDegrees(Math.atan2(perpY, perpX));
+
+            // Spread signals out: if multiple signals on one lane, shift them
+            // e.g., spacing 1.5 m apart centered on the lane end
+            double spacing = 1.5;
+            double startOffset = -(indices.size() - 1) * spacing / 2.0;
+
+            for (int k = 0; k < indices.size(); k++) {
+                int globalIndex = indices.get(k);
+                double offset = startOffset + k * spacing;
+
+                double finalX = endX + perpX * offset;
+                double finalY = endY + perpY * offset;
+                positions.set(globalIndex, new SignalData(new Point2D.Double(finalX, finalY), angle));
             }
-            tlsStopLines.put(tid, positions);
         }
-        App.logger.info("Loaded positions for {} traffic light systems.", tlsStopLines.size());
+        return positions;
     }
-}
\ No newline at end of file
+}
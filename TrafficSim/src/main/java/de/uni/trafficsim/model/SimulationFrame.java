@@ -8,14 +8,30 @@ import java.util.*;
 /**
  * Snapshot of simulation data for a single time step.
  * <p>
- * Holds the current traffic lights, vehicles, and cached route/type IDs
- * used by the UI.
+ * Holds the current traffic lights and vehicles. Route and type IDs for the
+ * UI are kept in the engine's network metadata cache. The vehicle manager is shared by all frames of a run; the
+ * renderer reads vehicles through its published snapshot only.
  */
 public class SimulationFrame {
-    public List<TrafficLightWrapper> trafficLights = new ArrayList<>();
-    public VehicleManager vehicleManager = new VehicleManager();
+    public List<TrafficLightWrapper> trafficLights = new ArrayList<>();    //persistent signal wrappers
+    public char[][] trafficLightStates = new char[0][];                    //state per TLS of this step, by TLS index
+    public SpatialGrid trafficLightIndex = null;                           //index over trafficLights, null if none
+    public VehicleManager vehicleManager;                                  //persistent registry, not a per-step copy
 
-    // Cache for UI dropdowns
-    public List<String> availableRoutes = new ArrayList<>();
-    public List<String> availableTypes = new ArrayList<>();
+    /**
+     * Constructor.
+     * Creates an empty frame with its own empty vehicle manager, e.g. to clear the view.
+     */
+    public SimulationFrame() {
+        this(new VehicleManager());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param vehicleManager vehicle registry shared by the frames of a run
+     */
+    public SimulationFrame(VehicleManager vehicleManager) {
+        this.vehicleManager = vehicleManager;
+    }
 }
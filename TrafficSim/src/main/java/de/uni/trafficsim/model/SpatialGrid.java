@@ -0,0 +1,134 @@
+package de.uni.trafficsim.model;
+
+import java.awt.geom.Rectangle2D;
+import java.util.function.IntConsumer;
+
+
+/**
+ * Immutable uniform grid over the bounding boxes of static objects.
+ * <p>
+ * Objects are referenced by their index in the array the grid was built from.
+ * A query only visits the cells that overlap the query rectangle and reports
+ * every object whose box overlaps it exactly once. Queries do not modify the grid,
+ * so it can be used from several threads at the same time.
+ */
+public class SpatialGrid {
+    private static final int MIN_CELLS = 1024;
+
+    private final double minX, minY, cellSize;
+    private final int cols, rows;
+    private final int[] cellStart;          //start of each cell in items, cols * rows + 1 entries
+    private final int[] items;
+    private final Rectangle2D[] bounds;
+    private final int[] firstCol, firstRow; //first cell of each object, used to report it only once
+
+    /**
+     * Constructor.
+     * Sorts the bounding boxes into grid cells.
+     *
+     * @param bounds bounding box per object, null entries are skipped
+     * @param cellSize preferred cell edge length in world units; enlarged for huge extents
+     */
+    public SpatialGrid(Rectangle2D[] bounds, double cellSize) {
+        this.bounds = bounds;
+        double x0 = Double.POSITIVE_INFINITY, y0 = Double.POSITIVE_INFINITY;
+        double x1 = Double.NEGATIVE_INFINITY, y1 = Double.NEGATIVE_INFINITY;
+        for (Rectangle2D b : bounds) {
+            if (b == null) continue;
+            x0 = Math.min(x0, b.getMinX());
+            y0 = Math.min(y0, b.getMinY());
+            x1 = Math.max(x1, b.getMaxX());
+            y1 = Math.max(y1, b.getMaxY());
+        }
+        if (x0 > x1) {                      //no objects
+            x0 = y0 = 0;
+            x1 = y1 = 1;
+        }
+
+        // Limit the number of cells for very large networks
+        int maxCells = Math.max(MIN_CELLS, 4 * bounds.length);
+        double size = Math.max(cellSize, 1e-6);
+        while (cellCount(x1 - x0, size) * cellCount(y1 - y0, size) > maxCells) {
+            size *= 2;
+        }
+        this.minX = x0;
+        this.minY = y0;
+        this.cellSize = size;
+        this.cols = (int) cellCount(x1 - x0, size);
+        this.rows = (int) cellCount(y1 - y0, size);
+        this.firstCol = new int[bounds.length];
+        this.firstRow = new int[bounds.length];
+
+        // Two passes: count entries per cell, then fill (compressed rows)
+        int[] counts = new int[cols * rows + 1];
+        for (int i = 0; i < bounds.length; i++) {
+            Rectangle2D b = bounds[i];
+            if (b == null) continue;
+            firstCol[i] = col(b.getMinX());
+            firstRow[i] = row(b.getMinY());
+            for (int r = firstRow[i], r1 = row(b.getMaxY()); r <= r1; r++) {
+                for (int c = firstCol[i], c1 = col(b.getMaxX()); c <= c1; c++) {
+                    counts[r * cols + c + 1]++;
+                }
+            }
+        }
+        for (int k = 1; k < counts.length; k++) {
+            counts[k] += counts[k - 1];
+        }
+        this.cellStart = counts.clone();
+        this.items = new int[counts[counts.length - 1]];
+        for (int i = 0; i < bounds.length; i++) {
+            Rectangle2D b = bounds[i];
+            if (b == null) continue;
+            for (int r = firstRow[i], r1 = row(b.getMaxY()); r <= r1; r++) {
+                for (int c = firstCol[i], c1 = col(b.getMaxX()); c <= c1; c++) {
+                    items[counts[r * cols + c]++] = i;
+                }
+            }
+        }
+    }
+
+    /**
+     * Reports every object whose bounding box overlaps the given rectangle.
+     *
+     * @param qMinX minimum x of the query rectangle
+     * @param qMinY minimum y of the query rectangle
+     * @param qMaxX maximum x of the query rectangle
+     * @param qMaxY maximum y of the query rectangle
+     * @param action receives the index of every matching object once
+     */
+    public void query(double qMinX, double qMinY, double qMaxX, double qMaxY, IntConsumer action) {
+        int c0 = col(qMinX), c1 = col(qMaxX);
+        int r0 = row(qMinY), r1 = row(qMaxY);
+        for (int r = r0; r <= r1; r++) {
+            for (int c = c0; c <= c1; c++) {
+                int cell = r * cols + c;
+                for (int k = cellStart[cell]; k < cellStart[cell + 1]; k++) {
+                    int i = items[k];
+                    // An object spanning several cells is only reported in its first visited cell
+                    if (Math.max(firstCol[i], c0) != c || Math.max(firstRow[i], r0) != r) continue;
+                    Rectangle2D b = bounds[i];
+                    if (b.getMaxX() >= qMinX && b.getMinX() <= qMaxX && b.getMaxY() >= qMinY && b.getMinY() <= qMaxY) {
+                        action.accept(i);
+                    }
+                }
+            }
+        }
+    }
+
+    public int size() {
+        return bounds.length;
+    }
+
+    private static long cellCount(double extent, double size) {
+        return Math.max(1, (long) Math.ceil(extent / size));
+    }
+
+    private int col(double x) {
+        return Math.min(cols - 1, Math.max(0, (int) Math.floor((x - minX) / cellSize)));
+    }
+
+    private int row(double y) {
+        return Math.min(rows - 1, Math.max(0, (int) Math.floor((y - minY) / cellSize)));
+    }
+}
@@ -1,23 +1,27 @@
 package de.uni.trafficsim.model.TrafficLight;
 
 import de.uni.trafficsim.App;
-import org.eclipse.sumo.libtraci.TraCIPosition;
-import org.eclipse.sumo.libtraci.TrafficLight;
+import de.uni.trafficsim.backend.SumoBackend;
 
 import java.awt.*;
+import java.awt.geom.Point2D;
 
 
 /**
  * Wrapper for a SUMO traffic light signal.
  * <p>
  * Stores position, orientation, and current state color for rendering.
+ * Wrappers are created once per run; the state is updated in place by the
+ * traffic light state tracker when the signal changes.
  */
 public class TrafficLightWrapper {
     // Properties
     private final String id;
-    private final TraCIPosition position;
+    private final Point2D position;
     private final double angle;
-    private final TLState state;
+    private final int tlsIndex;         //index of the TLS in the frame's state arrays
+    private final int linkIndex;        //index of this signal in the TLS state string
+    private volatile TLState state;
 
     /**
      * Constructor.
@@ -26,16 +30,36 @@ public class TrafficLightWrapper {
      * @param id traffic light system ID
      * @param position position of the signal
      * @param angle orientation angle for drawing
+     * @param tlsIndex index of the traffic light system in the state arrays
+     * @param linkIndex index of the signal in the state string
      * @param state SUMO state character (e.g., G, g, y, r)
      */
-    public TrafficLightWrapper(String id, TraCIPosition position, double angle, char state) {
+    public TrafficLightWrapper(String id, Point2D position, double angle, int tlsIndex, int linkIndex, char state) {
         this.id = id;
         this.position = position;
         this.angle = angle;
-        if (state == 'G') this.state = TLState.FULL_GREEN;
-        else if (state == 'g') this.state = TLState.GREEN;
-        else if (state == 'y') this.state = TLState.YELLOW;
-        else this.state = TLState.RED;
+        this.tlsIndex = tlsIndex;
+        this.linkIndex = linkIndex;
+        this.state = TLState.of(state);
+    }
+
+    /**
+     * Updates the current state of the signal.
+     *
+     * @param state SUMO state character (e.g., G, g, y, r)
+     */
+    public void setState(char state) {
+        this.state = TLState.of(state);
+    }
+
+    /**
+     * Returns the drawing color for a SUMO state character.
+     *
+     * @param state SUMO state character (e.g., G, g, y, r)
+     * @return color of the state
+     */
+    public static Color colorOf(char state) {
+        return TLState.of(state).getColor();
     }
 
     // Getters
@@ -43,7 +67,7 @@ public class TrafficLightWrapper {
         return id;
     }
 
-    public TraCIPosition getPosition() {
+    public Point2D getPosition() {
         return position;
     }
 
@@ -53,15 +77,21 @@ public class TrafficLightWrapper {
 
     public double getAngle() { return angle; }
 
+    public int getTlsIndex() { return tlsIndex; }
+
+    public int getLinkIndex() { return linkIndex; }
+
     /**
      * changes the traffic light to the next phase immediately.
      * <p>
      * Uses SUMO to set the current phase duration to zero.
+     *
+     * @param backend SUMO backend of the running simulation
      */
-    public void changeState() {
+    public void changeState(SumoBackend backend) {
         try {
             // Forces immediate transition to the next phase
-            TrafficLight.setPhaseDuration(id, 0.0);
+            backend.setPhaseDuration(id, 0.0);
             App.logger.info("Switched TLS {}", id);
         } catch (Exception e) {
             App.logger.error("Error switching TLS {}: {}", id, e.getMessage());
@@ -84,16 +114,23 @@ public class TrafficLightWrapper {
 
     // Enum for traffic light`s states
     enum TLState {
-        FULL_GREEN, GREEN, RED, YELLOW;
+        FULL_GREEN(new Color(3, 255, 0)), GREEN(new Color(2, 179, 2)), RED(Color.RED), YELLOW(Color.YELLOW);
+
+        private final Color color;      //shared, so drawing does not allocate
+
+        TLState(Color color) {
+            this.color = color;
+        }
+
+        static TLState of(char state) {
+            if (state == 'G') return FULL_GREEN;
+            if (state == 'g') return GREEN;
+            if (state == 'y') return YELLOW;
+            return RED;
+        }
 
         public Color getColor() {
-            return switch (this) {
-                case FULL_GREEN -> new Color(3, 255, 0);
-                case GREEN -> new Color(2, 179, 2);
-                case RED -> Color.RED;
-                case YELLOW -> Color.YELLOW;
-                default -> Color.WHITE;
-            };
+            return color;
         }
     }
 }
\ No newline at end of file
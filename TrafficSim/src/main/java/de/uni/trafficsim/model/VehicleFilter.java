@@ -1,12 +1,15 @@
 package de.uni.trafficsim.model;
 
 import java.awt.*;
+import java.util.Set;
 
 
 /**
  * Defines filtering rules for vehicles in the visualization.
  * <p>
- * Filters by speed range, color, and stopped-only mode when enabled.
+ * Filters by speed range, color, stopped-only mode, CO2 emission range and by
+ * route, vehicle type or current edge when enabled. For drawing and counting, the
+ * rules are turned into a {@link CompiledVehicleFilter} with {@link #compile()}.
  */
 public class VehicleFilter {
     public boolean enabled = false;
@@ -14,6 +17,11 @@ public class VehicleFilter {
     public double maxSpeed = 200.0; // High default
     public Color filterColor = null; // Replaced typeIdContains
     public boolean showStoppedOnly = false;
+    public double minCo2 = 0.0;                             // mg/s
+    public double maxCo2 = Double.POSITIVE_INFINITY;
+    public Set<String> routeIds = Set.of();                 // empty: any route
+    public Set<String> typeIds = Set.of();                  // empty: any vehicle type
+    public Set<String> edgeIds = Set.of();                  // empty: any edge
 
     /**
      * Checks whether a vehicle matches the current filter settings.
@@ -22,21 +30,47 @@ public class VehicleFilter {
      * @return true if the vehicle should be shown
      */
     public boolean matches(VehicleWrapper v) {
+        if (!matches(v.getSpeed(), v.getRgb())) return false;
+        if (!enabled) return true;
+        double co2 = v.getCo2();
+        if (co2 < minCo2 || co2 > maxCo2) return false;
+        return (routeIds.isEmpty() || routeIds.contains(v.getRoute()))
+                && (typeIds.isEmpty() || typeIds.contains(v.getTypeId()))
+                && (edgeIds.isEmpty() || edgeIds.contains(v.getRoadId()));
+    }
+
+    /**
+     * Checks whether a vehicle with the given values matches the speed, color and stopped settings.
+     * <p>
+     * Ignores the emission, route, type and edge criteria; use {@link #compile()} for snapshots.
+     *
+     * @param speed vehicle speed in m/s
+     * @param rgb packed 0xRRGGBB vehicle color
+     * @return true if the vehicle should be shown
+     */
+    public boolean matches(double speed, int rgb) {
         if (!enabled) return true;
 
         // Speed Filter
-        if (v.getSpeed() < minSpeed || v.getSpeed() > maxSpeed) return false;
-
-        // Color Filter
-        if (filterColor != null) {
-            if (v.getColor().getRed() != filterColor.getRed() ||
-                v.getColor().getGreen() != filterColor.getGreen() ||
-                v.getColor().getBlue() != filterColor.getBlue()) {
-                return false;
-            }
+        if (speed < minSpeed || speed > maxSpeed) return false;
+
+        // Color Filter (compare RGB only, ignore alpha)
+        if (filterColor != null && rgb != (filterColor.getRGB() & 0xFFFFFF)) {
+            return false;
         }
 
         // Stopped Filter
-        return !showStoppedOnly || !(v.getSpeed() > 0.1);
+        return !showStoppedOnly || !(speed > 0.1);
+    }
+
+    /**
+     * Compiles the current settings into a predicate over snapshot columns.
+     * <p>
+     * Later changes to this filter do not affect the compiled one.
+     *
+     * @return compiled filter
+     */
+    public CompiledVehicleFilter compile() {
+        return new CompiledVehicleFilter(this);
     }
 }
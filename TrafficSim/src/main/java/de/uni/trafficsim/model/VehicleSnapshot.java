@@ -0,0 +1,229 @@
+package de.uni.trafficsim.model;
+
+import java.awt.*;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+
+/**
+ * Consistent, read-only copy of the drawable vehicle data of one step.
+ * <p>
+ * Values are stored in parallel arrays that are reused between steps; the
+ * {@link de.uni.trafficsim.manager.VehicleManager} rotates a few of these buffers,
+ * so the renderer can read one while the simulation thread fills another.
+ * <p>
+ * Each buffer also holds a bucket grid of the vehicle positions, so the renderer
+ * only visits the vehicles inside the visible area.
+ */
+public final class VehicleSnapshot {
+    private int size = 0;
+    private long sequence = 0;          //step number of the data, increases with every publish
+    private double time = 0.0;          //simulation time of the data
+
+    private String[] ids = new String[0];
+    private double[] x = new double[0];
+    private double[] y = new double[0];
+    private double[] angle = new double[0];
+    private double[] speed = new double[0];
+    private double[] length = new double[0];
+    private int[] rgb = new int[0];
+    private Color[] colors = new Color[0];
+    private double[] co2 = new double[0];
+    private String[] routes = new String[0];
+    private String[] types = new String[0];
+    private String[] roads = new String[0];
+
+    // Bucket grid over the positions, rebuilt with every fill
+    private static final double BUCKET_SIZE = 50.0;    //meters
+    private double gridMinX, gridMinY, bucketSize = BUCKET_SIZE;
+    private int cols = 1, rows = 1;
+    private int[] bucketStart = new int[2];
+    private int[] bucketItems = new int[0];
+
+    /**
+     * Copies the current state of the given vehicles into this buffer.
+     * <p>
+     * Only called by the owner of the buffer before publishing it.
+     *
+     * @param vehicles live vehicle wrappers
+     * @param sequence step number of the data
+     * @param time simulation time of the data
+     */
+    public void fill(List<VehicleWrapper> vehicles, long sequence, double time) {
+        int n = vehicles.size();
+        ensureCapacity(n);
+        for (int i = 0; i < n; i++) {
+            VehicleWrapper v = vehicles.get(i);
+            ids[i] = v.getId();
+            x[i] = v.getX();
+            y[i] = v.getY();
+            angle[i] = v.getAngle();
+            speed[i] = v.getSpeed();
+            length[i] = v.getLength();
+            rgb[i] = v.getRgb();
+            colors[i] = v.getColor();
+            co2[i] = v.getCo2();
+            routes[i] = v.getRoute();
+            types[i] = v.getTypeId();
+            roads[i] = v.getRoadId();
+        }
+        // drop references of vehicles that left, so they can be collected
+        if (n < size) {
+            Arrays.fill(ids, n, size, null);
+            Arrays.fill(colors, n, size, null);
+            Arrays.fill(routes, n, size, null);
+            Arrays.fill(types, n, size, null);
+            Arrays.fill(roads, n, size, null);
+        }
+        this.size = n;
+        this.sequence = sequence;
+        this.time = time;
+        buildBuckets();
+    }
+
+    // Sorts the vehicle indices into grid buckets (counting sort, arrays are reused)
+    private void buildBuckets() {
+        double x0 = Double.POSITIVE_INFINITY, y0 = Double.POSITIVE_INFINITY;
+        double x1 = Double.NEGATIVE_INFINITY, y1 = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < size; i++) {
+            x0 = Math.min(x0, x[i]);
+            y0 = Math.min(y0, y[i]);
+            x1 = Math.max(x1, x[i]);
+            y1 = Math.max(y1, y[i]);
+        }
+        if (size == 0) {
+            x0 = y0 = 0;
+            x1 = y1 = 1;
+        }
+        // Keep the number of buckets in the order of the number of vehicles
+        double cell = BUCKET_SIZE;
+        int maxBuckets = Math.max(64, 2 * size);
+        while (Math.ceil((x1 - x0) / cell + 1e-9) * Math.ceil((y1 - y0) / cell + 1e-9) > maxBuckets) {
+            cell *= 2;
+        }
+        gridMinX = x0;
+        gridMinY = y0;
+        bucketSize = cell;
+        cols = Math.max(1, (int) Math.ceil((x1 - x0) / cell + 1e-9));
+        rows = Math.max(1, (int) Math.ceil((y1 - y0) / cell + 1e-9));
+
+        int buckets = cols * rows;
+        if (bucketStart.length < buckets + 1) bucketStart = new int[buckets + 1];
+        if (bucketItems.length < size) bucketItems = new int[ids.length];
+        Arrays.fill(bucketStart, 0, buckets + 1, 0);
+        for (int i = 0; i < size; i++) {
+            bucketStart[bucket(x[i], y[i]) + 1]++;
+        }
+        for (int b = 1; b <= buckets; b++) {
+            bucketStart[b] += bucketStart[b - 1];
+        }
+        for (int i = 0; i < size; i++) {
+            int b = bucket(x[i], y[i]);
+            bucketItems[bucketStart[b]++] = i;
+        }
+        // filling moved every start to the end of its bucket, shift back by one bucket
+        System.arraycopy(bucketStart, 0, bucketStart, 1, buckets);
+        bucketStart[0] = 0;
+    }
+
+    private int bucket(double px, double py) {
+        return row(py) * cols + col(px);
+    }
+
+    private int col(double px) {
+        return Math.min(cols - 1, Math.max(0, (int) ((px - gridMinX) / bucketSize)));
+    }
+
+    private int row(double py) {
+        return Math.min(rows - 1, Math.max(0, (int) ((py - gridMinY) / bucketSize)));
+    }
+
+    /**
+     * Reports the index of every vehicle whose position lies inside the given rectangle.
+     *
+     * @param minX minimum world x
+     * @param minY minimum world y
+     * @param maxX maximum world x
+     * @param maxY maximum world y
+     * @param action receives the vehicle indices
+     */
+    public void forEachIn(double minX, double minY, double maxX, double maxY, IntConsumer action) {
+        if (size == 0 || maxX < minX || maxY < minY) return;
+        int c0 = col(minX), c1 = col(maxX);
+        int r0 = row(minY), r1 = row(maxY);
+        for (int r = r0; r <= r1; r++) {
+            for (int c = c0; c <= c1; c++) {
+                int b = r * cols + c;
+                for (int k = bucketStart[b]; k < bucketStart[b + 1]; k++) {
+                    int i = bucketItems[k];
+                    if (x[i] >= minX && x[i] <= maxX && y[i] >= minY && y[i] <= maxY) {
+                        action.accept(i);
+                    }
+                }
+            }
+        }
+    }
+
+    private void ensureCapacity(int n) {
+        if (n <= ids.length) return;
+        int cap = Math.max(n, ids.length + (ids.length >> 1) + 16);
+        ids = Arrays.copyOf(ids, cap);
+        x = Arrays.copyOf(x, cap);
+        y = Arrays.copyOf(y, cap);
+        angle = Arrays.copyOf(angle, cap);
+        speed = Arrays.copyOf(speed, cap);
+        length = Arrays.copyOf(length, cap);
+        rgb = Arrays.copyOf(rgb, cap);
+        colors = Arrays.copyOf(colors, cap);
+        co2 = Arrays.copyOf(co2, cap);
+        routes = Arrays.copyOf(routes, cap);
+        types = Arrays.copyOf(types, cap);
+        roads = Arrays.copyOf(roads, cap);
+    }
+
+    public int size() { return size; }
+
+    public long sequence() { return sequence; }
+
+    public double time() { return time; }
+
+    public String id(int i) { return ids[i]; }
+
+    public double x(int i) { return x[i]; }
+
+    public double y(int i) { return y[i]; }
+
+    public double angle(int i) { return angle[i]; }
+
+    public double speed(int i) { return speed[i]; }
+
+    public double length(int i) { return length[i]; }
+
+    /** @return color of vehicle i packed as 0xRRGGBB */
+    public int rgb(int i) { return rgb[i]; }
+
+    public Color color(int i) { return colors[i]; }
+
+    /** @return CO2 emission of vehicle i in mg/s */
+    public double co2(int i) { return co2[i]; }
+
+    public String route(int i) { return routes[i]; }
+
+    public String typeId(int i) { return types[i]; }
+
+    public String roadId(int i) { return roads[i]; }
+
+    // Column access for the compiled vehicle filter; only the first size() entries are valid
+    double[] speedColumn() { return speed; }
+
+    int[] rgbColumn() { return rgb; }
+
+    double[] co2Column() { return co2; }
+
+    String[] routeColumn() { return routes; }
+
+    String[] typeColumn() { return types; }
+
+    String[] roadColumn() { return roads; }
+}
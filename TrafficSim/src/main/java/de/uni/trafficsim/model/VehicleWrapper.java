@@ -1,8 +1,5 @@
 package de.uni.trafficsim.model;
 
-import org.eclipse.sumo.libtraci.TraCIColor;
-import org.eclipse.sumo.libtraci.TraCIPosition;
-
 import java.awt.*;
 import java.util.Objects;
 
@@ -10,72 +7,130 @@ import java.util.Objects;
 /**
  * Wrapper for a single SUMO vehicle with cached simulation data.
  * <p>
- * Holds position, speed, route, emissions, and color for rendering and stats.
- * Pulls the latest values directly from SUMO via the TraCI Interface, so all the data is up to date.
+ * Holds position, speed, route, type, current edge, emissions, and color for rendering and stats.
+ * Instances are kept by the {@link de.uni.trafficsim.manager.VehicleManager} for the whole
+ * time a vehicle is in the simulation and are updated in place every step,
+ * so the data is always up to date without creating new objects.
  */
 public class VehicleWrapper {
-    //only Vehicle class can access id, cannot be changed (final). Every vehicle instance has unique id
-    private final String id;
-    private TraCIPosition position;
+    //identifies the vehicle; only changes when a pooled wrapper is reused for a new vehicle
+    private String id;
+    private double x;
+    private double y;
     private double angle;
     private double speed;
     private double length;
     //route id in SUMO is a string. the route id identifies a list of edges (roads)
-    private final String route;
-    private final Color color;
+    private String route;
+    private String typeId;              //vehicle type ID
+    private String roadId;              //edge (or internal junction edge) the vehicle is on
+    private Color color;
+    private int rgb = -1;               //packed 0xRRGGBB of color, -1 if not set yet
     private double co2;
     private double fuel;
 
+    private long lastSeen = -1;         //update generation of the VehicleManager the vehicle was last seen in
+    private int slot = -1;              //position in the VehicleManager's vehicle list, -1 if not registered
+
     /**
      * Constructor.
-     * Creates a fully populated vehicle wrapper from SUMO data.
+     * Creates an empty wrapper that is filled by {@link #update}.
      *
      * @param id vehicle ID
-     * @param position current position in SUMO coordinates
+     */
+    public VehicleWrapper(String id) {
+        this.id = id;
+    }
+
+    /**
+     * Constructor
+     * Creates a minimal vehicle wrapper for injection.
+     *
+     * @param id vehicle ID
+     * @param route route ID
+     * @param color display color
+     */
+    public VehicleWrapper(String id, String route, Color color) {
+        this.id = id;
+        this.route = route;
+        this.color = color;
+        this.rgb = color.getRGB() & 0xFFFFFF;
+    }
+
+    /**
+     * Updates the dynamic values of the vehicle in place.
+     *
+     * @param x x position in SUMO coordinates
+     * @param y y position in SUMO coordinates
      * @param angle current heading angle
      * @param speed current speed
      * @param length vehicle length
      * @param route route ID
-     * @param color SUMO color value
      * @param co2 CO2 emission value
      * @param fuel fuel consumption value
      */
-    public VehicleWrapper(
-            String id,
-            TraCIPosition position,
-            double angle,
-            double speed,
-            double length,
-            String route,
-            TraCIColor color,
-            double co2,
-            double fuel
-    ) {
-        this.id = id;
-        this.position = position;
+    public void update(double x, double y, double angle, double speed, double length,
+                       String route, double co2, double fuel) {
+        this.x = x;
+        this.y = y;
         this.angle = angle;
         this.speed = speed;
         this.length = length;
         this.route = route;
-        this.color = formatColor(color);
         this.co2 = co2;
         this.fuel = fuel;
     }
 
     /**
-     * Constructor
-     * Creates a minimal vehicle wrapper for injection.
+     * Updates vehicle type and current edge.
      *
-     * @param id vehicle ID
-     * @param route route ID
-     * @param color display color
+     * @param typeId vehicle type ID
+     * @param roadId ID of the edge the vehicle is on
      */
-    public VehicleWrapper(String id, String route, Color color) {
+    public void updatePlacement(String typeId, String roadId) {
+        this.typeId = typeId;
+        this.roadId = roadId;
+    }
+
+    /**
+     * Updates the color; a new {@link Color} is only created if the value changed.
+     *
+     * @param r red (0-255)
+     * @param g green (0-255)
+     * @param b blue (0-255)
+     */
+    public void updateColor(int r, int g, int b) {
+        int packed = (r & 0xFF) << 16 | (g & 0xFF) << 8 | (b & 0xFF);
+        if (packed != rgb) {
+            rgb = packed;
+            color = new Color(packed);
+        }
+    }
+
+    /**
+     * Prepares a pooled wrapper for a new vehicle.
+     *
+     * @param id ID of the new vehicle
+     */
+    public void reset(String id) {
         this.id = id;
-        this.route = route;
-        this.color = color;
+        this.route = null;
+        this.typeId = null;
+        this.roadId = null;
+        this.x = this.y = this.angle = this.speed = this.length = this.co2 = this.fuel = 0.0;
+        this.lastSeen = -1;
     }
 
+    // Bookkeeping for the VehicleManager: detects vehicles that were not updated in a step
+    public void markSeen(long generation) { this.lastSeen = generation; }
+
+    public long getLastSeen() { return lastSeen; }
+
+    // Position in the VehicleManager's list, so a vehicle can be removed without searching it
+    public void setSlot(int slot) { this.slot = slot; }
+
+    public int getSlot() { return slot; }
+
     //Getter-Methods
     public String getId() {
         return id;
@@ -87,9 +142,9 @@ public class VehicleWrapper {
 
     public double getLength() { return length; }
 
-    public TraCIPosition getPosition() {
-        return position;
-    }
+    public double getX() { return x; }
+
+    public double getY() { return y; }
 
     public double getAngle() {
         return angle;
@@ -99,33 +154,21 @@ public class VehicleWrapper {
         return route;
     }
 
+    public String getTypeId() { return typeId; }
+
+    public String getRoadId() { return roadId; }
+
     public Color getColor() {
         return color;
     }
 
+    /** @return color packed as 0xRRGGBB, -1 if not set yet */
+    public int getRgb() { return rgb; }
+
     public double getCo2() { return co2; }
 
     public double getFuel() { return fuel; }
 
-    /**
-     * Returns the vehicle color as a SUMO TraCIColor.
-     *
-     * @return color in SUMO format
-     */
-    public TraCIColor getTraCIColor() {
-        TraCIColor sumoColor = new TraCIColor();
-        sumoColor.setR(color.getRed());
-        sumoColor.setG(color.getGreen());
-        sumoColor.setB(color.getBlue());
-        sumoColor.setA(255);
-        return sumoColor;
-    }
-
-    // format color from TraCIColor to Color (java.awt)
-    private static Color formatColor(TraCIColor color) {
-        return new Color(color.getR(), color.getG(), color.getB());
-    }
-
     /**
      * Compares vehicles by ID.
      *
@@ -0,0 +1,60 @@
+package de.uni.trafficsim.model;
+
+import java.util.Arrays;
+
+
+/**
+ * Bit set of the vehicles of a {@link VehicleSnapshot} that pass the active filter.
+ * <p>
+ * Computed once per snapshot by a {@link CompiledVehicleFilter} and shared by the
+ * dashboard count and the renderer. The instance is reused for the next snapshot.
+ */
+public final class VisibleVehicles {
+    private long[] words = new long[0];
+    private int size = 0;
+    private int count = 0;
+
+    /**
+     * Returns whether a vehicle passes the filter.
+     *
+     * @param i vehicle index in the snapshot
+     * @return true if the vehicle is shown
+     */
+    public boolean get(int i) {
+        return (words[i >>> 6] & (1L << i)) != 0;
+    }
+
+    /** @return number of vehicles that pass the filter */
+    public int count() {
+        return count;
+    }
+
+    /** @return number of vehicles in the snapshot */
+    public int size() {
+        return size;
+    }
+
+    // Mutators for the compiled filter
+
+    long[] prepare(int size) {
+        int n = (size + 63) >>> 6;
+        if (words.length < n) words = new long[Math.max(n, words.length + (words.length >> 1))];
+        this.size = size;
+        return words;
+    }
+
+    void setAll(int size) {
+        long[] w = prepare(size);
+        int full = size >>> 6;
+        Arrays.fill(w, 0, full, -1L);
+        if ((size & 63) != 0) w[full] = (1L << size) - 1;     // shift uses the low 6 bits only
+        count = size;
+    }
+
+    void updateCount() {
+        int n = (size + 63) >>> 6;
+        int c = 0;
+        for (int k = 0; k < n; k++) c += Long.bitCount(words[k]);
+        count = c;
+    }
+}
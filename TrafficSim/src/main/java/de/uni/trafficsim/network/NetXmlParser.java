@@ -0,0 +1,142 @@
+package de.uni.trafficsim.network;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+
+
+/**
+ * Reads lane and traffic light geometry directly from SUMO network files.
+ * <p>
+ * Streams the XML with StAX, so even large (gzipped) networks are parsed without building
+ * a document tree, and without a running SUMO instance.
+ */
+public final class NetXmlParser {
+    /** Lane width SUMO uses if neither the lane nor its edge type define one. */
+    public static final double DEFAULT_LANE_WIDTH = 3.2;
+
+    private NetXmlParser() {}
+
+    /**
+     * Finds the network file of a SUMO configuration.
+     *
+     * @param sumoConfig path to the .sumocfg file
+     * @return network file, resolved against the directory of the configuration
+     * @throws IOException if the configuration cannot be read or has no network file
+     */
+    public static Path findNetFile(Path sumoConfig) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(sumoConfig))) {
+            XMLStreamReader r = createReader(in);
+            try {
+                while (r.hasNext()) {
+                    if (r.next() == XMLStreamConstants.START_ELEMENT && r.getLocalName().equals("net-file")) {
+                        String value = r.getAttributeValue(null, "value");
+                        if (value == null || value.isBlank()) break;
+                        String first = value.split(",")[0].trim();     // several networks are not supported
+                        Path parent = sumoConfig.toAbsolutePath().getParent();
+                        return parent == null ? Path.of(first) : parent.resolve(first);
+                    }
+                }
+            } finally {
+                r.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Cannot read SUMO configuration " + sumoConfig + ": " + e.getMessage(), e);
+        }
+        throw new IOException("No net-file in SUMO configuration " + sumoConfig);
+    }
+
+    /**
+     * Parses a network file.
+     *
+     * @param netFile .net.xml or .net.xml.gz file
+     * @return lane shapes and widths and the lanes controlled by each traffic light
+     * @throws IOException if the file cannot be read or parsed
+     */
+    public static NetworkGeometry parse(Path netFile) throws IOException {
+        List<String> ids = new ArrayList<>();
+        List<double[]> shapes = new ArrayList<>();
+        List<Double> widths = new ArrayList<>();
+        Map<String, Double> typeWidths = new HashMap<>();
+        Map<String, Map<Integer, String>> links = new LinkedHashMap<>();   // tls -> link index -> lane
+
+        InputStream raw = new BufferedInputStream(Files.newInputStream(netFile), 1 << 16);
+        try (InputStream in = netFile.getFileName().toString().endsWith(".gz") ? new GZIPInputStream(raw, 1 << 16) : raw) {
+            XMLStreamReader r = createReader(in);
+            try {
+                double edgeWidth = DEFAULT_LANE_WIDTH;       // default for the lanes of the current edge
+                while (r.hasNext()) {
+                    if (r.next() != XMLStreamConstants.START_ELEMENT) continue;
+                    switch (r.getLocalName()) {
+                        case "type" -> {
+                            String width = r.getAttributeValue(null, "width");
+                            if (width != null) typeWidths.put(r.getAttributeValue(null, "id"), Double.parseDouble(width));
+                        }
+                        case "edge" -> {
+                            String type = r.getAttributeValue(null, "type");
+                            edgeWidth = type == null ? DEFAULT_LANE_WIDTH : typeWidths.getOrDefault(type, DEFAULT_LANE_WIDTH);
+                        }
+                        case "lane" -> {
+                            String width = r.getAttributeValue(null, "width");
+                            ids.add(r.getAttributeValue(null, "id"));
+                            shapes.add(parseShape(r.getAttributeValue(null, "shape")));
+                            widths.add(width == null ? edgeWidth : Double.parseDouble(width));
+                        }
+                        case "tlLogic" -> links.computeIfAbsent(r.getAttributeValue(null, "id"), k -> new TreeMap<>());
+                        case "connection" -> {
+                            String tl = r.getAttributeValue(null, "tl");
+                            String linkIndex = r.getAttributeValue(null, "linkIndex");
+                            if (tl != null && linkIndex != null) {
+                                String lane = r.getAttributeValue(null, "from") + "_" + r.getAttributeValue(null, "fromLane");
+                                links.computeIfAbsent(tl, k -> new TreeMap<>()).put(Integer.parseInt(linkIndex), lane);
+                            }
+                        }
+                        default -> { }
+                    }
+                }
+            } finally {
+                r.close();
+            }
+        } catch (XMLStreamException | RuntimeException e) {
+            throw new IOException("Cannot parse network " + netFile + ": " + e.getMessage(), e);
+        }
+
+        double[] laneWidths = new double[widths.size()];
+        for (int i = 0; i < laneWidths.length; i++) laneWidths[i] = widths.get(i);
+        Map<String, List<String>> controlled = new LinkedHashMap<>();
+        for (Map.Entry<String, Map<Integer, String>> e : links.entrySet()) {
+            controlled.put(e.getKey(), List.copyOf(e.getValue().values()));    // ordered by link index
+        }
+        return new NetworkGeometry(ids.toArray(new String[0]), shapes.toArray(new double[0][]), laneWidths, controlled);
+    }
+
+    // "x0,y0 x1,y1 ..." (optionally with z) -> x0, y0, x1, y1, ...
+    static double[] parseShape(String shape) {
+        if (shape == null || shape.isBlank()) return new double[0];
+        String[] points = shape.trim().split("\\s+");
+        double[] coords = new double[points.length * 2];
+        for (int i = 0; i < points.length; i++) {
+            String p = points[i];
+            int c1 = p.indexOf(',');
+            int c2 = p.indexOf(',', c1 + 1);
+            coords[2 * i] = Double.parseDouble(p.substring(0, c1));
+            coords[2 * i + 1] = Double.parseDouble(c2 < 0 ? p.substring(c1 + 1) : p.substring(c1 + 1, c2));
+        }
+        return coords;
+    }
+
+    private static XMLStreamReader createReader(InputStream in) throws XMLStreamException {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);             // no external entities
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+        return factory.createXMLStreamReader(in);
+    }
+}
@@ -0,0 +1,39 @@
+package de.uni.trafficsim.network;
+
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Static geometry of a SUMO network, as needed for drawing.
+ * <p>
+ * Lanes are stored in parallel arrays; a shape holds the center line as x0, y0, x1, y1, ...
+ * in network coordinates, the same values the backend returns for a lane.
+ *
+ * @param laneIds IDs of all lanes, including internal lanes
+ * @param laneShapes center line of every lane
+ * @param laneWidths width of every lane in meters
+ * @param controlledLanes lanes controlled by each traffic light, in the order of its state string
+ */
+public record NetworkGeometry(
+        String[] laneIds,
+        double[][] laneShapes,
+        double[] laneWidths,
+        Map<String, List<String>> controlledLanes
+) {
+
+    /**
+     * Constructor.
+     *
+     * @throws IllegalArgumentException if the lane arrays differ in length
+     */
+    public NetworkGeometry {
+        if (laneShapes.length != laneIds.length || laneWidths.length != laneIds.length) {
+            throw new IllegalArgumentException("lane arrays must have the same length");
+        }
+    }
+
+    public int laneCount() {
+        return laneIds.length;
+    }
+}
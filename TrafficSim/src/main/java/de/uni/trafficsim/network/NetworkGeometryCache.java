@@ -0,0 +1,187 @@
+package de.uni.trafficsim.network;
+
+import de.uni.trafficsim.App;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+
+/**
+ * On-disk cache of parsed network geometry.
+ * <p>
+ * Entries are keyed by the SHA-256 hash of the network file, so a changed network is parsed
+ * again and an unchanged one is loaded with a single memory-mapped read instead of parsing
+ * the XML. The cache directory is set with the {@code trafficsim.geometryCacheDir} system
+ * property and defaults to {@code ~/.trafficsim/geometry-cache}.
+ */
+public final class NetworkGeometryCache {
+    private static final int MAGIC = 0x54534731;          // "TSG1"
+    private static final String EXTENSION = ".geom";
+
+    private final Path directory;
+
+    /**
+     * Constructor.
+     *
+     * @param directory directory of the cache files, created on first write
+     */
+    public NetworkGeometryCache(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Creates the cache in the directory configured with {@code trafficsim.geometryCacheDir}.
+     *
+     * @return cache in the configured or default directory
+     */
+    public static NetworkGeometryCache fromSystemProperty() {
+        String dir = System.getProperty("trafficsim.geometryCacheDir");
+        return new NetworkGeometryCache(dir != null ? Paths.get(dir)
+                : Paths.get(System.getProperty("user.home"), ".trafficsim", "geometry-cache"));
+    }
+
+    /**
+     * Loads the geometry of the network of a SUMO configuration.
+     *
+     * @param sumoConfig path to the .sumocfg file
+     * @return geometry from the cache, or parsed from the network file and then cached
+     * @throws IOException if the network file cannot be found, read or parsed
+     */
+    public NetworkGeometry loadForConfig(Path sumoConfig) throws IOException {
+        return load(NetXmlParser.findNetFile(sumoConfig));
+    }
+
+    /**
+     * Loads the geometry of a network file.
+     * <p>
+     * A cache file that cannot be read or written only costs the parsing time.
+     *
+     * @param netFile .net.xml or .net.xml.gz file
+     * @return geometry from the cache, or parsed from the network file and then cached
+     * @throws IOException if the network file cannot be read or parsed
+     */
+    public NetworkGeometry load(Path netFile) throws IOException {
+        String key = hash(netFile);
+        Path cacheFile = directory.resolve(key + EXTENSION);
+        if (Files.isRegularFile(cacheFile)) {
+            try {
+                NetworkGeometry geometry = read(cacheFile);
+                App.logger.info("Loaded geometry of {} lanes from cache {}", geometry.laneCount(), cacheFile);
+                return geometry;
+            } catch (IOException | RuntimeException e) {
+                App.logger.warn("Ignoring unreadable geometry cache {}: {}", cacheFile, e.getMessage());
+            }
+        }
+
+        long start = System.nanoTime();
+        NetworkGeometry geometry = NetXmlParser.parse(netFile);
+        App.logger.info("Parsed geometry of {} lanes from {} in {} ms", geometry.laneCount(), netFile,
+                (System.nanoTime() - start) / 1_000_000);
+        try {
+            write(geometry, cacheFile);
+        } catch (IOException e) {
+            App.logger.warn("Could not write geometry cache {}: {}", cacheFile, e.getMessage());
+        }
+        return geometry;
+    }
+
+    // SHA-256 of the file content as hex string
+    static String hash(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);   // required of every Java platform
+        }
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buf = ByteBuffer.allocateDirect(1 << 20);
+            while (ch.read(buf) >= 0) {
+                buf.flip();
+                digest.update(buf);
+                buf.clear();
+            }
+        }
+        StringBuilder hex = new StringBuilder(64);
+        for (byte b : digest.digest()) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    // Layout: magic, lane count, (id, width, point coordinate count, coordinates)*, tls count, (id, lane count, lane ids)*
+    private static void write(NetworkGeometry g, Path file) throws IOException {
+        Files.createDirectories(file.getParent());
+        Path tmp = Files.createTempFile(file.getParent(), "geometry", ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(g.laneCount());
+                for (int i = 0; i < g.laneCount(); i++) {
+                    writeString(out, g.laneIds()[i]);
+                    out.writeDouble(g.laneWidths()[i]);
+                    double[] shape = g.laneShapes()[i];
+                    out.writeInt(shape.length);
+                    for (double v : shape) out.writeDouble(v);
+                }
+                out.writeInt(g.controlledLanes().size());
+                for (Map.Entry<String, List<String>> e : g.controlledLanes().entrySet()) {
+                    writeString(out, e.getKey());
+                    out.writeInt(e.getValue().size());
+                    for (String lane : e.getValue()) writeString(out, lane);
+                }
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private static NetworkGeometry read(Path file) throws IOException {
+        MappedByteBuffer buf;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());     // stays valid after closing the channel
+        }
+        if (buf.getInt() != MAGIC) throw new IOException("not a geometry cache file");
+        int lanes = buf.getInt();
+        String[] ids = new String[lanes];
+        double[][] shapes = new double[lanes][];
+        double[] widths = new double[lanes];
+        for (int i = 0; i < lanes; i++) {
+            ids[i] = readString(buf);
+            widths[i] = buf.getDouble();
+            shapes[i] = new double[buf.getInt()];
+            buf.asDoubleBuffer().get(shapes[i]);
+            buf.position(buf.position() + shapes[i].length * Double.BYTES);
+        }
+        int tlsCount = buf.getInt();
+        Map<String, List<String>> controlled = new LinkedHashMap<>(tlsCount * 2);
+        for (int t = 0; t < tlsCount; t++) {
+            String id = readString(buf);
+            String[] controlledLanes = new String[buf.getInt()];
+            for (int k = 0; k < controlledLanes.length; k++) controlledLanes[k] = readString(buf);
+            controlled.put(id, List.of(controlledLanes));
+        }
+        return new NetworkGeometry(ids, shapes, widths, controlled);
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buf) {
+        byte[] bytes = new byte[buf.getInt()];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,144 @@
+package de.uni.trafficsim.replay;
+
+import de.uni.trafficsim.manager.VehicleManager;
+import de.uni.trafficsim.model.SimulationFrame;
+import de.uni.trafficsim.model.VehicleWrapper;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static de.uni.trafficsim.replay.ReplayFormat.*;
+
+
+/**
+ * Turns frames of a {@link ReplayLog} back into {@link SimulationFrame}s.
+ * <p>
+ * Decoded vehicles are written into a persistent {@link VehicleManager}, just like
+ * the live fetchers do, so the renderer and filters work unchanged. Moving to the
+ * next frame decodes one delta frame; any other jump starts at the keyframe before
+ * the target, so seeking costs at most {@link ReplayFormat#KEYFRAME_INTERVAL} frames
+ * in both directions.
+ * <p>
+ * Not thread-safe; the player uses it on the EDT.
+ */
+public class ReplayDecoder {
+    private final ReplayLog log;
+    private final VehicleManager vehicles = new VehicleManager();
+    private int current = -1;                                   // last decoded frame
+
+    // Last decoded values per interned vehicle ID
+    private int[] lastFrame = new int[0];
+    private int[] lastX = new int[0], lastY = new int[0], lastAngle = new int[0];
+    private int[] lastSpeed = new int[0], lastLength = new int[0], lastRgb = new int[0];
+    private char[][] states;
+
+    /**
+     * Constructor.
+     *
+     * @param log opened replay log
+     */
+    public ReplayDecoder(ReplayLog log) {
+        this.log = log;
+        this.states = new char[log.getTlsCount()][];
+    }
+
+    public int getCurrentFrame() {
+        return current;
+    }
+
+    /**
+     * Decodes a frame.
+     *
+     * @param frame frame number, 0 to {@link ReplayLog#getFrameCount()} - 1
+     * @return frame with vehicles and traffic light states of the recorded step
+     * @throws IOException if a segment of the log cannot be mapped
+     */
+    public SimulationFrame seek(int frame) throws IOException {
+        if (frame < 0 || frame >= log.getFrameCount()) {
+            throw new IndexOutOfBoundsException("frame " + frame + " of " + log.getFrameCount());
+        }
+        if (frame != current) {
+            int key = frame - frame % KEYFRAME_INTERVAL;
+            // continue from the current frame if it lies between the keyframe and the target
+            int from = current >= key && current < frame ? current + 1 : key;
+            for (int f = from; f <= frame; f++) {
+                decode(f, f == frame);
+            }
+            current = frame;
+        }
+
+        SimulationFrame result = new SimulationFrame(vehicles);
+        result.trafficLights = log.getSignals();
+        result.trafficLightStates = states.clone();            // inner arrays are replaced, never modified
+        result.trafficLightIndex = log.getSignalIndex();
+        return result;
+    }
+
+    // Decodes one frame; the vehicle registry is only updated for the target frame
+    private void decode(int frameNo, boolean publish) throws IOException {
+        ByteBuffer in = log.frameData(frameNo);
+        boolean key = (in.get() & FLAG_KEYFRAME) != 0;
+        double time = in.getDouble();
+
+        int n = readVarint(in);
+        if (publish) vehicles.beginUpdate();
+        int id = -1;
+        for (int k = 0; k < n; k++) {
+            id += readVarint(in) + 1;
+            ensureCapacity(id);
+            if (key || lastFrame[id] != frameNo - 1) {
+                lastX[id] = readSigned(in);
+                lastY[id] = readSigned(in);
+                lastAngle[id] = readSigned(in);
+                lastSpeed[id] = readSigned(in);
+                lastLength[id] = readVarint(in);
+                lastRgb[id] = readVarint(in);
+            } else {
+                int mask = in.get();
+                lastX[id] += readSigned(in);
+                lastY[id] += readSigned(in);
+                if ((mask & CHANGED_ANGLE) != 0) lastAngle[id] += readSigned(in);
+                if ((mask & CHANGED_SPEED) != 0) lastSpeed[id] += readSigned(in);
+                if ((mask & CHANGED_LENGTH) != 0) lastLength[id] = readVarint(in);
+                if ((mask & CHANGED_COLOR) != 0) lastRgb[id] = readVarint(in);
+            }
+            lastFrame[id] = frameNo;
+
+            if (publish) {
+                VehicleWrapper v = vehicles.obtain(log.vehicleId(id));
+                v.update(lastX[id] / POSITION_SCALE, lastY[id] / POSITION_SCALE, lastAngle[id] / ANGLE_SCALE,
+                        lastSpeed[id] / SPEED_SCALE, lastLength[id] / LENGTH_SCALE, null, 0.0, 0.0);
+                int rgb = lastRgb[id];
+                v.updateColor(rgb >> 16, rgb >> 8, rgb);
+            }
+        }
+
+        int changed = readVarint(in);
+        for (int c = 0; c < changed; c++) {
+            int tls = readVarint(in);
+            char[] s = new char[readVarint(in)];
+            for (int i = 0; i < s.length; i++) s[i] = (char) (in.get() & 0xFF);
+            if (tls < states.length) states[tls] = s;
+        }
+
+        if (publish) {
+            vehicles.endUpdate();
+            vehicles.publish(time);
+        }
+    }
+
+    private void ensureCapacity(int id) {
+        if (id < lastFrame.length) return;
+        int size = Math.max(Math.max(1024, id + 1), lastFrame.length * 2);
+        int old = lastFrame.length;
+        lastFrame = Arrays.copyOf(lastFrame, size);
+        Arrays.fill(lastFrame, old, size, Integer.MIN_VALUE);
+        lastX = Arrays.copyOf(lastX, size);
+        lastY = Arrays.copyOf(lastY, size);
+        lastAngle = Arrays.copyOf(lastAngle, size);
+        lastSpeed = Arrays.copyOf(lastSpeed, size);
+        lastLength = Arrays.copyOf(lastLength, size);
+        lastRgb = Arrays.copyOf(lastRgb, size);
+    }
+}
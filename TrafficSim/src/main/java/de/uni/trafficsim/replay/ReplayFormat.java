@@ -0,0 +1,147 @@
+package de.uni.trafficsim.replay;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+
+/**
+ * File layout and encoding helpers of the replay log.
+ * <p>
+ * A log is a directory with
+ * <ul>
+ *     <li>{@code network.bin}: lane center lines and widths and signal positions, written once</li>
+ *     <li>{@code ids.bin}: vehicle IDs in the order they were first seen (interned IDs)</li>
+ *     <li>{@code index.bin}: per frame the simulation time and the position of the frame</li>
+ *     <li>{@code frames-NNNNN.bin}: the encoded frames, split into segments that are memory-mapped</li>
+ * </ul>
+ * Frames store quantized values (centimeters, tenths of a degree) as varints. Every
+ * {@link #KEYFRAME_INTERVAL}th frame is a keyframe with absolute values; other frames only
+ * store the change against the previous frame, so any frame can be decoded from its keyframe.
+ */
+final class ReplayFormat {
+    static final int MAGIC = 0x54524C47;                       // "TRLG"
+    static final int VERSION = 2;                              // 2: lanes as center lines instead of outlines
+    static final int KEYFRAME_INTERVAL = 50;                   // 5 s at 0.1 s steps
+    static final long SEGMENT_BYTES = 256L << 20;              // a frame never spans two segments
+    static final int INDEX_ENTRY_BYTES = 16;                   // double time, long position
+
+    static final String NETWORK_FILE = "network.bin";
+    static final String IDS_FILE = "ids.bin";
+    static final String INDEX_FILE = "index.bin";
+
+    // Quantization
+    static final double POSITION_SCALE = 100.0;                // centimeters
+    static final double ANGLE_SCALE = 10.0;                    // tenths of a degree
+    static final double SPEED_SCALE = 100.0;                   // cm/s
+    static final double LENGTH_SCALE = 100.0;                  // centimeters
+
+    // Frame flags and per-vehicle change mask
+    static final int FLAG_KEYFRAME = 1;
+    static final int CHANGED_ANGLE = 1;
+    static final int CHANGED_SPEED = 2;
+    static final int CHANGED_LENGTH = 4;
+    static final int CHANGED_COLOR = 8;
+
+    private ReplayFormat() {}
+
+    static String segmentName(int segment) {
+        return String.format("frames-%05d.bin", segment);
+    }
+
+    static long position(int segment, long offset) {
+        return ((long) segment << 32) | offset;
+    }
+
+    static int segmentOf(long position) {
+        return (int) (position >>> 32);
+    }
+
+    static int offsetOf(long position) {
+        return (int) position;
+    }
+
+    static boolean isKeyframe(int frame) {
+        return frame % KEYFRAME_INTERVAL == 0;
+    }
+
+    static int quantize(double value, double scale) {
+        return (int) Math.round(value * scale);
+    }
+
+    static int zigzag(int v) {
+        return (v << 1) ^ (v >> 31);
+    }
+
+    static int unzigzag(int v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    static int readVarint(ByteBuffer in) {
+        int result = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            result |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return result;
+    }
+
+    static int readSigned(ByteBuffer in) {
+        return unzigzag(readVarint(in));
+    }
+
+    /**
+     * Growable byte buffer a frame is encoded into before it is written.
+     */
+    static final class FrameBuffer {
+        private byte[] bytes = new byte[1 << 16];
+        private int size = 0;
+
+        void reset() {
+            size = 0;
+        }
+
+        int size() {
+            return size;
+        }
+
+        byte[] bytes() {
+            return bytes;
+        }
+
+        void writeByte(int b) {
+            ensure(1);
+            bytes[size++] = (byte) b;
+        }
+
+        void writeVarint(int v) {
+            ensure(5);
+            while ((v & ~0x7F) != 0) {
+                bytes[size++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            bytes[size++] = (byte) v;
+        }
+
+        void writeSigned(int v) {
+            writeVarint(zigzag(v));
+        }
+
+        // big-endian, like ByteBuffer.getDouble
+        void writeDouble(double d) {
+            ensure(8);
+            long bits = Double.doubleToLongBits(d);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                bytes[size++] = (byte) (bits >>> shift);
+            }
+        }
+
+        private void ensure(int n) {
+            if (size + n > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(size + n, bytes.length * 2));
+            }
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package de.uni.trafficsim.replay;
+
+import de.uni.trafficsim.manager.TrafficLightStateTracker;
+import de.uni.trafficsim.model.LaneGeometry;
+import de.uni.trafficsim.model.RoadNetwork;
+import de.uni.trafficsim.model.SpatialGrid;
+import de.uni.trafficsim.model.TrafficLight.TrafficLightWrapper;
+
+import java.awt.geom.Point2D;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static de.uni.trafficsim.replay.ReplayFormat.*;
+
+
+/**
+ * Read access to a recorded replay log.
+ * <p>
+ * The frame segments and the time index are memory-mapped, so only the pages that are
+ * actually played are loaded and long runs do not occupy the heap. The road network,
+ * the signals and the vehicle ID table are read into memory when the log is opened.
+ * <p>
+ * Looking up the frame of a simulation time takes constant time, since steps are
+ * recorded at a fixed interval.
+ */
+public class ReplayLog implements Closeable {
+    private final Path directory;
+    private final RoadNetwork network = new RoadNetwork();
+    private final List<TrafficLightWrapper> signals;
+    private final SpatialGrid signalIndex;
+    private final int tlsCount;
+    private final String[] vehicleIds;
+    private final ByteBuffer index;
+    private final int frameCount;
+    private final MappedByteBuffer[] segments;
+    private final List<FileChannel> channels = new ArrayList<>();
+
+    /**
+     * Opens the log in the given directory.
+     *
+     * @param directory directory written by a {@link ReplayRecorder}
+     * @throws IOException if the log is missing, incomplete or of another version
+     */
+    public ReplayLog(Path directory) throws IOException {
+        this.directory = directory;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(directory.resolve(NETWORK_FILE))))) {
+            if (in.readInt() != MAGIC) throw new IOException("not a replay log: " + directory);
+            int version = in.readInt();
+            if (version != VERSION) throw new IOException("unsupported replay log version " + version);
+            readLanes(in);
+            tlsCount = in.readInt();
+            signals = Collections.unmodifiableList(readSignals(in));
+        } catch (NoSuchFileException e) {
+            throw new IOException("replay log is empty or incomplete: " + directory, e);
+        }
+        signalIndex = TrafficLightStateTracker.indexSignals(signals);
+
+        List<String> ids = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(directory.resolve(IDS_FILE))))) {
+            while (true) {
+                ids.add(in.readUTF());
+            }
+        } catch (EOFException end) {
+            // end of the ID table
+        }
+        vehicleIds = ids.toArray(new String[0]);
+
+        index = map(directory.resolve(INDEX_FILE));
+        frameCount = index.capacity() / INDEX_ENTRY_BYTES;
+        int segmentCount = frameCount == 0 ? 0 : segmentOf(position(frameCount - 1)) + 1;
+        segments = new MappedByteBuffer[segmentCount];
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Returns the road network stored in the log.
+     *
+     * @return lane shapes with spatial index, no stop lines
+     */
+    public RoadNetwork getRoadNetwork() {
+        return network;
+    }
+
+    public List<TrafficLightWrapper> getSignals() {
+        return signals;
+    }
+
+    public SpatialGrid getSignalIndex() {
+        return signalIndex;
+    }
+
+    public int getTlsCount() {
+        return tlsCount;
+    }
+
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * Returns the simulation time of a frame.
+     *
+     * @param frame frame number
+     * @return simulation time in seconds
+     */
+    public double getTime(int frame) {
+        return index.getDouble(frame * INDEX_ENTRY_BYTES);
+    }
+
+    public double getStartTime() {
+        return frameCount == 0 ? 0.0 : getTime(0);
+    }
+
+    public double getEndTime() {
+        return frameCount == 0 ? 0.0 : getTime(frameCount - 1);
+    }
+
+    /**
+     * Returns the last frame at or before the given time.
+     * <p>
+     * The frame is computed from the fixed step length; the index is only checked around it.
+     *
+     * @param time simulation time in seconds
+     * @return frame number, clamped to the recorded range; -1 if the log has no frames
+     */
+    public int frameAt(double time) {
+        if (frameCount == 0) return -1;
+        double t0 = getStartTime();
+        double step = frameCount > 1 ? (getEndTime() - t0) / (frameCount - 1) : 1.0;
+        int frame = step > 0 ? (int) Math.floor((time - t0) / step + 1e-6) : 0;
+        frame = Math.max(0, Math.min(frameCount - 1, frame));
+        // only needed if steps were not recorded at a fixed interval
+        while (frame > 0 && getTime(frame) > time + 1e-9) frame--;
+        while (frame < frameCount - 1 && getTime(frame + 1) <= time + 1e-9) frame++;
+        return frame;
+    }
+
+    /**
+     * Returns the interned vehicle ID.
+     *
+     * @param id index in the ID table
+     * @return vehicle ID
+     */
+    String vehicleId(int id) {
+        return vehicleIds[id];
+    }
+
+    // Read-only view of the encoded frame, positioned at its first byte
+    ByteBuffer frameData(int frame) throws IOException {
+        long pos = position(frame);
+        int seg = segmentOf(pos);
+        MappedByteBuffer mapped = segments[seg];
+        if (mapped == null) {
+            mapped = map(directory.resolve(segmentName(seg)));
+            segments[seg] = mapped;
+        }
+        ByteBuffer data = mapped.duplicate();
+        data.position(offsetOf(pos));
+        return data;
+    }
+
+    /**
+     * Releases the mapped files.
+     *
+     * @throws IOException if a file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        for (FileChannel channel : channels) {
+            channel.close();
+        }
+        channels.clear();
+    }
+
+    private long position(int frame) {
+        return index.getLong(frame * INDEX_ENTRY_BYTES + 8);
+    }
+
+    private MappedByteBuffer map(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        channels.add(channel);
+        return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+
+    private void readLanes(DataInputStream in) throws IOException {
+        int laneCount = in.readInt();
+        List<String> ids = new ArrayList<>(laneCount);
+        List<double[]> shapes = new ArrayList<>(laneCount);
+        double[] widths = new double[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            ids.add(in.readUTF());
+            widths[i] = in.readFloat();
+            double[] shape = new double[2 * in.readInt()];
+            for (int c = 0; c < shape.length; c++) shape[c] = in.readFloat();
+            shapes.add(shape);
+        }
+        network.setLanes(new LaneGeometry(ids, shapes, widths));
+    }
+
+    private static List<TrafficLightWrapper> readSignals(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        List<TrafficLightWrapper> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String id = in.readUTF();
+            Point2D pos = new Point2D.Double(in.readDouble(), in.readDouble());
+            double angle = in.readDouble();
+            int tlsIndex = in.readInt();
+            int linkIndex = in.readInt();
+            result.add(new TrafficLightWrapper(id, pos, angle, tlsIndex, linkIndex, 'r'));
+        }
+        return result;
+    }
+}
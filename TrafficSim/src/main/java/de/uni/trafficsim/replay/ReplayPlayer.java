@@ -0,0 +1,139 @@
+package de.uni.trafficsim.replay;
+
+import de.uni.trafficsim.App;
+import de.uni.trafficsim.model.SimulationFrame;
+
+import javax.swing.*;
+import java.io.IOException;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+
+
+/**
+ * Plays a {@link ReplayLog} back in place of a running simulation.
+ * <p>
+ * A Swing timer advances the replay time by the elapsed wall time times the speed
+ * factor and hands the frame at that time to the view, the same way the render clock
+ * of the controller does for live runs. Negative speeds play backwards; {@link #seek}
+ * jumps to any time, e.g. while the user drags a slider.
+ * <p>
+ * All methods must be called on the EDT.
+ */
+public class ReplayPlayer {
+    private static final int TICK_MS = 33;                     // same rate as the live render clock
+
+    private final ReplayLog log;
+    private final ReplayDecoder decoder;
+    private final Consumer<SimulationFrame> frameSink;
+    private final DoubleConsumer timeListener;
+    private final Timer timer = new Timer(TICK_MS, e -> tick());
+
+    private double time;
+    private double speed = 1.0;
+    private long lastTickNanos;
+    private int shownFrame = -1;
+
+    /**
+     * Constructor.
+     * Shows the first frame of the log.
+     *
+     * @param log opened replay log
+     * @param frameSink receives every frame to show, e.g. {@code VisualizationPanel::updateFrame}
+     * @param timeListener receives the replay time after every change
+     */
+    public ReplayPlayer(ReplayLog log, Consumer<SimulationFrame> frameSink, DoubleConsumer timeListener) {
+        this.log = log;
+        this.decoder = new ReplayDecoder(log);
+        this.frameSink = frameSink;
+        this.timeListener = timeListener;
+        seek(log.getStartTime());
+    }
+
+    public ReplayLog getLog() {
+        return log;
+    }
+
+    public double getTime() {
+        return time;
+    }
+
+    public double getSpeed() {
+        return speed;
+    }
+
+    public boolean isPlaying() {
+        return timer.isRunning();
+    }
+
+    /**
+     * Sets the playback speed relative to the recorded simulation time.
+     *
+     * @param speed factor, negative to play backwards; 0 is not allowed
+     * @throws IllegalArgumentException if the speed is 0 or not finite
+     */
+    public void setSpeed(double speed) {
+        if (speed == 0 || !Double.isFinite(speed)) {
+            throw new IllegalArgumentException("speed must be a non-zero finite number");
+        }
+        this.speed = speed;
+    }
+
+    /**
+     * Starts playback; at the end of the log (or its start, when playing backwards) it starts over from the other end.
+     */
+    public void play() {
+        if (log.getFrameCount() == 0 || timer.isRunning()) return;
+        if (speed > 0 && time >= log.getEndTime()) seek(log.getStartTime());
+        if (speed < 0 && time <= log.getStartTime()) seek(log.getEndTime());
+        lastTickNanos = System.nanoTime();
+        timer.start();
+    }
+
+    public void pause() {
+        timer.stop();
+    }
+
+    /**
+     * Shows the frame at the given time.
+     *
+     * @param time simulation time, clamped to the recorded range
+     */
+    public void seek(double time) {
+        this.time = Math.max(log.getStartTime(), Math.min(log.getEndTime(), time));
+        show();
+    }
+
+    /**
+     * Stops playback. The log is not closed.
+     */
+    public void close() {
+        timer.stop();
+    }
+
+    private void tick() {
+        long now = System.nanoTime();
+        double elapsed = (now - lastTickNanos) / 1e9;
+        lastTickNanos = now;
+
+        double next = time + elapsed * speed;
+        if (next >= log.getEndTime() || next <= log.getStartTime()) {
+            timer.stop();                                      // reached an end of the recording
+        }
+        seek(next);
+    }
+
+    // Decodes and hands on the frame at the current time, if it is not shown already
+    private void show() {
+        int frame = log.frameAt(time);
+        if (frame >= 0 && frame != shownFrame) {
+            try {
+                frameSink.accept(decoder.seek(frame));
+                shownFrame = frame;
+            } catch (IOException e) {
+                timer.stop();
+                App.logger.error("Error occurred while reading replay\nError message: {}", e.getMessage());
+            }
+        }
+        timeListener.accept(time);
+    }
+}
@@ -0,0 +1,246 @@
+package de.uni.trafficsim.replay;
+
+import de.uni.trafficsim.model.LaneGeometry;
+import de.uni.trafficsim.model.RoadNetwork;
+import de.uni.trafficsim.model.SimulationFrame;
+import de.uni.trafficsim.model.TrafficLight.TrafficLightWrapper;
+import de.uni.trafficsim.model.VehicleWrapper;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.List;
+
+import static de.uni.trafficsim.replay.ReplayFormat.*;
+
+
+/**
+ * Records the frames of a simulation run into a replay log.
+ * <p>
+ * Stores vehicle positions, angles, speeds, lengths and colors and the traffic light
+ * states of every step, see {@link ReplayFormat} for the layout. The road network is
+ * written with the first frame, so the log can be played back without SUMO.
+ * <p>
+ * Must only be used from the simulation thread.
+ */
+public class ReplayRecorder implements Closeable {
+    private final Path directory;
+    private final RoadNetwork network;
+
+    private final DataOutputStream ids;
+    private final DataOutputStream index;
+    private OutputStream segment;
+    private int segmentCount = 0;
+    private long segmentOffset = 0;
+    private int frameCount = 0;
+    private boolean closed = false;
+
+    // Interned vehicle IDs and the last written values per ID (for the deltas)
+    private final Map<String, Integer> idIndex = new HashMap<>();
+    private int[] lastFrame = new int[0];
+    private int[] lastX = new int[0], lastY = new int[0], lastAngle = new int[0];
+    private int[] lastSpeed = new int[0], lastLength = new int[0], lastRgb = new int[0];
+    private char[][] lastStates = new char[0][];
+
+    private final FrameBuffer buffer = new FrameBuffer();
+    private long[] order = new long[0];                         // id index in the high bits, list index in the low bits
+
+    /**
+     * Constructor.
+     * Creates the log directory.
+     *
+     * @param directory directory for the log files, created if needed
+     * @param network static road network of the run
+     * @throws IOException if the files cannot be created
+     */
+    public ReplayRecorder(Path directory, RoadNetwork network) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.network = network;
+        this.ids = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(directory.resolve(IDS_FILE))));
+        this.index = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(directory.resolve(INDEX_FILE))));
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * Appends the frame of one step.
+     *
+     * @param time simulation time of the step
+     * @param frame frame of the step, read from the live vehicle registry
+     * @throws IOException if the log cannot be written
+     */
+    public void append(double time, SimulationFrame frame) throws IOException {
+        if (closed) throw new IOException("recorder is closed");
+        if (frameCount == 0) {
+            writeNetwork(frame);
+        }
+        encodeFrame(time, frame);
+
+        if (segment == null || segmentOffset + buffer.size() > SEGMENT_BYTES) {
+            rollSegment();
+        }
+        index.writeDouble(time);
+        index.writeLong(position(segmentCount - 1, segmentOffset));
+        segment.write(buffer.bytes(), 0, buffer.size());
+        segmentOffset += buffer.size();
+        frameCount++;
+    }
+
+    /**
+     * Flushes and closes all files of the log.
+     *
+     * @throws IOException if the files cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        try (ids; index) {
+            if (segment != null) segment.close();
+        }
+    }
+
+    private void encodeFrame(double time, SimulationFrame frame) throws IOException {
+        int frameNo = frameCount;
+        boolean key = isKeyframe(frameNo);
+        buffer.reset();
+        buffer.writeByte(key ? FLAG_KEYFRAME : 0);
+        buffer.writeDouble(time);
+
+        // Vehicles sorted by interned ID, so the IDs are stored as small gaps
+        List<VehicleWrapper> vehicles = frame.vehicleManager.getVehicles();
+        int n = vehicles.size();
+        if (order.length < n) order = new long[Math.max(n, order.length * 2)];
+        for (int i = 0; i < n; i++) {
+            order[i] = ((long) intern(vehicles.get(i).getId()) << 32) | i;
+        }
+        Arrays.sort(order, 0, n);
+
+        buffer.writeVarint(n);
+        int prevId = -1;
+        for (int k = 0; k < n; k++) {
+            int id = (int) (order[k] >>> 32);
+            VehicleWrapper v = vehicles.get((int) order[k]);
+            buffer.writeVarint(id - prevId - 1);
+            prevId = id;
+
+            int x = quantize(v.getX(), POSITION_SCALE);
+            int y = quantize(v.getY(), POSITION_SCALE);
+            int angle = quantize(v.getAngle(), ANGLE_SCALE);
+            int speed = quantize(v.getSpeed(), SPEED_SCALE);
+            int length = quantize(v.getLength(), LENGTH_SCALE);
+            int rgb = v.getRgb() & 0xFFFFFF;
+
+            if (key || lastFrame[id] != frameNo - 1) {
+                buffer.writeSigned(x);
+                buffer.writeSigned(y);
+                buffer.writeSigned(angle);
+                buffer.writeSigned(speed);
+                buffer.writeVarint(length);
+                buffer.writeVarint(rgb);
+            } else {
+                int mask = (angle != lastAngle[id] ? CHANGED_ANGLE : 0)
+                        | (speed != lastSpeed[id] ? CHANGED_SPEED : 0)
+                        | (length != lastLength[id] ? CHANGED_LENGTH : 0)
+                        | (rgb != lastRgb[id] ? CHANGED_COLOR : 0);
+                buffer.writeByte(mask);
+                buffer.writeSigned(x - lastX[id]);
+                buffer.writeSigned(y - lastY[id]);
+                if ((mask & CHANGED_ANGLE) != 0) buffer.writeSigned(angle - lastAngle[id]);
+                if ((mask & CHANGED_SPEED) != 0) buffer.writeSigned(speed - lastSpeed[id]);
+                if ((mask & CHANGED_LENGTH) != 0) buffer.writeVarint(length);
+                if ((mask & CHANGED_COLOR) != 0) buffer.writeVarint(rgb);
+            }
+            lastFrame[id] = frameNo;
+            lastX[id] = x;
+            lastY[id] = y;
+            lastAngle[id] = angle;
+            lastSpeed[id] = speed;
+            lastLength[id] = length;
+            lastRgb[id] = rgb;
+        }
+
+        // Traffic lights: all states in keyframes, otherwise only the replaced (copy on write) arrays
+        char[][] states = frame.trafficLightStates == null ? new char[0][] : frame.trafficLightStates;
+        int changed = 0;
+        for (int t = 0; t < states.length; t++) {
+            if (key || t >= lastStates.length || states[t] != lastStates[t]) changed++;
+        }
+        buffer.writeVarint(changed);
+        for (int t = 0; t < states.length; t++) {
+            if (!key && t < lastStates.length && states[t] == lastStates[t]) continue;
+            char[] s = states[t] == null ? new char[0] : states[t];
+            buffer.writeVarint(t);
+            buffer.writeVarint(s.length);
+            for (char c : s) buffer.writeByte(c);
+        }
+        lastStates = states;
+    }
+
+    // Returns the interned index of a vehicle ID, new IDs are appended to the ID file
+    private int intern(String vehicleId) throws IOException {
+        Integer known = idIndex.get(vehicleId);
+        if (known != null) return known;
+        int id = idIndex.size();
+        idIndex.put(vehicleId, id);
+        ids.writeUTF(vehicleId);
+        if (id >= lastFrame.length) {
+            int size = Math.max(1024, lastFrame.length * 2);
+            lastFrame = Arrays.copyOf(lastFrame, size);
+            Arrays.fill(lastFrame, id, size, Integer.MIN_VALUE);
+            lastX = Arrays.copyOf(lastX, size);
+            lastY = Arrays.copyOf(lastY, size);
+            lastAngle = Arrays.copyOf(lastAngle, size);
+            lastSpeed = Arrays.copyOf(lastSpeed, size);
+            lastLength = Arrays.copyOf(lastLength, size);
+            lastRgb = Arrays.copyOf(lastRgb, size);
+        }
+        return id;
+    }
+
+    private void rollSegment() throws IOException {
+        if (segment != null) segment.close();
+        segment = new BufferedOutputStream(Files.newOutputStream(directory.resolve(segmentName(segmentCount++))), 1 << 16);
+        segmentOffset = 0;
+    }
+
+    // Lane center lines and widths and the signal positions, so replay needs no SUMO
+    private void writeNetwork(SimulationFrame frame) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(directory.resolve(NETWORK_FILE))))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+
+            LaneGeometry lanes = network.getLanes();
+            out.writeInt(lanes.size());
+            for (int i = 0; i < lanes.size(); i++) {
+                out.writeUTF(lanes.id(i));
+                out.writeFloat(lanes.width(i));
+                out.writeInt(lanes.pointCount(i));
+                for (int k = 0; k < lanes.pointCount(i); k++) {
+                    out.writeFloat((float) lanes.x(i, k));
+                    out.writeFloat((float) lanes.y(i, k));
+                }
+            }
+
+            List<TrafficLightWrapper> signals = frame.trafficLights == null ? List.of() : frame.trafficLights;
+            out.writeInt(frame.trafficLightStates == null ? 0 : frame.trafficLightStates.length);
+            out.writeInt(signals.size());
+            for (TrafficLightWrapper s : signals) {
+                out.writeUTF(s.getId());
+                out.writeDouble(s.getPosition().getX());
+                out.writeDouble(s.getPosition().getY());
+                out.writeDouble(s.getAngle());
+                out.writeInt(s.getTlsIndex());
+                out.writeInt(s.getLinkIndex());
+            }
+        }
+    }
+}
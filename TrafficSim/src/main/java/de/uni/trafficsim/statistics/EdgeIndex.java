@@ -0,0 +1,59 @@
+package de.uni.trafficsim.statistics;
+import java.util.*;
+
+
+/**
+ * Interned edge IDs mapped to dense indices 0..n-1.
+ * <p>
+ * Built once per simulation run; all per-step edge columns use these indices,
+ * so edge IDs never have to be hashed or copied while stepping.
+ */
+public final class EdgeIndex {
+    private final List<String> ids;
+    private final Map<String, Integer> indices;
+
+    /**
+     * Constructor.
+     * Assigns indices in iteration order of the given IDs.
+     *
+     * @param edgeIds edge IDs (duplicates are not allowed)
+     * @throws IllegalArgumentException if an ID occurs twice
+     */
+    public EdgeIndex(Collection<String> edgeIds) {
+        this.ids = List.copyOf(edgeIds);
+        this.indices = new HashMap<>(ids.size() * 2);
+        for (int i = 0; i < ids.size(); i++) {
+            if (indices.put(ids.get(i), i) != null) {
+                throw new IllegalArgumentException("duplicate edge ID: " + ids.get(i));
+            }
+        }
+    }
+
+    public int size() {
+        return ids.size();
+    }
+
+    public String id(int index) {
+        return ids.get(index);
+    }
+
+    /**
+     * Returns the dense index of an edge.
+     *
+     * @param edgeId edge ID
+     * @return index, or -1 if the edge is unknown
+     */
+    public int indexOf(String edgeId) {
+        Integer i = indices.get(edgeId);
+        return i == null ? -1 : i;
+    }
+
+    /**
+     * Returns all IDs ordered by index.
+     *
+     * @return immutable list of edge IDs
+     */
+    public List<String> ids() {
+        return ids;
+    }
+}
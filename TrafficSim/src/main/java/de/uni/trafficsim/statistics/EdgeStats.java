@@ -0,0 +1,117 @@
+package de.uni.trafficsim.statistics;
+
+
+/**
+ * Read-only, columnar view of the per-edge statistics of one simulation step.
+ * <p>
+ * Values are stored in parallel primitive arrays indexed by the dense edge index of
+ * an {@link EdgeIndex}, so a step needs a few arrays instead of one object per edge.
+ * Density is derived from vehicle count and edge length on access; the averages over all
+ * edges are computed once when the statistics are created.
+ */
+public final class EdgeStats {
+    /** Statistics without any edges. */
+    public static final EdgeStats EMPTY = new EdgeStats(new EdgeIndex(java.util.List.of()), EdgeStepValues.ofSize(0));
+
+    private final EdgeIndex index;
+    private final int[] vehicleCount;
+    private final double[] meanSpeedMs;
+    private final double[] occupancyPercent;
+    private final double[] lengthMeters;
+    private final double averageDensityPerKm;
+    private final double averageOccupancyPercent;
+
+    /**
+     * Constructor.
+     * Wraps the values without copying; they must not be modified afterwards.
+     *
+     * @param index edge index the values are ordered by
+     * @param values per-edge values of the step
+     * @throws IllegalArgumentException if the arrays do not match the index size
+     */
+    public EdgeStats(EdgeIndex index, EdgeStepValues values) {
+        int n = index.size();
+        if (values.vehicleNumber().length != n || values.meanSpeedMs().length != n
+                || values.occupancyPercent().length != n || values.lengthMeters().length != n) {
+            throw new IllegalArgumentException("value arrays must match the edge index size");
+        }
+        this.index = index;
+        this.vehicleCount = values.vehicleNumber();
+        this.meanSpeedMs = values.meanSpeedMs();
+        this.occupancyPercent = values.occupancyPercent();
+        this.lengthMeters = values.lengthMeters();
+
+        // both averages in one pass, so readers (dashboard, export) get them in O(1)
+        double densitySum = 0.0;
+        double occupancySum = 0.0;
+        int occupancyCount = 0;
+        for (int i = 0; i < n; i++) {
+            densitySum += densityPerKm(i);
+            double occ = occupancyPercent[i];
+            if (occ >= 0) {
+                occupancySum += occ;
+                occupancyCount++;
+            }
+        }
+        this.averageDensityPerKm = n == 0 ? 0.0 : densitySum / n;
+        this.averageOccupancyPercent = occupancyCount == 0 ? 0.0 : occupancySum / occupancyCount;
+    }
+
+    public EdgeIndex index() { return index; }
+
+    public int size() { return vehicleCount.length; }
+
+    public String id(int i) { return index.id(i); }
+
+    public int vehicleCount(int i) { return vehicleCount[i]; }
+
+    public double meanSpeedMs(int i) { return meanSpeedMs[i]; }
+
+    /** @return occupancy in %, -1 if not available */
+    public double occupancyPercent(int i) { return occupancyPercent[i]; }
+
+    public double lengthMeters(int i) { return lengthMeters[i]; }
+
+    /**
+     * Returns the vehicle density of an edge.
+     *
+     * @param i edge index
+     * @return vehicles per km, 0 if the length is unknown
+     */
+    public double densityPerKm(int i) {
+        double len = lengthMeters[i];
+        return len > 0 ? vehicleCount[i] / (len / 1000.0) : 0.0;
+    }
+
+    /**
+     * Returns the statistics of one edge as a record.
+     * <p>
+     * Allocates, meant for occasional lookups rather than iteration.
+     *
+     * @param edgeId edge ID
+     * @return edge statistics, or null if the edge is unknown
+     */
+    public EdgeSnapshot get(String edgeId) {
+        int i = index.indexOf(edgeId);
+        if (i < 0) return null;
+        return new EdgeSnapshot(vehicleCount[i], meanSpeedMs[i], occupancyPercent[i], densityPerKm(i));
+    }
+
+    /**
+     * Average density over all edges.
+     *
+     * @return mean vehicles per km, 0 if there are no edges
+     */
+    public double averageDensityPerKm() {
+        return averageDensityPerKm;
+    }
+
+    /**
+     * Average occupancy over all edges that report one.
+     *
+     * @return mean occupancy in %, 0 if no edge reports occupancy
+     */
+    public double averageOccupancyPercent() {
+        return averageOccupancyPercent;
+    }
+}
@@ -0,0 +1,28 @@
+package de.uni.trafficsim.statistics;
+
+
+/**
+ * Bulk result holding the raw values of all edges for one simulation step.
+ * <p>
+ * The arrays are parallel: index {@code i} always refers to the edge with
+ * dense index {@code i} in the {@link EdgeIndex} the values were requested for.
+ * The length array holds static data and may be shared between steps.
+ */
+public record EdgeStepValues(
+        int[] vehicleNumber,                    //vehicles on edge in the last step
+        double[] meanSpeedMs,                   //mean speed (m/s)
+        double[] occupancyPercent,              //occupancy in %, -1 if not available
+        double[] lengthMeters                   //length of lane 0 in meters
+) {
+
+    /**
+     * Creates empty value arrays for the given number of edges.
+     *
+     * @param edgeCount number of edges
+     * @return zero-initialized values
+     */
+    public static EdgeStepValues ofSize(int edgeCount) {
+        return new EdgeStepValues(new int[edgeCount], new double[edgeCount],
+                new double[edgeCount], new double[edgeCount]);
+    }
+}
@@ -0,0 +1,74 @@
+package de.uni.trafficsim.statistics;
+
+
+/**
+ * Rolling windows (by default the last 10 s, 60 s and 5 min) over the global metrics of a run.
+ * <p>
+ * Updated by the {@link StatsCollector} once per step; every update costs O(1) per window
+ * and metric, independent of the window length.
+ */
+public final class RollingStats {
+    /** Default window lengths in simulation seconds. */
+    public static final double[] DEFAULT_WINDOWS_SEC = {10.0, 60.0, 300.0};
+    /** Smallest expected step length, sizes the ring buffers. */
+    public static final double MIN_STEP_SEC = 0.1;
+
+    private static final WindowedStats.Metric[] METRICS = WindowedStats.Metric.values();
+
+    private final double[] windowSeconds;
+    private final RollingWindow[][] windows;        // [window][metric]
+
+    /**
+     * Constructor.
+     * Uses the {@link #DEFAULT_WINDOWS_SEC}.
+     */
+    public RollingStats() {
+        this(DEFAULT_WINDOWS_SEC);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param windowSeconds window lengths in simulation seconds
+     */
+    public RollingStats(double... windowSeconds) {
+        this.windowSeconds = windowSeconds.clone();
+        this.windows = new RollingWindow[windowSeconds.length][METRICS.length];
+        for (int w = 0; w < windowSeconds.length; w++) {
+            int capacity = (int) Math.ceil(windowSeconds[w] / MIN_STEP_SEC) + 1;
+            for (int m = 0; m < METRICS.length; m++) {
+                windows[w][m] = new RollingWindow(windowSeconds[w], capacity);
+            }
+        }
+    }
+
+    /**
+     * Adds the metrics of a step to all windows.
+     *
+     * @param time simulation time of the step
+     * @param avgSpeedMs global average speed
+     * @param vehicles vehicles in the simulation
+     * @param stopped stopped vehicles
+     * @param avgDensityPerKm average edge density
+     * @param avgOccupancyPercent average edge occupancy
+     * @return window values including this step
+     */
+    public WindowedStats add(double time, double avgSpeedMs, int vehicles, int stopped,
+                             double avgDensityPerKm, double avgOccupancyPercent) {
+        double[] values = new double[windowSeconds.length * METRICS.length * 3];
+        int o = 0;
+        for (RollingWindow[] byMetric : windows) {
+            byMetric[WindowedStats.Metric.AVG_SPEED_MS.ordinal()].add(time, avgSpeedMs);
+            byMetric[WindowedStats.Metric.VEHICLES.ordinal()].add(time, vehicles);
+            byMetric[WindowedStats.Metric.STOPPED_VEHICLES.ordinal()].add(time, stopped);
+            byMetric[WindowedStats.Metric.AVG_DENSITY_PER_KM.ordinal()].add(time, avgDensityPerKm);
+            byMetric[WindowedStats.Metric.AVG_OCCUPANCY_PERCENT.ordinal()].add(time, avgOccupancyPercent);
+            for (RollingWindow window : byMetric) {
+                values[o++] = window.mean();
+                values[o++] = window.min();
+                values[o++] = window.max();
+            }
+        }
+        return new WindowedStats(windowSeconds, values);
+    }
+}
@@ -0,0 +1,111 @@
+package de.uni.trafficsim.statistics;
+
+
+/**
+ * Mean, minimum and maximum of a value over the last few seconds of simulation time.
+ * <p>
+ * Samples are kept in a fixed-size ring buffer. A running sum gives the mean; two
+ * monotonic queues, stored in ring buffers as well, give the minimum and maximum.
+ * Adding a sample and reading the values are O(1) (amortized) and allocate nothing.
+ * <p>
+ * Not thread-safe.
+ */
+public final class RollingWindow {
+    private final double durationSec;
+    private final int capacity;
+
+    // Samples [first, end) by sequence number, stored at sequence % capacity
+    private final double[] times;
+    private final double[] values;
+    private long first = 0;
+    private long end = 0;
+    private double sum = 0.0;
+
+    // Sequence numbers of samples with increasing values (min) / decreasing values (max)
+    private final long[] minQueue;
+    private final long[] maxQueue;
+    private long minHead = 0, minTail = 0;
+    private long maxHead = 0, maxTail = 0;
+
+    /**
+     * Constructor.
+     *
+     * @param durationSec length of the window in simulation seconds
+     * @param capacity maximum number of samples; older samples are dropped early if exceeded
+     * @throws IllegalArgumentException if duration or capacity are not positive
+     */
+    public RollingWindow(double durationSec, int capacity) {
+        if (!(durationSec > 0) || capacity < 1) {
+            throw new IllegalArgumentException("duration and capacity must be positive");
+        }
+        this.durationSec = durationSec;
+        this.capacity = capacity;
+        this.times = new double[capacity];
+        this.values = new double[capacity];
+        this.minQueue = new long[capacity];
+        this.maxQueue = new long[capacity];
+    }
+
+    /**
+     * Adds the value of a step; samples older than the window are dropped.
+     *
+     * @param time simulation time of the step, not smaller than the previous one
+     * @param value value of the step
+     */
+    public void add(double time, double value) {
+        while (end > first && (times[slot(first)] <= time - durationSec || end - first >= capacity)) {
+            evictFirst();
+        }
+
+        int i = slot(end);
+        times[i] = time;
+        values[i] = value;
+        sum += value;
+
+        while (minTail > minHead && values[slot(minQueue[slot(minTail - 1)])] >= value) minTail--;
+        minQueue[slot(minTail++)] = end;
+        while (maxTail > maxHead && values[slot(maxQueue[slot(maxTail - 1)])] <= value) maxTail--;
+        maxQueue[slot(maxTail++)] = end;
+        end++;
+    }
+
+    public double getDurationSec() {
+        return durationSec;
+    }
+
+    public int size() {
+        return (int) (end - first);
+    }
+
+    /** @return mean of the samples in the window, 0 if empty */
+    public double mean() {
+        return end == first ? 0.0 : sum / (end - first);
+    }
+
+    /** @return smallest sample in the window, 0 if empty */
+    public double min() {
+        return end == first ? 0.0 : values[slot(minQueue[slot(minHead)])];
+    }
+
+    /** @return largest sample in the window, 0 if empty */
+    public double max() {
+        return end == first ? 0.0 : values[slot(maxQueue[slot(maxHead)])];
+    }
+
+    private void evictFirst() {
+        if (minQueue[slot(minHead)] == first) minHead++;
+        if (maxQueue[slot(maxHead)] == first) maxHead++;
+        first++;
+        if (first % capacity == 0) {
+            // recompute once per buffer round, so rounding errors of the running sum do not add up
+            sum = 0.0;
+            for (long s = first; s < end; s++) sum += values[slot(s)];
+        } else {
+            sum -= values[slot(first - 1)];
+        }
+    }
+
+    private int slot(long sequence) {
+        return (int) (sequence % capacity);
+    }
+}
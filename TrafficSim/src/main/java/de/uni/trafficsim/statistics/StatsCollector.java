@@ -6,25 +6,27 @@ import java.util.*;
 /**
  * Collects aggregated simulation statistics for a single time step.
  * <p>
- * Computes global vehicle metrics and per-edge snapshots using a SUMO edge API.
+ * Computes global vehicle metrics and per-edge snapshots using a SUMO edge API,
+ * and keeps rolling windows over the global metrics of the run.
  */
 public final class StatsCollector {
 
     private final SumoEdgeApi edgeApi;                      //for reading edge-data from SUMO
-    private final List<String> edgeIds;
+    private final EdgeIndex edgeIndex;                      //edge IDs interned to dense indices
+    private final RollingStats rolling = new RollingStats(); //10 s / 60 s / 5 min windows
 
     private double sumCo2 = 0.0;
     private double sumFuel = 0.0;
 
     /**
      * Constructor.
-     * Creates a collector using the given edge API.
+     * Creates a collector using the given edge API and interns its edge IDs.
      *
      * @param edgeApi API used to query per-edge statistics
      */
     public StatsCollector(SumoEdgeApi edgeApi) {
         this.edgeApi = Objects.requireNonNull(edgeApi);
-        this.edgeIds = List.copyOf(edgeApi.getIdList());     //initializing edge collection, Copies edge ID list once and makes it immutable
+        this.edgeIndex = new EdgeIndex(edgeApi.getIdList());   //initializing edge collection, interns edge IDs once
     }
 
     
@@ -70,8 +72,12 @@ public final class StatsCollector {
             globalAvgSpeedMs = sumSpeed / totalVehicles;
         }
 
-        //Per-edge Snapshots
-        Map<String, EdgeSnapshot> edges = getStringEdgeSnapshotMap();
+        //Per-edge statistics, columnar (no per-edge objects)
+        EdgeStats edges = new EdgeStats(edgeIndex, edgeApi.fetchStep(edgeIndex));
+
+        //Rolling windows, updated incrementally with this step
+        WindowedStats windows = rolling.add(simTimeSec, globalAvgSpeedMs, totalVehicles, stoppedVehicles,
+                edges.averageDensityPerKm(), edges.averageOccupancyPercent());
 
         //build Snapshot
         return new StatsSnapshot(
@@ -82,45 +88,9 @@ public final class StatsCollector {
                 sumCo2,
                 sumFuel,
                 arrivedVehiclesTotal,
-                Map.copyOf(edges)
+                edges,
+                windows
         );
     }
 
-
-    /**
-     * Builds a map of per-edge statistics for the current step.
-     * <p>
-     * For each edge ID, queries SUMO for vehicle count, mean speed, occupancy,
-     * and length, computes density (vehicles per km), and stores the results
-     * in an {@link EdgeSnapshot}.
-     *
-     * @return map of edge ID to computed edge statistics
-     */
-    private Map<String, EdgeSnapshot> getStringEdgeSnapshotMap() {
-        Map<String, EdgeSnapshot> edges = new HashMap<>(edgeIds.size());                    //Mapping edgeIds to EdgeSnapshot
-        for (String edgeId : edgeIds) {                                                     //for every edgeId in List
-            int n = edgeApi.getLastStepVehicleNumber(edgeId);                               //n = number of vehicles in edge
-            double meanSpeedMs = edgeApi.getLastStepMeanSpeed(edgeId);                      //avg speed on edge
-
-            double occupancy;
-            try {
-                occupancy = edgeApi.getLastStepOccupancy(edgeId);                            //get occupancy
-            } catch (Exception ex) {
-                occupancy = -1.0;                                                            //-1 if not available
-            }
-
-            //calculating density per km
-            double lengthMeters = edgeApi.getLengthMeters(edgeId);
-
-            double densityPerKm;
-            if (lengthMeters > 0) {
-                densityPerKm = n / (lengthMeters / 1000.0);   // vehicles per km
-            } else {
-                densityPerKm = 0.0;
-            }
-            //builds EdgeSnapshot Object with edge data and saves it in the Map
-            edges.put(edgeId, new EdgeSnapshot(n, meanSpeedMs, occupancy, densityPerKm));
-        }
-        return edges;
-    }
-}
\ No newline at end of file
+}
@@ -1,11 +1,10 @@
 package de.uni.trafficsim.statistics;
-import java.util.Map;
 
 
 /**
  * Immutable snapshot of statistics for a single simulation step.
  * <p>
- * Holds global metrics and per-edge statistics.
+ * Holds global metrics, per-edge statistics and the rolling windows over the global metrics.
  */
 public record StatsSnapshot (                   //record class (pure data class), automatically creates getters
         double simulationTimeSec,              //Simulation Time in Seconds
@@ -15,5 +14,17 @@ public record StatsSnapshot (                   //record class (pure data class)
         double totalCo2Kg,                     // total CO2 (kg) for this step
         double totalFuelL,                     // total fuel (L) for this step
         int arrivedVehiclesTotal,              // cumulative arrived vehicles count up to this step
-        Map<String, EdgeSnapshot> edges        //Mapping edgeId to Edgesnapshot
-) {}
\ No newline at end of file
+        EdgeStats edges,                       //columnar per-edge statistics, indexed by dense edge index
+        WindowedStats windows                  //rolling mean/min/max up to this step
+) {
+
+    /**
+     * Constructor.
+     * Creates a snapshot without window values.
+     */
+    public StatsSnapshot(double simulationTimeSec, double globalAvgSpeedMs, int totalVehicles, int stoppedVehicles,
+                         double totalCo2Kg, double totalFuelL, int arrivedVehiclesTotal, EdgeStats edges) {
+        this(simulationTimeSec, globalAvgSpeedMs, totalVehicles, stoppedVehicles, totalCo2Kg, totalFuelL,
+                arrivedVehiclesTotal, edges, WindowedStats.EMPTY);
+    }
+}
@@ -0,0 +1,349 @@
+package de.uni.trafficsim.statistics;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+
+/**
+ * Append-only store for the statistics history of a simulation run.
+ * <p>
+ * Every snapshot is streamed into a rolling binary log on disk (one segment file per
+ * {@code recordsPerSegment} snapshots), only the most recent snapshots are kept in memory
+ * for the UI. Exports read the full history back from disk, so memory use stays bounded
+ * no matter how long the simulation runs.
+ * <p>
+ * Appending is done by the simulation thread; reading the tail or the history is
+ * thread-safe and sees a consistent prefix of the log.
+ */
+public final class StatsStore implements Closeable {
+    private static final int DEFAULT_RECORDS_PER_SEGMENT = 10_000;
+    private static final String EDGE_DICTIONARY = "edges.bin";
+
+    private final Path directory;
+    private final int tailCapacity;
+    private final int recordsPerSegment;
+    private final boolean temporary;                          //delete files on close
+
+    private final ArrayDeque<StatsSnapshot> tail;             //most recent snapshots, bounded
+    private EdgeIndex edgeIndex;                              //edge order used in the log, fixed by the first snapshot
+    private double[] edgeLengths;                             //static edge lengths, written once with the dictionary
+    private DataOutputStream out;                             //writer of the current segment
+    private int segmentCount = 0;
+    private long size = 0;
+    private boolean closed = false;
+    private int openHistories = 0;                            //histories that keep the files of a closed temporary store
+
+    /**
+     * Constructor.
+     * Creates a store writing its log into the given directory.
+     *
+     * @param directory directory for the log files, created if needed
+     * @param tailCapacity number of recent snapshots kept in memory
+     * @throws IOException if the directory cannot be created
+     */
+    public StatsStore(Path directory, int tailCapacity) throws IOException {
+        this(directory, tailCapacity, DEFAULT_RECORDS_PER_SEGMENT, false);
+    }
+
+    private StatsStore(Path directory, int tailCapacity, int recordsPerSegment, boolean temporary) throws IOException {
+        if (tailCapacity < 1 || recordsPerSegment < 1) {
+            throw new IllegalArgumentException("capacities must be positive");
+        }
+        this.directory = Files.createDirectories(directory);
+        this.tailCapacity = tailCapacity;
+        this.recordsPerSegment = recordsPerSegment;
+        this.temporary = temporary;
+        this.tail = new ArrayDeque<>(tailCapacity);
+    }
+
+    /**
+     * Creates a store in a new temporary directory that is deleted on {@link #close()}.
+     *
+     * @param tailCapacity number of recent snapshots kept in memory
+     * @return new temporary store
+     * @throws IOException if the directory cannot be created
+     */
+    public static StatsStore createTemporary(int tailCapacity) throws IOException {
+        Path dir = Files.createTempDirectory("trafficsim-stats");
+        dir.toFile().deleteOnExit();
+        return new StatsStore(dir, tailCapacity, DEFAULT_RECORDS_PER_SEGMENT, true);
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Appends a snapshot to the log and the in-memory tail.
+     *
+     * @param snap snapshot to store
+     * @throws IOException if the log cannot be written
+     */
+    public synchronized void append(StatsSnapshot snap) throws IOException {
+        Objects.requireNonNull(snap);
+        if (closed) throw new IOException("store is closed");
+
+        if (edgeIndex == null) {
+            writeEdgeDictionary(snap.edges());
+        } else if (snap.edges().index() != edgeIndex) {
+            throw new IllegalArgumentException("all snapshots of a store must use the same edge index");
+        }
+        if (size % recordsPerSegment == 0) {
+            rollSegment();
+        }
+        writeRecord(out, snap);
+        size++;
+
+        if (tail.size() == tailCapacity) {
+            tail.removeFirst();
+        }
+        tail.addLast(snap);
+    }
+
+    /**
+     * Returns the most recent snapshot.
+     *
+     * @return latest snapshot, or null if nothing was stored yet
+     */
+    public synchronized StatsSnapshot latest() {
+        return tail.peekLast();
+    }
+
+    /**
+     * Returns a copy of the in-memory tail, oldest first.
+     *
+     * @return recent snapshots
+     */
+    public synchronized List<StatsSnapshot> tail() {
+        return new ArrayList<>(tail);
+    }
+
+    /**
+     * Returns the number of snapshots stored so far.
+     *
+     * @return number of snapshots
+     */
+    public synchronized long size() {
+        return size;
+    }
+
+    /**
+     * Returns the full history as it is at the time of the call.
+     * <p>
+     * Snapshots are read lazily from disk while iterating; snapshots appended later
+     * are not included. I/O errors while iterating are thrown as {@link UncheckedIOException}.
+     *
+     * @return iterable over all stored snapshots, oldest first
+     * @throws IOException if the pending data cannot be flushed to disk
+     */
+    public Iterable<StatsSnapshot> history() throws IOException {
+        return createHistory(false);
+    }
+
+    /**
+     * Opens the full history as it is at the time of the call, for reading from another thread.
+     * <p>
+     * Like {@link #history()}, but the log files stay readable until the history is closed,
+     * even if the store is closed (and a temporary store deleted) in the meantime.
+     *
+     * @return open history, must be closed after reading
+     * @throws IOException if the store is closed or the pending data cannot be flushed to disk
+     */
+    public History openHistory() throws IOException {
+        synchronized (this) {
+            if (closed) throw new IOException("store is closed");
+        }
+        return createHistory(true);
+    }
+
+    private History createHistory(boolean pinned) throws IOException {
+        synchronized (this) {
+            if (out != null) out.flush();
+            if (pinned) openHistories++;
+            EdgeIndex index = edgeIndex == null ? EdgeStats.EMPTY.index() : edgeIndex;
+            double[] lengths = edgeLengths == null ? new double[0] : edgeLengths;
+            return new History(size, index, lengths, pinned);
+        }
+    }
+
+    // Last open history of a closed temporary store deletes the files
+    private synchronized void release() throws IOException {
+        if (--openHistories == 0 && closed && temporary) {
+            deleteFiles();
+        }
+    }
+
+    /**
+     * Closes the log; a temporary store also deletes its files.
+     *
+     * @throws IOException if the log cannot be closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        if (out != null) out.close();
+        tail.clear();
+        if (temporary && openHistories == 0) {
+            deleteFiles();
+        }
+    }
+
+    private void deleteFiles() throws IOException {
+        try (var files = Files.list(directory)) {
+            for (Path p : (Iterable<Path>) files::iterator) {
+                Files.deleteIfExists(p);
+            }
+        }
+        Files.deleteIfExists(directory);
+    }
+
+    private Path segmentPath(int segment) {
+        return directory.resolve(String.format("stats-%05d.log", segment));
+    }
+
+    // Starts a new segment file, the previous one is complete
+    private void rollSegment() throws IOException {
+        if (out != null) out.close();
+        out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(segmentPath(segmentCount++)), 1 << 16));
+    }
+
+    // Fixes the edge order of the log and writes IDs and lengths once, records only contain the values
+    private void writeEdgeDictionary(EdgeStats edges) throws IOException {
+        edgeIndex = edges.index();
+        edgeLengths = new double[edges.size()];
+        try (DataOutputStream d = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(directory.resolve(EDGE_DICTIONARY))))) {
+            d.writeInt(edges.size());
+            for (int i = 0; i < edges.size(); i++) {
+                edgeLengths[i] = edges.lengthMeters(i);
+                d.writeUTF(edges.id(i));
+                d.writeDouble(edgeLengths[i]);
+            }
+        }
+    }
+
+    // Record layout: global values, then (count, speed, occupancy) for every edge in index order
+    private static void writeRecord(DataOutputStream o, StatsSnapshot s) throws IOException {
+        o.writeDouble(s.simulationTimeSec());
+        o.writeDouble(s.globalAvgSpeedMs());
+        o.writeInt(s.totalVehicles());
+        o.writeInt(s.stoppedVehicles());
+        o.writeDouble(s.totalCo2Kg());
+        o.writeDouble(s.totalFuelL());
+        o.writeInt(s.arrivedVehiclesTotal());
+        EdgeStats e = s.edges();
+        for (int i = 0; i < e.size(); i++) {
+            o.writeInt(e.vehicleCount(i));
+            o.writeDouble(e.meanSpeedMs(i));
+            o.writeDouble(e.occupancyPercent(i));
+        }
+    }
+
+    private static StatsSnapshot readRecord(DataInputStream in, EdgeIndex index, double[] lengths) throws IOException {
+        double time = in.readDouble();
+        double avgSpeed = in.readDouble();
+        int total = in.readInt();
+        int stopped = in.readInt();
+        double co2 = in.readDouble();
+        double fuel = in.readDouble();
+        int arrived = in.readInt();
+        int n = index.size();
+        EdgeStepValues values = new EdgeStepValues(new int[n], new double[n], new double[n], lengths);
+        for (int i = 0; i < n; i++) {
+            values.vehicleNumber()[i] = in.readInt();
+            values.meanSpeedMs()[i] = in.readDouble();
+            values.occupancyPercent()[i] = in.readDouble();
+        }
+        return new StatsSnapshot(time, avgSpeed, total, stopped, co2, fuel, arrived, new EdgeStats(index, values));
+    }
+
+    /**
+     * Snapshots of a store up to a fixed count, read lazily from disk.
+     * <p>
+     * Can be iterated several times. Histories from {@link #openHistory()} keep the log
+     * files until {@link #close()} is called; closing other histories does nothing.
+     */
+    public final class History implements Iterable<StatsSnapshot>, Closeable {
+        private final long count;
+        private final EdgeIndex index;
+        private final double[] lengths;
+        private boolean pinned;
+
+        private History(long count, EdgeIndex index, double[] lengths, boolean pinned) {
+            this.count = count;
+            this.index = index;
+            this.lengths = lengths;
+            this.pinned = pinned;
+        }
+
+        /** @return number of snapshots in this history */
+        public long size() {
+            return count;
+        }
+
+        @Override
+        public Iterator<StatsSnapshot> iterator() {
+            return new HistoryIterator(count, index, lengths);
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            if (!pinned) return;
+            pinned = false;
+            release();
+        }
+    }
+
+    // Reads count records segment by segment
+    private final class HistoryIterator implements Iterator<StatsSnapshot> {
+        private final long count;
+        private final EdgeIndex index;
+        private final double[] lengths;
+        private long read = 0;
+        private DataInputStream in;
+
+        HistoryIterator(long count, EdgeIndex index, double[] lengths) {
+            this.count = count;
+            this.index = index;
+            this.lengths = lengths;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (read < count) return true;
+            closeSegment();
+            return false;
+        }
+
+        @Override
+        public StatsSnapshot next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            try {
+                if (read % recordsPerSegment == 0) {
+                    closeSegment();
+                    int segment = (int) (read / recordsPerSegment);
+                    in = new DataInputStream(new BufferedInputStream(Files.newInputStream(segmentPath(segment)), 1 << 16));
+                }
+                StatsSnapshot s = readRecord(in, index, lengths);
+                read++;
+                return s;
+            } catch (IOException e) {
+                closeSegment();
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void closeSegment() {
+            if (in == null) return;
+            try {
+                in.close();
+            } catch (IOException ignored) {
+                // read-only stream, nothing to recover
+            }
+            in = null;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package de.uni.trafficsim.statistics;
+import de.uni.trafficsim.backend.SumoBackend;
+
+import java.util.*;
+
+
+/**
+ * Batched edge API based on TraCI edge variable subscriptions.
+ * <p>
+ * Subscribes every edge once to vehicle number, mean speed and occupancy and
+ * caches the static lane-0 lengths at construction. After each step all edge
+ * values are read from a single subscription result instead of four calls per edge.
+ * <p>
+ * Must be created after SUMO was started and only be used from the simulation thread.
+ */
+public final class SubscribedEdgeApi extends SumoEdgeApi {
+    private final List<String> edgeIds;
+    private final Map<String, Double> lengths;              //static lane-0 length per edge, read once
+
+    // lengths ordered by the edge index passed to fetchStep, shared by all steps
+    private EdgeIndex lengthsIndex;
+    private double[] indexedLengths;
+
+    /**
+     * Constructor.
+     * Reads the edge list and lane lengths once and subscribes all edges.
+     *
+     * @param backend SUMO backend of the running simulation
+     */
+    public SubscribedEdgeApi(SumoBackend backend) {
+        super(backend);
+        this.edgeIds = List.copyOf(backend.getEdgeIds());
+        this.lengths = new HashMap<>(edgeIds.size() * 2);
+        for (String edgeId : edgeIds) {
+            lengths.put(edgeId, super.getLengthMeters(edgeId));
+            backend.subscribeEdge(edgeId);
+        }
+    }
+
+    @Override
+    public List<String> getIdList() {
+        return edgeIds;
+    }
+
+    /**
+     * Returns the cached length of the edge (lane 0).
+     *
+     * @param edgeId edge ID
+     * @return length in meters, 0 if the edge is unknown
+     */
+    @Override
+    public double getLengthMeters(String edgeId) {
+        return lengths.getOrDefault(edgeId, 0.0);
+    }
+
+    /**
+     * Reads the values of all given edges from the latest subscription result.
+     * <p>
+     * Edges without a result (e.g. not subscribed) keep zero values and an occupancy of -1.
+     * The returned length array is cached and shared between steps.
+     *
+     * @param edges edge index, defines the order of the result arrays
+     * @return values of all edges
+     */
+    @Override
+    public EdgeStepValues fetchStep(EdgeIndex edges) {
+        int n = edges.size();
+        EdgeStepValues values = new EdgeStepValues(new int[n], new double[n], new double[n], lengthsFor(edges));
+        Arrays.fill(values.occupancyPercent(), -1.0);
+
+        backend.readEdgeSubscriptions((edgeId, vehicleNumber, meanSpeed, occupancy) -> {
+            int i = edges.indexOf(edgeId);
+            if (i < 0) return;
+
+            values.vehicleNumber()[i] = vehicleNumber;
+            values.meanSpeedMs()[i] = meanSpeed;
+            values.occupancyPercent()[i] = occupancy;
+        });
+        return values;
+    }
+
+    // Cached lengths in index order; the collector always passes the same index
+    private double[] lengthsFor(EdgeIndex edges) {
+        if (edges != lengthsIndex) {
+            double[] arr = new double[edges.size()];
+            for (int i = 0; i < arr.length; i++) {
+                arr[i] = getLengthMeters(edges.id(i));
+            }
+            indexedLengths = arr;
+            lengthsIndex = edges;
+        }
+        return indexedLengths;
+    }
+}
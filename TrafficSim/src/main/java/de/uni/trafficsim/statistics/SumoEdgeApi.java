@@ -1,6 +1,6 @@
 package de.uni.trafficsim.statistics;
-import org.eclipse.sumo.libtraci.Edge;
-import org.eclipse.sumo.libtraci.Lane;
+import de.uni.trafficsim.backend.SumoBackend;
+
 import java.util.List;
 
 
@@ -8,8 +8,20 @@ import java.util.List;
  * Wrapper around SUMO edge/lane TraCI calls.
  * <p>
  * Provides access to per-edge metrics used by the statistics collector.
+ * This implementation issues one TraCI call per value and edge, see
+ * {@link SubscribedEdgeApi} for a batched variant.
  */
-public final class SumoEdgeApi {
+public class SumoEdgeApi {
+    protected final SumoBackend backend;
+
+    /**
+     * Constructor.
+     *
+     * @param backend SUMO backend of the running simulation
+     */
+    public SumoEdgeApi(SumoBackend backend) {
+        this.backend = backend;
+    }
 
     /**
     * Returns all edge IDs from SUMO.
@@ -17,7 +29,7 @@ public final class SumoEdgeApi {
      * @return list of edge IDs
      */
     public List<String> getIdList() {
-        return Edge.getIDList();                                
+        return backend.getEdgeIds();
     }
 
     /**
@@ -27,7 +39,7 @@ public final class SumoEdgeApi {
      * @return number of vehicles
      */
     public int getLastStepVehicleNumber(String edgeId) {
-        return Edge.getLastStepVehicleNumber(edgeId);           //How many vehicles were on this edge in the last step?
+        return backend.getEdgeVehicleNumber(edgeId);           //How many vehicles were on this edge in the last step?
     }
 
     /**
@@ -37,7 +49,7 @@ public final class SumoEdgeApi {
      * @return mean speed in m/s
      */
     public double getLastStepMeanSpeed(String edgeId) {
-        return Edge.getLastStepMeanSpeed(edgeId);               
+        return backend.getEdgeMeanSpeed(edgeId);
     }
 
     /**
@@ -47,19 +59,43 @@ public final class SumoEdgeApi {
      * @return occupancy percentage (0–100), or -1 if unavailable
      */
     public double getLastStepOccupancy(String edgeId) {
-        return Edge.getLastStepOccupancy(edgeId);               
+        return backend.getEdgeOccupancy(edgeId);
     }
 
     /**
      * Returns the length of the edge in meters (using lane 0).
-     * onverting edgeId from StatsCollector to laneId format.
+     * Converting edgeId from StatsCollector to laneId format.
      * 
      * @param edgeId edge ID
      * @return length in meters
      */
     public double getLengthMeters(String edgeId) {
         String laneId = edgeId + "_0";                           
-        return Lane.getLength(laneId);
+        return backend.getLaneLength(laneId);
+    }
+
+    /**
+     * Reads the values of all given edges for the current step.
+     * <p>
+     * Queries every edge separately; occupancy is -1 where SUMO cannot provide it.
+     *
+     * @param edges edge index, defines the order of the result arrays
+     * @return values of all edges
+     */
+    public EdgeStepValues fetchStep(EdgeIndex edges) {
+        EdgeStepValues values = EdgeStepValues.ofSize(edges.size());
+        for (int i = 0; i < edges.size(); i++) {
+            String edgeId = edges.id(i);
+            values.vehicleNumber()[i] = getLastStepVehicleNumber(edgeId);
+            values.meanSpeedMs()[i] = getLastStepMeanSpeed(edgeId);
+            try {
+                values.occupancyPercent()[i] = getLastStepOccupancy(edgeId);
+            } catch (Exception ex) {
+                values.occupancyPercent()[i] = -1.0;
+            }
+            values.lengthMeters()[i] = getLengthMeters(edgeId);
+        }
+        return values;
     }
 
 }
\ No newline at end of file
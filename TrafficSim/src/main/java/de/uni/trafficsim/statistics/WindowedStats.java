@@ -0,0 +1,69 @@
+package de.uni.trafficsim.statistics;
+
+import java.util.Arrays;
+
+
+/**
+ * Immutable mean, minimum and maximum of the global metrics over the rolling windows of one step.
+ * <p>
+ * Produced by {@link RollingStats} when the collector builds a snapshot, so readers
+ * like the dashboard get the window values without scanning the history.
+ */
+public final class WindowedStats {
+    /** Used for snapshots without window values, e.g. read back from a statistics log. */
+    public static final WindowedStats EMPTY = new WindowedStats(new double[0], new double[0]);
+
+    /** Global metrics with rolling windows. */
+    public enum Metric {
+        AVG_SPEED_MS,
+        VEHICLES,
+        STOPPED_VEHICLES,
+        AVG_DENSITY_PER_KM,
+        AVG_OCCUPANCY_PERCENT
+    }
+
+    private static final int METRICS = Metric.values().length;
+
+    private final double[] windowSeconds;
+    private final double[] values;          // (window, metric, [mean, min, max])
+
+    WindowedStats(double[] windowSeconds, double[] values) {
+        this.windowSeconds = windowSeconds;
+        this.values = values;
+    }
+
+    public int windowCount() {
+        return windowSeconds.length;
+    }
+
+    /**
+     * Returns the length of a window.
+     *
+     * @param window window index, 0 to {@link #windowCount()} - 1
+     * @return window length in simulation seconds
+     */
+    public double windowSeconds(int window) {
+        return windowSeconds[window];
+    }
+
+    public double mean(Metric metric, int window) {
+        return values[offset(metric, window)];
+    }
+
+    public double min(Metric metric, int window) {
+        return values[offset(metric, window) + 1];
+    }
+
+    public double max(Metric metric, int window) {
+        return values[offset(metric, window) + 2];
+    }
+
+    private static int offset(Metric metric, int window) {
+        return (window * METRICS + metric.ordinal()) * 3;
+    }
+
+    @Override
+    public String toString() {
+        return "WindowedStats" + Arrays.toString(windowSeconds);
+    }
+}
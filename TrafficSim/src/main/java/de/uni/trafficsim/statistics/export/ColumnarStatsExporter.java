@@ -0,0 +1,315 @@
+package de.uni.trafficsim.statistics.export;
+
+import de.uni.trafficsim.statistics.EdgeIndex;
+import de.uni.trafficsim.statistics.EdgeStats;
+import de.uni.trafficsim.statistics.StatsSnapshot;
+import de.uni.trafficsim.statistics.StatsStore;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.zip.Deflater;
+
+
+/**
+ * Exports the global and per-edge statistics history to a compressed columnar file.
+ * <p>
+ * The history is cut into row groups; every {@link StatsColumn} of a row group is stored as
+ * one deflate compressed chunk, so a reader can load a single metric for a time range without
+ * touching the rest of the file. Edge IDs are written once into a dictionary in the footer;
+ * per-edge columns hold one value per snapshot and dictionary entry, in dictionary order.
+ * Edges missing in a snapshot are stored as -1 (counts) or NaN.
+ * <p>
+ * Layout, all little endian:
+ * <pre>
+ * "TSC1" version:int
+ * column chunks
+ * footer: rowCount:long
+ *         edgeCount:int  (id:string lengthMeters:double)*
+ *         columnCount:int  (name:string integer:byte perEdge:byte)*
+ *         groupCount:int  (firstRow:long rows:int edges:int minTime:double maxTime:double
+ *                          (offset:long compressedBytes:int rawBytes:int)*)*
+ * footerBytes:int "TSC1"
+ * </pre>
+ * Strings are an unsigned short byte count followed by UTF-8 bytes. Read the files with
+ * {@link ColumnarStatsReader}.
+ */
+public final class ColumnarStatsExporter {
+
+    /** File extension of columnar exports. */
+    public static final String EXTENSION = ".tsc";
+    static final byte[] MAGIC = {'T', 'S', 'C', '1'};
+    static final int VERSION = 1;
+
+    private static final int MAX_ROWS_PER_GROUP = 65536;
+    private static final int VALUES_PER_GROUP = 1 << 20;          // bounds the memory of one row group
+    private static final int OUT_BUFFER_BYTES = 4 << 20;
+
+    private static final DateTimeFormatter TS =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss");
+
+    private final FileChannel channel;
+    private final ByteBuffer out = ByteBuffer.allocateDirect(OUT_BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private long flushedBytes = 0;
+
+    // Edge dictionary over the whole file
+    private final Map<String, Integer> dictionary = new HashMap<>();
+    private final List<String> edgeIds = new ArrayList<>();
+    private final List<Double> edgeLengths = new ArrayList<>();
+    private EdgeIndex lastIndex;                                   // snapshots usually share one index
+    private int[] remap = new int[0];
+
+    // Row group being filled
+    private int groupEdges = -1;
+    private int groupCapacity;
+    private int groupRows;
+    private long rowCount = 0;
+    private final double[][] globals = new double[StatsColumn.values().length][];
+    private int[] edgeCounts;
+    private double[] edgeSpeeds;
+    private double[] edgeOccupancies;
+    private ByteBuffer raw = ByteBuffer.allocate(0);
+    private final List<long[]> groups = new ArrayList<>();         // firstRow, rows, edges, minTime bits, maxTime bits, (offset, compressed, raw)*
+
+    private ColumnarStatsExporter(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Exports the full history of a statistics store to the export directory in the user's home.
+     * <p>
+     * Snapshots appended while the export runs are not included.
+     *
+     * @param store store holding the statistics history
+     * @return path to the written file
+     * @throws IOException if the history cannot be read or the file cannot be written
+     */
+    public static Path export(StatsStore store) throws IOException {
+        return export(store.history(), StatsCsvExporter.exportDir());
+    }
+
+    /**
+     * Exports a statistics history to a timestamped columnar file in the given directory.
+     * <p>
+     * Creates the directory if needed. The history is streamed, only one row group is held in memory.
+     * If the export fails, the incomplete file is deleted.
+     *
+     * @param history statistics snapshots to export
+     * @param directory target directory
+     * @return path to the written file
+     * @throws IOException if the history cannot be read or the file cannot be written
+     */
+    public static Path export(Iterable<StatsSnapshot> history, Path directory) throws IOException {
+        Files.createDirectories(directory);
+        Path file = directory.resolve("stats_" + LocalDateTime.now().format(TS) + EXTENSION);
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ColumnarStatsExporter w = new ColumnarStatsExporter(ch);
+            try {
+                w.out.put(MAGIC).putInt(VERSION);
+                for (StatsSnapshot s : history) {
+                    w.add(s);
+                }
+                w.finishGroup();
+                w.writeFooter();
+                w.flush();
+            } finally {
+                w.deflater.end();
+            }
+        } catch (UncheckedIOException e) {
+            Files.deleteIfExists(file);
+            throw e.getCause();                                     // reading the history from disk failed
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);                             // no incomplete files, e.g. after a cancelled export
+            throw e;
+        }
+        return file;
+    }
+
+    // Appends one snapshot to the current row group
+    private void add(StatsSnapshot s) throws IOException {
+        EdgeStats edges = s.edges();
+        int[] map = remap(edges.index(), edges);
+        if (edgeIds.size() != groupEdges) {                         // new edges: the group width changes
+            finishGroup();
+            startGroup();
+        } else if (groupRows == groupCapacity) {
+            finishGroup();
+        }
+
+        int row = groupRows++;
+        StatsColumn[] columns = StatsColumn.values();
+        for (int c = 0; c < columns.length; c++) {
+            if (!columns[c].isPerEdge()) globals[c][row] = columns[c].globalValue(s);
+        }
+        int base = row * groupEdges;
+        Arrays.fill(edgeCounts, base, base + groupEdges, -1);
+        Arrays.fill(edgeSpeeds, base, base + groupEdges, Double.NaN);
+        Arrays.fill(edgeOccupancies, base, base + groupEdges, Double.NaN);
+        for (int i = 0; i < map.length; i++) {
+            int k = base + map[i];
+            edgeCounts[k] = edges.vehicleCount(i);
+            edgeSpeeds[k] = edges.meanSpeedMs(i);
+            edgeOccupancies[k] = edges.occupancyPercent(i);
+        }
+    }
+
+    // Maps the indices of a snapshot to dictionary positions, adding unknown edges
+    private int[] remap(EdgeIndex index, EdgeStats edges) {
+        if (index == lastIndex) return remap;
+        int[] map = new int[index.size()];
+        for (int i = 0; i < map.length; i++) {
+            String id = index.id(i);
+            Integer pos = dictionary.get(id);
+            if (pos == null) {
+                pos = edgeIds.size();
+                dictionary.put(id, pos);
+                edgeIds.add(id);
+                edgeLengths.add(edges.lengthMeters(i));
+            }
+            map[i] = pos;
+        }
+        lastIndex = index;
+        remap = map;
+        return map;
+    }
+
+    private void startGroup() {
+        groupEdges = edgeIds.size();
+        groupCapacity = Math.max(1, Math.min(MAX_ROWS_PER_GROUP, VALUES_PER_GROUP / Math.max(1, groupEdges)));
+        groupRows = 0;
+        StatsColumn[] columns = StatsColumn.values();
+        for (int c = 0; c < columns.length; c++) {
+            if (!columns[c].isPerEdge() && (globals[c] == null || globals[c].length < groupCapacity)) {
+                globals[c] = new double[groupCapacity];
+            }
+        }
+        int cells = groupCapacity * groupEdges;
+        if (edgeCounts == null || edgeCounts.length < cells) {
+            edgeCounts = new int[cells];
+            edgeSpeeds = new double[cells];
+            edgeOccupancies = new double[cells];
+        }
+    }
+
+    // Compresses all columns of the current row group
+    private void finishGroup() throws IOException {
+        if (groupRows == 0) return;
+        StatsColumn[] columns = StatsColumn.values();
+        long[] meta = new long[5 + 3 * columns.length];
+        double[] time = globals[StatsColumn.SIMULATION_TIME_SEC.ordinal()];
+        meta[0] = rowCount;
+        meta[1] = groupRows;
+        meta[2] = groupEdges;
+        meta[3] = Double.doubleToLongBits(time[0]);
+        meta[4] = Double.doubleToLongBits(time[groupRows - 1]);
+        for (int c = 0; c < columns.length; c++) {
+            StatsColumn col = columns[c];
+            int values = col.isPerEdge() ? groupRows * groupEdges : groupRows;
+            ByteBuffer data = rawBuffer(values * col.valueBytes());
+            if (col == StatsColumn.EDGE_VEHICLE_COUNT) {
+                data.asIntBuffer().put(edgeCounts, 0, values);
+            } else if (col == StatsColumn.EDGE_MEAN_SPEED_MS) {
+                data.asDoubleBuffer().put(edgeSpeeds, 0, values);
+            } else if (col == StatsColumn.EDGE_OCCUPANCY_PERCENT) {
+                data.asDoubleBuffer().put(edgeOccupancies, 0, values);
+            } else if (col.isInteger()) {
+                for (int r = 0; r < values; r++) data.putInt(r * Integer.BYTES, (int) globals[c][r]);
+            } else {
+                data.asDoubleBuffer().put(globals[c], 0, values);
+            }
+            data.limit(values * col.valueBytes());
+            meta[5 + 3 * c] = position();
+            meta[6 + 3 * c] = deflate(data);
+            meta[7 + 3 * c] = values * (long) col.valueBytes();
+        }
+        groups.add(meta);
+        rowCount += groupRows;
+        groupRows = 0;
+    }
+
+    private ByteBuffer rawBuffer(int bytes) {
+        if (raw.capacity() < bytes) {
+            raw = ByteBuffer.allocate(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        raw.clear();
+        return raw;
+    }
+
+    // Compresses the remaining bytes of data into the output buffer, returns the compressed size
+    private int deflate(ByteBuffer data) throws IOException {
+        long start = position();
+        deflater.reset();
+        deflater.setInput(data);
+        deflater.finish();
+        while (!deflater.finished()) {
+            if (!out.hasRemaining()) flush();
+            deflater.deflate(out);
+        }
+        return (int) (position() - start);
+    }
+
+    private void writeFooter() throws IOException {
+        long footerStart = position();
+        ensure(Long.BYTES + Integer.BYTES);
+        out.putLong(rowCount).putInt(edgeIds.size());
+        for (int i = 0; i < edgeIds.size(); i++) {
+            putString(edgeIds.get(i));
+            ensure(Double.BYTES);
+            out.putDouble(edgeLengths.get(i));
+        }
+        StatsColumn[] columns = StatsColumn.values();
+        ensure(Integer.BYTES);
+        out.putInt(columns.length);
+        for (StatsColumn col : columns) {
+            putString(col.columnName());
+            ensure(2);
+            out.put((byte) (col.isInteger() ? 1 : 0)).put((byte) (col.isPerEdge() ? 1 : 0));
+        }
+        ensure(Integer.BYTES);
+        out.putInt(groups.size());
+        for (long[] g : groups) {
+            ensure(40 + 16 * columns.length);
+            out.putLong(g[0]).putInt((int) g[1]).putInt((int) g[2]).putLong(g[3]).putLong(g[4]);
+            for (int c = 0; c < columns.length; c++) {
+                out.putLong(g[5 + 3 * c]).putInt((int) g[6 + 3 * c]).putInt((int) g[7 + 3 * c]);
+            }
+        }
+        long footerBytes = position() - footerStart;
+        ensure(Integer.BYTES + MAGIC.length);
+        out.putInt((int) footerBytes).put(MAGIC);
+    }
+
+    private void putString(String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) throw new IOException("string too long: " + s.substring(0, 32) + "...");
+        ensure(Short.BYTES + bytes.length);
+        out.putShort((short) bytes.length).put(bytes);
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (out.remaining() < bytes) flush();
+    }
+
+    private long position() {
+        return flushedBytes + out.position();
+    }
+
+    private void flush() throws IOException {
+        out.flip();
+        while (out.hasRemaining()) {
+            flushedBytes += channel.write(out);
+        }
+        out.clear();
+    }
+}
@@ -0,0 +1,217 @@
+package de.uni.trafficsim.statistics.export;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+
+/**
+ * Reads files written by {@link ColumnarStatsExporter}.
+ * <p>
+ * Only the footer is read on open; column chunks are read and decompressed on request,
+ * one column of one row group at a time.
+ */
+public final class ColumnarStatsReader implements Closeable {
+
+    /**
+     * Position and size of one row group.
+     *
+     * @param firstRow index of the first snapshot in the group
+     * @param rows number of snapshots in the group
+     * @param edgeCount number of dictionary edges stored per snapshot in the edge columns
+     * @param minTimeSec simulation time of the first snapshot
+     * @param maxTimeSec simulation time of the last snapshot
+     */
+    public record RowGroup(long firstRow, int rows, int edgeCount, double minTimeSec, double maxTimeSec) {}
+
+    private final FileChannel channel;
+    private final long rowCount;
+    private final List<String> edgeIds;
+    private final double[] edgeLengths;
+    private final StatsColumn[] columns;               // file order, null for columns unknown to this version
+    private final List<RowGroup> groups;
+    private final long[][] chunks;                     // per group: (offset, compressed, raw) per file column
+    private final Inflater inflater = new Inflater();
+
+    /**
+     * Constructor.
+     * Opens the file and reads its footer.
+     *
+     * @param file columnar statistics file
+     * @throws IOException if the file cannot be read or is no columnar statistics file
+     */
+    public ColumnarStatsReader(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            ByteBuffer tail = read(size - 8, 8);
+            int footerBytes = tail.getInt();
+            byte[] magic = new byte[4];
+            tail.get(magic);
+            if (size < 16 || !Arrays.equals(magic, ColumnarStatsExporter.MAGIC)) {
+                throw new IOException("not a columnar statistics file: " + file);
+            }
+            ByteBuffer header = read(4, 4);
+            if (header.getInt() != ColumnarStatsExporter.VERSION) {
+                throw new IOException("unsupported columnar statistics version in " + file);
+            }
+
+            ByteBuffer f = read(size - 8 - footerBytes, footerBytes);
+            rowCount = f.getLong();
+            int edges = f.getInt();
+            List<String> ids = new ArrayList<>(edges);
+            edgeLengths = new double[edges];
+            for (int i = 0; i < edges; i++) {
+                ids.add(getString(f));
+                edgeLengths[i] = f.getDouble();
+            }
+            edgeIds = Collections.unmodifiableList(ids);
+            columns = new StatsColumn[f.getInt()];
+            for (int c = 0; c < columns.length; c++) {
+                columns[c] = StatsColumn.byName(getString(f));
+                f.get();                                // type and scope are implied by the column
+                f.get();
+            }
+            int groupCount = f.getInt();
+            List<RowGroup> g = new ArrayList<>(groupCount);
+            chunks = new long[groupCount][];
+            for (int i = 0; i < groupCount; i++) {
+                g.add(new RowGroup(f.getLong(), f.getInt(), f.getInt(), f.getDouble(), f.getDouble()));
+                long[] meta = new long[3 * columns.length];
+                for (int c = 0; c < columns.length; c++) {
+                    meta[3 * c] = f.getLong();
+                    meta[3 * c + 1] = f.getInt();
+                    meta[3 * c + 2] = f.getInt();
+                }
+                chunks[i] = meta;
+            }
+            groups = Collections.unmodifiableList(g);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e instanceof IOException io ? io : new IOException("corrupt columnar statistics file: " + file, e);
+        }
+    }
+
+    /** @return number of snapshots in the file */
+    public long rowCount() { return rowCount; }
+
+    /** @return edge dictionary; edge columns are ordered by it */
+    public List<String> edgeIds() { return edgeIds; }
+
+    /** @return length of a dictionary edge in meters */
+    public double edgeLengthMeters(int edge) { return edgeLengths[edge]; }
+
+    /** @return row groups, ordered by time */
+    public List<RowGroup> rowGroups() { return groups; }
+
+    /**
+     * Finds the row group containing a simulation time.
+     *
+     * @param timeSec simulation time
+     * @return index of the first group whose last snapshot is at or after the time, or -1 if there is none
+     */
+    public int findRowGroup(double timeSec) {
+        int lo = 0, hi = groups.size() - 1, found = -1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (groups.get(mid).maxTimeSec() >= timeSec) {
+                found = mid;
+                hi = mid - 1;
+            } else {
+                lo = mid + 1;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Reads a floating point column of one row group.
+     * <p>
+     * Edge columns hold {@code rows * edgeCount} values, snapshot by snapshot.
+     *
+     * @param column column to read
+     * @param group row group index
+     * @return decompressed values
+     * @throws IOException if the chunk cannot be read
+     * @throws IllegalArgumentException if the column is an integer column
+     */
+    public double[] readDoubles(StatsColumn column, int group) throws IOException {
+        if (column.isInteger()) throw new IllegalArgumentException(column.columnName() + " is an integer column");
+        ByteBuffer data = readChunk(column, group);
+        double[] values = new double[data.remaining() / Double.BYTES];
+        data.asDoubleBuffer().get(values);
+        return values;
+    }
+
+    /**
+     * Reads an integer column of one row group.
+     * <p>
+     * Edge columns hold {@code rows * edgeCount} values, snapshot by snapshot.
+     *
+     * @param column column to read
+     * @param group row group index
+     * @return decompressed values
+     * @throws IOException if the chunk cannot be read
+     * @throws IllegalArgumentException if the column is a floating point column
+     */
+    public int[] readInts(StatsColumn column, int group) throws IOException {
+        if (!column.isInteger()) throw new IllegalArgumentException(column.columnName() + " is a floating point column");
+        ByteBuffer data = readChunk(column, group);
+        int[] values = new int[data.remaining() / Integer.BYTES];
+        data.asIntBuffer().get(values);
+        return values;
+    }
+
+    private ByteBuffer readChunk(StatsColumn column, int group) throws IOException {
+        int c = Arrays.asList(columns).indexOf(column);
+        if (c < 0) throw new IOException("column not in file: " + column.columnName());
+        long[] meta = chunks[group];
+        ByteBuffer compressed = read(meta[3 * c], (int) meta[3 * c + 1]);
+        ByteBuffer raw = ByteBuffer.allocate((int) meta[3 * c + 2]).order(ByteOrder.LITTLE_ENDIAN);
+        inflater.reset();
+        inflater.setInput(compressed);
+        try {
+            while (raw.hasRemaining() && !inflater.finished()) {
+                if (inflater.inflate(raw) == 0 && inflater.needsInput()) break;
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("corrupt column chunk " + column.columnName() + " in row group " + group, e);
+        }
+        if (raw.hasRemaining()) {
+            throw new IOException("truncated column chunk " + column.columnName() + " in row group " + group);
+        }
+        return raw.flip();
+    }
+
+    private ByteBuffer read(long position, int length) throws IOException {
+        if (position < 0 || length < 0) throw new IOException("invalid file offset");
+        ByteBuffer buf = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buf.hasRemaining()) {
+            if (channel.read(buf, position + buf.position()) < 0) throw new IOException("unexpected end of file");
+        }
+        return buf.flip();
+    }
+
+    private static String getString(ByteBuffer f) {
+        byte[] bytes = new byte[Short.toUnsignedInt(f.getShort())];
+        f.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() throws IOException {
+        inflater.end();
+        channel.close();
+    }
+}
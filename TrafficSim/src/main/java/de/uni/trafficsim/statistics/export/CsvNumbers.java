@@ -0,0 +1,57 @@
+package de.uni.trafficsim.statistics.export;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+
+/**
+ * Appends numbers to CSV rows without {@link String#format}.
+ * <p>
+ * Produces exactly the text of {@code String.format(Locale.US, "%.Nf", v)}: values are
+ * scaled and rounded as longs, only values close to a rounding tie or too large for
+ * a long take the slow {@link BigDecimal} path.
+ */
+final class CsvNumbers {
+    private static final long[] POW10 = {1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L,
+            10_000_000L, 100_000_000L, 1_000_000_000L};
+    private static final double MAX_FAST = 1e15;            // scaled values stay exact in a double
+    private static final double TIE_EPSILON = 1e-6;         // distance to .5 that is checked exactly
+
+    private CsvNumbers() {}
+
+    /**
+     * Appends a value with a fixed number of decimals.
+     *
+     * @param sb target
+     * @param v value
+     * @param decimals digits after the point, 0 to 9
+     */
+    static void appendFixed(StringBuilder sb, double v, int decimals) {
+        if (Double.isNaN(v) || Double.isInfinite(v)) {
+            sb.append(v);                                   // "NaN", "Infinity", "-Infinity" like the formatter
+            return;
+        }
+        boolean negative = Double.doubleToRawLongBits(v) < 0;  // the formatter keeps the sign of -0.0 and -0.001
+        double a = Math.abs(v);
+        double scaled = a * POW10[decimals];
+        double fraction = scaled - Math.floor(scaled);
+        if (negative) sb.append('-');
+        if (scaled >= MAX_FAST || Math.abs(fraction - 0.5) <= Math.max(TIE_EPSILON, 4 * Math.ulp(scaled))) {
+            // the formatter rounds the shortest decimal representation half up
+            sb.append(new BigDecimal(Double.toString(a)).setScale(decimals, RoundingMode.HALF_UP).toPlainString());
+            return;
+        }
+        long units = (long) Math.floor(scaled + 0.5);
+        if (decimals == 0) {
+            sb.append(units);
+            return;
+        }
+        long p = POW10[decimals];
+        sb.append(units / p).append('.');
+        long frac = units % p;
+        for (long d = p / 10; d > frac && d > 1; d /= 10) {
+            sb.append('0');                                 // leading zeros of the fraction
+        }
+        sb.append(frac);
+    }
+}
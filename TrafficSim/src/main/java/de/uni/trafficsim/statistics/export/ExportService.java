@@ -0,0 +1,156 @@
+package de.uni.trafficsim.statistics.export;
+
+import de.uni.trafficsim.App;
+import de.uni.trafficsim.statistics.StatsSnapshot;
+import de.uni.trafficsim.statistics.StatsStore;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Runs statistics exports on background threads.
+ * <p>
+ * An export reads the history of a {@link StatsStore} as it is when the export starts, streamed
+ * from disk without copying it, so the simulation can keep stepping and appending meanwhile.
+ * Progress is reported in snapshots; a cancelled export stops at the next snapshot and leaves no file behind.
+ */
+public final class ExportService implements Closeable {
+
+    /**
+     * Receives the progress of an export, on the export thread.
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+        /**
+         * Called about every percent of the history.
+         *
+         * @param exported snapshots written so far
+         * @param total snapshots in the exported history
+         */
+        void progress(long exported, long total);
+    }
+
+    /**
+     * A submitted export.
+     */
+    public static final class Job {
+        private final CompletableFuture<Path> result = new CompletableFuture<>();
+        private volatile boolean cancelled = false;
+
+        private Job() {}
+
+        /**
+         * Stops the export at the next snapshot; the result then completes with a {@link CancellationException}.
+         */
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        /** @return future of the written file */
+        public CompletableFuture<Path> result() {
+            return result;
+        }
+    }
+
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    private final ExecutorService executor;
+
+    /**
+     * Constructor.
+     *
+     * @param threads number of exports that can run at the same time
+     */
+    public ExportService(int threads) {
+        this.executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "stats-export-" + THREAD_COUNT.incrementAndGet());
+            t.setDaemon(true);
+            t.setPriority(Thread.NORM_PRIORITY - 1);     //the simulation thread has priority
+            return t;
+        });
+    }
+
+    /**
+     * Exports the history of a store to the export directory in the user's home.
+     *
+     * @param store store holding the statistics history
+     * @param exporter exporter writing the file
+     * @param listener progress listener, or null
+     * @return the submitted export
+     */
+    public Job submit(StatsStore store, StatsExporter exporter, ProgressListener listener) {
+        Job job = new Job();
+        executor.execute(() -> run(job, store, exporter, listener));
+        return job;
+    }
+
+    private static void run(Job job, StatsStore store, StatsExporter exporter, ProgressListener listener) {
+        try (StatsStore.History history = store.openHistory()) {
+            long total = history.size();
+            Iterable<StatsSnapshot> tracked = () -> new TrackingIterator(history.iterator(), total, job, listener);
+            Path file = exporter.export(tracked, StatsCsvExporter.exportDir());
+            job.result.complete(file);
+        } catch (CancellationException e) {
+            App.logger.info("Statistics export cancelled");
+            job.result.completeExceptionally(e);
+        } catch (Exception e) {
+            job.result.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Stops all exports and their threads.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    // Counts the snapshots handed to the exporter and stops it when the job is cancelled
+    private static final class TrackingIterator implements Iterator<StatsSnapshot> {
+        private final Iterator<StatsSnapshot> source;
+        private final long total;
+        private final Job job;
+        private final ProgressListener listener;
+        private final long reportEvery;
+        private long exported = 0;
+
+        TrackingIterator(Iterator<StatsSnapshot> source, long total, Job job, ProgressListener listener) {
+            this.source = source;
+            this.total = total;
+            this.job = job;
+            this.listener = listener;
+            this.reportEvery = Math.max(1, total / 100);
+            if (listener != null) listener.progress(0, total);
+        }
+
+        @Override
+        public boolean hasNext() {
+            boolean more = source.hasNext();
+            if (!more && listener != null) listener.progress(exported, total);
+            return more;
+        }
+
+        @Override
+        public StatsSnapshot next() {
+            if (job.cancelled) throw new CancellationException("export cancelled");
+            StatsSnapshot s = source.next();
+            if (++exported % reportEvery == 0 && listener != null) {
+                listener.progress(exported, total);
+            }
+            return s;
+        }
+    }
+}
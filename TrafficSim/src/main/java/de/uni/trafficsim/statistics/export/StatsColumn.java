@@ -0,0 +1,81 @@
+package de.uni.trafficsim.statistics.export;
+
+import de.uni.trafficsim.statistics.EdgeStats;
+import de.uni.trafficsim.statistics.StatsSnapshot;
+
+
+/**
+ * Columns of the columnar statistics export.
+ * <p>
+ * Global columns have one value per snapshot; edge columns have one value per
+ * snapshot and edge, stored snapshot by snapshot in the order of the edge dictionary.
+ */
+public enum StatsColumn {
+    SIMULATION_TIME_SEC("simulationTimeSec", false, false),
+    GLOBAL_AVG_SPEED_MS("globalAvgSpeedMs", false, false),
+    TOTAL_VEHICLES("totalVehicles", true, false),
+    STOPPED_VEHICLES("stoppedVehicles", true, false),
+    TOTAL_CO2_KG("totalCo2Kg", false, false),
+    TOTAL_FUEL_L("totalFuelL", false, false),
+    ARRIVED_VEHICLES_TOTAL("arrivedVehiclesTotal", true, false),
+    AVG_DENSITY_PER_KM("avgDensityVehPerKm", false, false),
+    AVG_OCCUPANCY_PERCENT("avgOccupancyPercent", false, false),
+    EDGE_VEHICLE_COUNT("edgeVehicleCount", true, true),
+    EDGE_MEAN_SPEED_MS("edgeMeanSpeedMs", false, true),
+    EDGE_OCCUPANCY_PERCENT("edgeOccupancyPercent", false, true);
+
+    private final String columnName;
+    private final boolean integer;
+    private final boolean perEdge;
+
+    StatsColumn(String columnName, boolean integer, boolean perEdge) {
+        this.columnName = columnName;
+        this.integer = integer;
+        this.perEdge = perEdge;
+    }
+
+    /** @return name stored in the file */
+    public String columnName() { return columnName; }
+
+    /** @return true for 32 bit integer values, false for 64 bit floating point values */
+    public boolean isInteger() { return integer; }
+
+    /** @return true if the column has one value per edge */
+    public boolean isPerEdge() { return perEdge; }
+
+    /** @return bytes per value */
+    int valueBytes() { return integer ? Integer.BYTES : Double.BYTES; }
+
+    // Global value of a snapshot, as double (integers are exact)
+    double globalValue(StatsSnapshot s) {
+        return switch (this) {
+            case SIMULATION_TIME_SEC -> s.simulationTimeSec();
+            case GLOBAL_AVG_SPEED_MS -> s.globalAvgSpeedMs();
+            case TOTAL_VEHICLES -> s.totalVehicles();
+            case STOPPED_VEHICLES -> s.stoppedVehicles();
+            case TOTAL_CO2_KG -> s.totalCo2Kg();
+            case TOTAL_FUEL_L -> s.totalFuelL();
+            case ARRIVED_VEHICLES_TOTAL -> s.arrivedVehiclesTotal();
+            case AVG_DENSITY_PER_KM -> s.edges().averageDensityPerKm();
+            case AVG_OCCUPANCY_PERCENT -> s.edges().averageOccupancyPercent();
+            default -> throw new IllegalStateException(columnName + " is an edge column");
+        };
+    }
+
+    // Value of one edge, as double (integers are exact)
+    double edgeValue(EdgeStats e, int i) {
+        return switch (this) {
+            case EDGE_VEHICLE_COUNT -> e.vehicleCount(i);
+            case EDGE_MEAN_SPEED_MS -> e.meanSpeedMs(i);
+            case EDGE_OCCUPANCY_PERCENT -> e.occupancyPercent(i);
+            default -> throw new IllegalStateException(columnName + " is a global column");
+        };
+    }
+
+    static StatsColumn byName(String name) {
+        for (StatsColumn c : values()) {
+            if (c.columnName.equals(name)) return c;
+        }
+        return null;
+    }
+}
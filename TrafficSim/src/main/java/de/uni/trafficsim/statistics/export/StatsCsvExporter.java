@@ -1,21 +1,23 @@
 package de.uni.trafficsim.statistics.export;
 
 import de.uni.trafficsim.statistics.StatsSnapshot;
+import de.uni.trafficsim.statistics.StatsStore;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.List;
 
 
 /**
  * Exports simulation statistics to CSV files.
  * <p>
  * Writes a global statistics history into a timestamped file
- * under the user's home directory.
+ * under the user's home directory. The history is streamed, so it can be
+ * read directly from a {@link StatsStore} without loading it into memory.
  */
 public class StatsCsvExporter {
 
@@ -24,7 +26,7 @@ public class StatsCsvExporter {
             DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss");
 
     //Export directory, builds path to TrafficSimExport folder in Users Home-directory
-    private static Path exportDir() throws IOException {            //throws exception if something with directory goes wrong, i.e no access rights
+    static Path exportDir() throws IOException {            //throws exception if something with directory goes wrong, i.e no access rights
         Path dir = Paths.get(System.getProperty("user.home"), "TrafficSimExports");
         Files.createDirectories(dir); // creates directory, if it doesnt already exist
         return dir;  //returns path where csv file is saved (export directory)
@@ -32,70 +34,88 @@ public class StatsCsvExporter {
 
     // --- Csv Export ---
     
+    /**
+     * Exports the full history of a statistics store to a CSV file.
+     * <p>
+     * Snapshots appended while the export runs are not included.
+     *
+     * @param store store holding the statistics history
+     * @return path to the written CSV file
+     * @throws IOException if the history cannot be read or the file cannot be written
+     */
+    public static Path exportGlobalCsv(StatsStore store) throws IOException {
+        return exportGlobalCsv(store.history());
+    }
+
     /**
      * Exports the global statistics history to a CSV file.
      * takes saved statistic history as input
      * <p>
      * Creates the export directory if needed and writes one row per snapshot.
      *
-     * @param history list of statistics snapshots to export
+     * @param history statistics snapshots to export
+     * @return path to the written CSV file
+     * @throws IOException if the file cannot be written
+     */
+    public static Path exportGlobalCsv(Iterable<StatsSnapshot> history) throws IOException {
+        return exportGlobalCsv(history, exportDir());
+    }
+
+    /**
+     * Exports the global statistics history to a CSV file in the given directory.
+     * <p>
+     * Creates the directory if needed and writes one row per snapshot.
+     * If the export fails, the incomplete file is deleted.
+     *
+     * @param history statistics snapshots to export
+     * @param directory target directory
      * @return path to the written CSV file
      * @throws IOException if the file cannot be written
      */
-    public static Path exportGlobalCsv(List<StatsSnapshot> history) throws IOException {
-        Path out = exportDir().resolve("stats_global_" + LocalDateTime.now().format(TS) + ".csv"); //creates file- / pathname
+    public static Path exportGlobalCsv(Iterable<StatsSnapshot> history, Path directory) throws IOException {
+        Files.createDirectories(directory);
+        Path out = directory.resolve("stats_global_" + LocalDateTime.now().format(TS) + ".csv"); //creates file- / pathname
         try (BufferedWriter w = Files.newBufferedWriter(out, StandardCharsets.UTF_8,                    //creates writer w for writing text into file out. (UTF-8 Format)
                 StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {                     //if file already exists, overwrite
 
             //This is the text in the csv file
             w.write("simulationTimeSec;globalAvgSpeedMs;totalVehicles;stoppedVehicles;totalCo2Kg;totalFuelL;arrivedVehiclesTotal;avgDensityVehPerKm;avgOccupancyPercent;edgeCount"); //Header
             w.newLine();
+            StringBuilder line = new StringBuilder(160);       //reused for every row
+            char[] chars = new char[160];
             for (StatsSnapshot s : history) {                  //take the data from all Snapshots in history
-                double time = s.simulationTimeSec();
-                double avgSpeed = s.globalAvgSpeedMs();
-                int edgeCount;
-
-                if (s.edges() == null) {
-                    edgeCount = 0;
-                } else {
-                    edgeCount = s.edges().size();
-                }
-
-                double avgDensity = 0.0;
-                double avgOccupancy = 0.0;
-
-                //calcuclating avergae density and Occupancy, because data in EdgeSnapshot is per Edge
-                if (s.edges() != null && !s.edges().isEmpty()) {
-                    avgDensity = s.edges().values().stream()
-                            .mapToDouble(de.uni.trafficsim.statistics.EdgeSnapshot::densityPerKm)
-                            .filter(v -> v >= 0)
-                            .average()
-                            .orElse(0.0);
+                //average density and occupancy over all edges, precomputed when the EdgeStats were built
+                double avgDensity = s.edges().averageDensityPerKm();
+                double avgOccupancy = s.edges().averageOccupancyPercent();
 
-                    avgOccupancy = s.edges().values().stream()
-                            .mapToDouble(de.uni.trafficsim.statistics.EdgeSnapshot::occupancyPercent)
-                            .filter(v -> v >= 0)
-                            .average()
-                            .orElse(0.0);
-                }
+                //write one snapshot entry, same text as "\"%.2f\";%.3f;%d;%d;%.6f;%.6f;%d;%.3f;%.3f;%d" without String.format
+                line.setLength(0);
+                line.append('"');
+                CsvNumbers.appendFixed(line, s.simulationTimeSec(), 2);
+                line.append("\";");
+                CsvNumbers.appendFixed(line, s.globalAvgSpeedMs(), 3);
+                line.append(';').append(s.totalVehicles());
+                line.append(';').append(s.stoppedVehicles()).append(';');
+                CsvNumbers.appendFixed(line, s.totalCo2Kg(), 6);
+                line.append(';');
+                CsvNumbers.appendFixed(line, s.totalFuelL(), 6);
+                line.append(';').append(s.arrivedVehiclesTotal()).append(';');
+                CsvNumbers.appendFixed(line, avgDensity, 3);
+                line.append(';');
+                CsvNumbers.appendFixed(line, avgOccupancy, 3);
+                line.append(';').append(s.edges().size());
 
-                //write one snapshot entry
-                String line = String.format(java.util.Locale.US,
-                        "\"%.2f\";%.3f;%d;%d;%.6f;%.6f;%d;%.3f;%.3f;%d",
-                        time,
-                        avgSpeed,
-                        s.totalVehicles(),
-                        s.stoppedVehicles(),
-                        s.totalCo2Kg(),
-                        s.totalFuelL(),
-                        s.arrivedVehiclesTotal(),
-                        avgDensity,
-                        avgOccupancy,
-                        edgeCount
-                );
-                w.write(line);
+                if (chars.length < line.length()) chars = new char[line.length() * 2];
+                line.getChars(0, line.length(), chars, 0);
+                w.write(chars, 0, line.length());
                 w.newLine();
             }
+        } catch (UncheckedIOException e) {
+            Files.deleteIfExists(out);
+            throw e.getCause();                                 //reading the history from disk failed
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(out);                          //no incomplete files, e.g. after a cancelled export
+            throw e;
         }
         return out; //returns path to csv file
     }
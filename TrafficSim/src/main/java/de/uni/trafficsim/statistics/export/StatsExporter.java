@@ -0,0 +1,27 @@
+package de.uni.trafficsim.statistics.export;
+
+import de.uni.trafficsim.statistics.StatsSnapshot;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+
+/**
+ * Writes a statistics history into a new file, e.g. {@link StatsCsvExporter#exportGlobalCsv(Iterable, Path)}
+ * or {@link ColumnarStatsExporter#export(Iterable, Path)}.
+ * <p>
+ * If the export fails, the incomplete file is deleted before the error is thrown.
+ */
+@FunctionalInterface
+public interface StatsExporter {
+
+    /**
+     * Exports the history.
+     *
+     * @param history statistics snapshots to export
+     * @param directory target directory
+     * @return path to the written file
+     * @throws IOException if the history cannot be read or the file cannot be written
+     */
+    Path export(Iterable<StatsSnapshot> history, Path directory) throws IOException;
+}
@@ -1,7 +1,8 @@
 package de.uni.trafficsim.view;
 
 import de.uni.trafficsim.statistics.StatsSnapshot;
-import de.uni.trafficsim.statistics.EdgeSnapshot;
+import de.uni.trafficsim.statistics.WindowedStats;
+import de.uni.trafficsim.statistics.WindowedStats.Metric;
 
 import javax.swing.*;
 import java.awt.*;
@@ -9,7 +10,8 @@ import java.awt.*;
 /**
  * Sidebar panel that displays live simulation statistics.
  * <p>
- * Shows aggregated metrics and exposes a callback for exporting CSV data.
+ * Shows aggregated metrics, their rolling mean and range over a selectable window,
+ * and exposes callbacks for exporting CSV and columnar data.
  */
  public class DashboardPanel extends JPanel {
     // UI Elements
@@ -22,13 +24,24 @@ import java.awt.*;
     private final JLabel arrivedLabel;
     private final JLabel avgDensityLabel;
     private final JLabel avgOccupancyLabel;
+    private final JComboBox<String> windowCombo;         // rolling window shown below
+    private final JLabel windowSpeedLabel;
+    private final JLabel windowVehiclesLabel;
+    private final JLabel windowDensityLabel;
+    private final JLabel windowOccupancyLabel;
+    private final JButton exportBtn;
+    private final JButton columnarBtn;
+    private final JProgressBar exportProgress;           // visible while an export runs
+    private final JButton cancelExportBtn;
     private Runnable onExportCsv; //Callback for Export Button
+    private Runnable onExportColumnar; //Callback for columnar Export Button
+    private Runnable onCancelExport; //Callback for Cancel Button
 
     /**
      * Constructor
      * Creates the statistics dashboard UI.
      * <p>
-     * Initializes labels, layout, and the export button.
+     * Initializes labels, layout, the export buttons and the export progress bar.
      */
     public DashboardPanel() {
         setLayout(new BoxLayout(this, BoxLayout.Y_AXIS));
@@ -70,10 +83,30 @@ import java.awt.*;
         add(Box.createVerticalStrut(15));
         add(avgOccupancyLabel);
 
+        //Rolling windows: mean (min-max) over the selected window
+        add(Box.createVerticalStrut(20));
+        windowCombo = new JComboBox<>(new String[]{"Last 10 s", "Last 60 s", "Last 5 min"});
+        windowCombo.setSelectedIndex(1);
+        windowCombo.setAlignmentX(Component.LEFT_ALIGNMENT);
+        windowCombo.setMaximumSize(windowCombo.getPreferredSize());
+        add(windowCombo);
+        add(Box.createVerticalStrut(10));
+        windowSpeedLabel = createStatLabel("Speed: -");
+        windowVehiclesLabel = createStatLabel("Vehicles: -");
+        windowDensityLabel = createStatLabel("Density: -");
+        windowOccupancyLabel = createStatLabel("Occup.: -");
+        add(windowSpeedLabel);
+        add(Box.createVerticalStrut(5));
+        add(windowVehiclesLabel);
+        add(Box.createVerticalStrut(5));
+        add(windowDensityLabel);
+        add(Box.createVerticalStrut(5));
+        add(windowOccupancyLabel);
+
         //Export CSV Button
         add(Box.createVerticalStrut(20));
 
-        JButton exportBtn = new JButton("Export CSV");
+        exportBtn = new JButton("Export CSV");
         exportBtn.setAlignmentX(Component.LEFT_ALIGNMENT);
         exportBtn.addActionListener(e -> {
             if (onExportCsv != null) {
@@ -81,6 +114,38 @@ import java.awt.*;
             }
         });
         add(exportBtn);
+        add(Box.createVerticalStrut(5));
+
+        columnarBtn = new JButton("Export Columnar");
+        columnarBtn.setAlignmentX(Component.LEFT_ALIGNMENT);
+        columnarBtn.setToolTipText("Compressed global and per-edge history (.tsc)");
+        columnarBtn.addActionListener(e -> {
+            if (onExportColumnar != null) {
+                onExportColumnar.run();
+            }
+        });
+        add(columnarBtn);
+
+        //Progress of a running export, hidden otherwise
+        add(Box.createVerticalStrut(10));
+        exportProgress = new JProgressBar();
+        exportProgress.setStringPainted(true);
+        exportProgress.setAlignmentX(Component.LEFT_ALIGNMENT);
+        exportProgress.setMaximumSize(new Dimension(Integer.MAX_VALUE, exportProgress.getPreferredSize().height));
+        exportProgress.setVisible(false);
+        add(exportProgress);
+        add(Box.createVerticalStrut(5));
+
+        cancelExportBtn = new JButton("Cancel Export");
+        cancelExportBtn.setAlignmentX(Component.LEFT_ALIGNMENT);
+        cancelExportBtn.setVisible(false);
+        cancelExportBtn.addActionListener(e -> {
+            if (onCancelExport != null) {
+                cancelExportBtn.setEnabled(false);   // the export stops at the next snapshot
+                onCancelExport.run();
+            }
+        });
+        add(cancelExportBtn);
 
         add(Box.createVerticalGlue()); // Push content to top
     }
@@ -118,23 +183,28 @@ import java.awt.*;
         arrivedLabel.setText("Arrived:  " + snap.arrivedVehiclesTotal());
         visibleVehiclesLabel.setText("Visible:  " + visibleVehicles);
 
-        //values from Edge Snapshots
-        //average density
-        double avgDensity = snap.edges().values().stream()          //gets all EdgeSnapshot Objects from Map and turns it into datastream
-                .mapToDouble(EdgeSnapshot::densityPerKm)            //takes density as double
-                .filter(v -> v >= 0)
-                .average()                                          //calculates average of all densities
-                .orElse(0.0);                                 //if no valid values
-
-        //average Occupancy
-        double avgOccupancy = snap.edges().values().stream()
-                .mapToDouble(EdgeSnapshot::occupancyPercent)
-                .filter(v -> v >= 0)
-                .average()
-                .orElse(0.0);
+        //values from Edge statistics
+        double avgDensity = snap.edges().averageDensityPerKm();           //average density over all edges
+        double avgOccupancy = snap.edges().averageOccupancyPercent();     //average occupancy over edges reporting one
 
         avgDensityLabel.setText(String.format("Avg Density: %.1f veh/km", Double.valueOf(avgDensity)));
         avgOccupancyLabel.setText(String.format("Avg Occup.:  %.1f %%", Double.valueOf(avgOccupancy)));
+
+        //rolling windows, precomputed by the collector
+        WindowedStats w = snap.windows();
+        int window = windowCombo.getSelectedIndex();
+        if (window < w.windowCount()) {
+            windowSpeedLabel.setText(formatWindow("Speed:", w, Metric.AVG_SPEED_MS, window));
+            windowVehiclesLabel.setText(formatWindow("Vehicles:", w, Metric.VEHICLES, window));
+            windowDensityLabel.setText(formatWindow("Density:", w, Metric.AVG_DENSITY_PER_KM, window));
+            windowOccupancyLabel.setText(formatWindow("Occup.:", w, Metric.AVG_OCCUPANCY_PERCENT, window));
+        }
+    }
+
+    // "<name> mean (min-max)"
+    private static String formatWindow(String name, WindowedStats w, Metric metric, int window) {
+        return String.format("%-9s %.1f (%.1f-%.1f)", name, Double.valueOf(w.mean(metric, window)),
+                Double.valueOf(w.min(metric, window)), Double.valueOf(w.max(metric, window)));
     }
 
     /**
@@ -145,4 +215,56 @@ import java.awt.*;
     public void setOnExportCsv(Runnable onExportCsv) {
         this.onExportCsv = onExportCsv;
     }
+
+    /**
+     * Sets the callback invoked when the Export Columnar button is pressed.
+     *
+     * @param onExportColumnar callback to run on export
+     */
+    public void setOnExportColumnar(Runnable onExportColumnar) {
+        this.onExportColumnar = onExportColumnar;
+    }
+
+    /**
+     * Sets the callback invoked when the Cancel Export button is pressed.
+     *
+     * @param onCancelExport callback to run on cancel
+     */
+    public void setOnCancelExport(Runnable onCancelExport) {
+        this.onCancelExport = onCancelExport;
+    }
+
+    /**
+     * Shows the progress of a running export and disables the export buttons.
+     * Must be called on the EDT.
+     *
+     * @param format name of the export format
+     * @param exported snapshots written so far
+     * @param total snapshots to export
+     */
+    public void showExportProgress(String format, long exported, long total) {
+        if (!exportProgress.isVisible()) {
+            exportBtn.setEnabled(false);
+            columnarBtn.setEnabled(false);
+            cancelExportBtn.setEnabled(true);
+            exportProgress.setVisible(true);
+            cancelExportBtn.setVisible(true);
+            revalidate();
+        }
+        int percent = total == 0 ? 100 : (int) (exported * 100 / total);
+        exportProgress.setValue(percent);
+        exportProgress.setString(format + " " + percent + " %");
+    }
+
+    /**
+     * Hides the export progress and enables the export buttons again.
+     * Must be called on the EDT.
+     */
+    public void hideExportProgress() {
+        exportProgress.setVisible(false);
+        cancelExportBtn.setVisible(false);
+        exportBtn.setEnabled(true);
+        columnarBtn.setEnabled(true);
+        revalidate();
+    }
 }
@@ -1,17 +1,29 @@
 package de.uni.trafficsim.view;
 
 import de.uni.trafficsim.App;
+import de.uni.trafficsim.controller.StepPacer;
 import de.uni.trafficsim.controller.SumoController;
+import de.uni.trafficsim.model.RoadNetwork;
+import de.uni.trafficsim.model.SimulationFrame;
+import de.uni.trafficsim.replay.ReplayLog;
+import de.uni.trafficsim.statistics.StatsStore;
+import de.uni.trafficsim.statistics.export.ColumnarStatsExporter;
+import de.uni.trafficsim.statistics.export.ExportService;
+import de.uni.trafficsim.statistics.export.StatsCsvExporter;
+import de.uni.trafficsim.statistics.export.StatsExporter;
 import de.uni.trafficsim.view.dialogViews.AddVehicleDialog;
 import de.uni.trafficsim.view.dialogViews.FilterDialog;
 
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionListener;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.File;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.util.concurrent.CompletionException;
 
 
 /**
@@ -31,6 +43,8 @@ public class MainFrame {
     private final VisualizationPanel panel;
     private final JLabel timeLabel;
     private final SumoController controller;
+    private final ExportService exportService = new ExportService(2);   //exports run beside the simulation
+    private ExportService.Job currentExport;                             //running export, accessed on the EDT
     private final JToolBar toolbar;
     private final JButton startBtn;
     private final JButton pauseBtn;
@@ -42,6 +56,13 @@ public class MainFrame {
     private final JButton zoomOutBtn;
     private final JButton stressTestBtn; // stress Test button
     private final JButton helpBtn; // help button
+    private final JComboBox<String> speedCombo; // simulation speed selector
+    private ReplayLog replayLog;                 // open replay, null while not replaying
+    private ReplayControlPanel replayControls;
+
+    // Speed options for the selector, "Max" steps as fast as SUMO allows
+    private static final String[] SPEED_LABELS = {"1x", "2x", "5x", "10x", "Max"};
+    private static final double[] SPEED_FACTORS = {1.0, 2.0, 5.0, 10.0, StepPacer.UNLIMITED};
 
 
 /**
@@ -71,26 +92,11 @@ public class MainFrame {
         controller = new SumoController(panel, dashboard, timeLabel);
 
         //new, for csv export
-        dashboard.setOnExportCsv(() -> { //Function gets called when user presses export csv
-            try {
-                java.nio.file.Path file =
-                        de.uni.trafficsim.statistics.export.StatsCsvExporter.exportGlobalCsv(controller.getStatsHistory()); // gets history and exports
-
-                javax.swing.JOptionPane.showMessageDialog( //Popup window
-                        frame,
-                        "CSV exported to:\n" + file.toAbsolutePath(),
-                        "Export successful",
-                        javax.swing.JOptionPane.INFORMATION_MESSAGE
-                );
-            } catch (Exception ex) {
-                javax.swing.JOptionPane.showMessageDialog(
-                        frame,
-                        "CSV Export failed:\n" + ex.getMessage(),
-                        "Error",
-                        javax.swing.JOptionPane.ERROR_MESSAGE
-                );
-                App.logger.error("Error occurred while exporting CSV\nError message: {]", ex.getMessage());
-            }
+        dashboard.setOnExportCsv(() -> exportStatistics("CSV", StatsCsvExporter::exportGlobalCsv)); //Function gets called when user presses export csv
+        dashboard.setOnExportColumnar(() -> exportStatistics("Columnar", ColumnarStatsExporter::export));
+        dashboard.setOnCancelExport(() -> {
+            ExportService.Job job = currentExport;
+            if (job != null) job.cancel();
         });
 
         panel.setController(controller);
@@ -105,6 +111,7 @@ public class MainFrame {
         zoomOutBtn = new JButton(" - ");
         stressTestBtn = new JButton("Stress Test"); //stress test button
         helpBtn = new JButton("Help");
+        speedCombo = new JComboBox<>(SPEED_LABELS);
 
     }
 
@@ -122,6 +129,7 @@ public class MainFrame {
             setupSystemToolbar();
             setupSimulationButtons();
             setupZoomButtons();
+            setupSpeedSelector();
             setupTimeLabel();
             setupToolbar();
 
@@ -133,11 +141,57 @@ public class MainFrame {
         });
     }
 
+    // Exports the recorded statistics history in the background and reports the result in a popup
+    private void exportStatistics(String format, StatsExporter exporter) {
+        StatsStore store = controller.getStatsStore();
+        if (store == null) {
+            showExportError(format, "No statistics recorded yet");
+            return;
+        }
+        dashboard.showExportProgress(format, 0, store.size());
+        ExportService.Job job = exportService.submit(store, exporter, (exported, total) ->
+                SwingUtilities.invokeLater(() -> dashboard.showExportProgress(format, exported, total)));
+        currentExport = job;
+        job.result().whenComplete((file, ex) -> SwingUtilities.invokeLater(() -> {
+            currentExport = null;
+            dashboard.hideExportProgress();
+            if (job.isCancelled()) {
+                return;
+            }
+            if (ex != null) {
+                Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                showExportError(format, cause.getMessage());
+                App.logger.error("Error occurred while exporting {}\nError message: {}", format, cause.getMessage());
+                return;
+            }
+            JOptionPane.showMessageDialog( //Popup window
+                    frame,
+                    format + " exported to:\n" + file.toAbsolutePath(),
+                    "Export successful",
+                    JOptionPane.INFORMATION_MESSAGE
+            );
+        }));
+    }
+
+    private void showExportError(String format, String message) {
+        JOptionPane.showMessageDialog(
+                frame,
+                format + " Export failed:\n" + message,
+                "Error",
+                JOptionPane.ERROR_MESSAGE
+        );
+    }
+
     private void setupSystemToolbar() {
         JMenuBar menuBar = new JMenuBar();
         JMenu fileMenu = new JMenu("File");
         JMenuItem openItem = new JMenuItem("Load Configuration...");
+        JMenuItem replayItem = new JMenuItem("Open Replay...");
+        JCheckBoxMenuItem recordItem = new JCheckBoxMenuItem("Record Runs", controller.getRecordingDirectory() != null);
         fileMenu.add(openItem);
+        fileMenu.addSeparator();
+        fileMenu.add(replayItem);
+        fileMenu.add(recordItem);
         menuBar.add(fileMenu);
         frame.setJMenuBar(menuBar);
 
@@ -149,12 +203,77 @@ public class MainFrame {
             if (fileChooser.showOpenDialog(frame) == JFileChooser.APPROVE_OPTION) {
                 String path = fileChooser.getSelectedFile().getAbsolutePath();
                 controller.setSumoConfigPath(path);
-                startBtn.setEnabled(true);
+                startBtn.setEnabled(replayControls == null);
                 JOptionPane.showMessageDialog(frame, "Configuration loaded: " + fileChooser.getSelectedFile().getName());
             }
         };
 
         openItem.addActionListener(loadConfigAction);
+        replayItem.addActionListener(e -> openReplay());
+
+        // Recording: the chosen directory gets one replay log per run
+        recordItem.addActionListener(e -> {
+            if (!recordItem.isSelected()) {
+                controller.setRecordingDirectory(null);
+                return;
+            }
+            JFileChooser chooser = new JFileChooser(new java.io.File("."));
+            chooser.setDialogTitle("Select Directory for Replay Logs");
+            chooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+            if (chooser.showOpenDialog(frame) == JFileChooser.APPROVE_OPTION) {
+                controller.setRecordingDirectory(chooser.getSelectedFile().toPath());
+            } else {
+                recordItem.setSelected(false);
+            }
+        });
+    }
+
+    // Opens a recorded run and shows it with playback controls instead of the live simulation
+    private void openReplay() {
+        JFileChooser chooser = new JFileChooser(new java.io.File("."));
+        chooser.setDialogTitle("Select Replay Directory");
+        chooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+        if (chooser.showOpenDialog(frame) != JFileChooser.APPROVE_OPTION) return;
+
+        ReplayLog log;
+        try {
+            log = new ReplayLog(chooser.getSelectedFile().toPath());
+        } catch (IOException ex) {
+            JOptionPane.showMessageDialog(frame, "Could not open replay:\n" + ex.getMessage(),
+                    "Replay", JOptionPane.ERROR_MESSAGE);
+            App.logger.error("Error occurred while opening replay\nError message: {}", ex.getMessage());
+            return;
+        }
+
+        if (stopBtn.isEnabled()) stopBtn.doClick();     // a live run and a replay share the map
+        closeReplay();
+        replayLog = log;
+        panel.setController(null);                      // no traffic light clicks without SUMO
+        panel.setRoadNetwork(log.getRoadNetwork());
+        replayControls = new ReplayControlPanel(log, panel, this::closeReplay);
+        frame.add(replayControls, BorderLayout.SOUTH);
+        startBtn.setEnabled(false);
+        frame.revalidate();
+    }
+
+    private void closeReplay() {
+        if (replayControls == null) return;
+        replayControls.getPlayer().close();
+        frame.remove(replayControls);
+        replayControls = null;
+        try {
+            replayLog.close();
+        } catch (IOException ex) {
+            App.logger.error("Error occurred while closing replay\nError message: {}", ex.getMessage());
+        }
+        replayLog = null;
+
+        panel.setController(controller);
+        panel.updateFrame(new SimulationFrame());
+        panel.setRoadNetwork(new RoadNetwork());
+        startBtn.setEnabled(controller.getSumoConfigPath() != null);
+        frame.revalidate();
+        frame.repaint();
     }
 
     private void setupSimulationButtons() {
@@ -231,6 +350,14 @@ public class MainFrame {
         zoomOutBtn.addActionListener(e -> panel.zoomOut());
     }
 
+    private void setupSpeedSelector() {
+        speedCombo.setMaximumSize(speedCombo.getPreferredSize());
+        speedCombo.setToolTipText("Simulation speed relative to real time");
+        speedCombo.addActionListener(e ->
+                controller.setSpeedFactor(SPEED_FACTORS[speedCombo.getSelectedIndex()])
+        );
+    }
+
     private void setupTimeLabel() {
         timeLabel.setFont(new Font("Monospaced", Font.BOLD, 14));
         timeLabel.setBorder(BorderFactory.createEmptyBorder(0, 10, 0, 10));
@@ -246,6 +373,10 @@ public class MainFrame {
         toolbar.add(filterBtn);
         toolbar.add(stressTestBtn); //stress Test button added to toolbar in SUMO
 
+        toolbar.addSeparator();
+        toolbar.add(new JLabel("Speed: "));
+        toolbar.add(speedCombo);
+
         toolbar.addSeparator(); // Separator for Time
         toolbar.add(timeLabel);
 
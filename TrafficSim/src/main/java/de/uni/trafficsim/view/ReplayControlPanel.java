@@ -0,0 +1,106 @@
+package de.uni.trafficsim.view;
+
+import de.uni.trafficsim.replay.ReplayLog;
+import de.uni.trafficsim.replay.ReplayPlayer;
+
+import javax.swing.*;
+import java.awt.*;
+
+
+/**
+ * Playback controls for a replay: play/pause, speed (including backwards) and a time slider for scrubbing.
+ * <p>
+ * Shown below the map while a replay is open.
+ */
+public class ReplayControlPanel extends JPanel {
+
+    // Speed options; negative factors play backwards
+    private static final String[] SPEED_LABELS = {"-10x", "-5x", "-2x", "-1x", "1x", "2x", "5x", "10x", "50x"};
+    private static final double[] SPEED_FACTORS = {-10.0, -5.0, -2.0, -1.0, 1.0, 2.0, 5.0, 10.0, 50.0};
+    private static final int DEFAULT_SPEED = 4;
+
+    private final ReplayPlayer player;
+    private final JButton playBtn = new JButton("Play");
+    private final JSlider slider;
+    private final JLabel timeLabel = new JLabel();
+    private boolean updatingSlider = false;     // slider changes made by the player are not seeks
+
+    /**
+     * Constructor.
+     * Creates the player for the log, the frames are shown in the given panel.
+     *
+     * @param log opened replay log
+     * @param view panel showing the replayed frames
+     * @param onClose called when the user closes the replay
+     */
+    public ReplayControlPanel(ReplayLog log, VisualizationPanel view, Runnable onClose) {
+        super(new BorderLayout(8, 0));
+        setBorder(BorderFactory.createEmptyBorder(4, 8, 4, 8));
+
+        slider = new JSlider(0, Math.max(0, log.getFrameCount() - 1), 0);
+        player = new ReplayPlayer(log, view::updateFrame, this::showTime);
+
+        JComboBox<String> speedCombo = new JComboBox<>(SPEED_LABELS);
+        speedCombo.setSelectedIndex(DEFAULT_SPEED);
+        speedCombo.setToolTipText("Replay speed, negative values play backwards");
+        speedCombo.addActionListener(e -> player.setSpeed(SPEED_FACTORS[speedCombo.getSelectedIndex()]));
+
+        playBtn.addActionListener(e -> {
+            if (player.isPlaying()) {
+                player.pause();
+            } else {
+                player.play();
+            }
+            updatePlayButton();
+        });
+
+        // Scrubbing: every slider position is one recorded frame
+        slider.addChangeListener(e -> {
+            if (!updatingSlider) {
+                player.seek(log.getTime(slider.getValue()));
+            }
+        });
+
+        JButton closeBtn = new JButton("Close Replay");
+        closeBtn.addActionListener(e -> {
+            player.close();
+            onClose.run();
+        });
+
+        timeLabel.setFont(new Font("Monospaced", Font.BOLD, 14));
+
+        JPanel left = new JPanel(new FlowLayout(FlowLayout.LEFT, 4, 0));
+        left.add(playBtn);
+        left.add(new JLabel("Speed: "));
+        left.add(speedCombo);
+        JPanel right = new JPanel(new FlowLayout(FlowLayout.RIGHT, 4, 0));
+        right.add(timeLabel);
+        right.add(closeBtn);
+
+        add(left, BorderLayout.WEST);
+        add(slider, BorderLayout.CENTER);
+        add(right, BorderLayout.EAST);
+        showTime(player.getTime());
+    }
+
+    public ReplayPlayer getPlayer() {
+        return player;
+    }
+
+    // Time listener of the player (EDT): moves the slider along without seeking again
+    private void showTime(double time) {
+        if (slider == null) return;                         // first frame is shown while the player is created
+        ReplayLog log = player == null ? null : player.getLog();
+        timeLabel.setText(String.format("Time: %.1f s", Double.valueOf(time)));
+        if (log != null) {
+            updatingSlider = true;
+            slider.setValue(Math.max(0, log.frameAt(time)));
+            updatingSlider = false;
+        }
+        updatePlayButton();
+    }
+
+    private void updatePlayButton() {
+        playBtn.setText(player != null && player.isPlaying() ? "Pause" : "Play");
+    }
+}
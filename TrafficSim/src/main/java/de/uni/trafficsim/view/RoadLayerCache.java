@@ -0,0 +1,267 @@
+package de.uni.trafficsim.view;
+
+import de.uni.trafficsim.App;
+import de.uni.trafficsim.model.LaneGeometry;
+import de.uni.trafficsim.model.RoadNetwork;
+import de.uni.trafficsim.model.SpatialGrid;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Cached raster layer of the static road network.
+ * <p>
+ * The lanes are rasterized per zoom level into square tiles on background threads; their
+ * center lines are stroked in screen space with one cached stroke per lane width and zoom level.
+ * Tiles are placed in screen space, so panning only moves them and never re-renders.
+ * When the zoom changes, the tiles of the previous level are drawn stretched until
+ * the tiles of the new level are ready.
+ * <p>
+ * All methods except the constructor must be called on the EDT.
+ */
+public class RoadLayerCache {
+    /** Edge length of a tile in screen pixels. */
+    public static final int TILE_SIZE = 256;
+    private static final long CACHE_BYTES = 40L << 20;         //tile budget per level, exceeded only to hold two viewports
+    private static final BufferedImage EMPTY_TILE = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    private final LaneGeometry lanes;
+    private final SpatialGrid index;                            //lane bounds, for culling
+    private final Runnable repaint;
+    private final ExecutorService renderer;
+
+    private volatile Level current;
+    private Level previous;                                     //fallback while the current level renders
+
+    // Tiles of one zoom level (scale and display pixel density)
+    private static final class Level {
+        final double scale;
+        final double pixelScale;
+        final int budgetTiles;                                  //tiles that fit into CACHE_BYTES at this pixel density
+        int capacity;                                           //current limit, at least two viewports of tiles
+        final Map<Long, BufferedImage> tiles = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, BufferedImage> eldest) {
+                return size() > capacity;
+            }
+        };
+        final Set<Long> pending = new HashSet<>();
+        final Map<Float, BasicStroke> strokes = new ConcurrentHashMap<>();    //lane width -> stroke at this scale, shared by the renderer threads
+
+        Level(double scale, double pixelScale) {
+            this.scale = scale;
+            this.pixelScale = pixelScale;
+            // a tile holds (TILE_SIZE * pixelScale)^2 ARGB pixels: 256 KB at 1x, 1 MB at 2x
+            long side = (long) Math.ceil(TILE_SIZE * pixelScale);
+            this.budgetTiles = (int) Math.max(1, CACHE_BYTES / (side * side * 4));
+            this.capacity = budgetTiles;
+        }
+
+        // Grows or shrinks the cache to the viewport, so panning a large window does not evict visible tiles
+        void fitTo(int visibleTiles) {
+            capacity = Math.max(budgetTiles, 2 * visibleTiles);
+            Iterator<Long> eldest = tiles.keySet().iterator();
+            for (int excess = tiles.size() - capacity; excess > 0; excess--) {
+                eldest.next();
+                eldest.remove();
+            }
+        }
+
+        BasicStroke stroke(float laneWidth) {
+            return strokes.computeIfAbsent(laneWidth, w -> new BasicStroke((float) (w * scale)));
+        }
+    }
+
+    /**
+     * Constructor.
+     * Takes the lanes of the network and starts the tile renderer threads.
+     *
+     * @param network loaded road network
+     * @param repaint callback that repaints the panel when a tile is ready
+     */
+    public RoadLayerCache(RoadNetwork network, Runnable repaint) {
+        this.lanes = network.getLanes();
+        this.index = network.getLaneIndex();
+        this.repaint = repaint;
+
+        int threads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+        this.renderer = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "road-layer-" + THREAD_COUNT.incrementAndGet());
+            t.setDaemon(true);
+            t.setPriority(Thread.NORM_PRIORITY - 1);     //the simulation thread has priority
+            return t;
+        });
+    }
+
+    /**
+     * Draws the road layer for the given viewport.
+     * <p>
+     * Must be called with the untransformed panel graphics. Missing tiles are requested
+     * from the background renderer and drawn on a later repaint.
+     *
+     * @param g2 panel graphics without the world transform
+     * @param scale zoom level in pixels per meter
+     * @param offsetX screen x of world origin
+     * @param offsetY screen y of world origin
+     * @param width panel width
+     * @param height panel height
+     */
+    public void paint(Graphics2D g2, double scale, double offsetX, double offsetY, int width, int height) {
+        double pixelScale = Math.max(1.0, g2.getTransform().getScaleX());    //HiDPI displays
+        Level level = current;
+        if (level == null || level.scale != scale || level.pixelScale != pixelScale) {
+            // keep the last level that actually has tiles as fallback
+            if (level != null && !level.tiles.isEmpty()) previous = level;
+            level = new Level(scale, pixelScale);
+            current = level;
+        }
+
+        int originX = (int) Math.floor(offsetX);
+        int originY = (int) Math.floor(offsetY);
+        int minTx = Math.floorDiv(-originX, TILE_SIZE);
+        int maxTx = Math.floorDiv(width - originX, TILE_SIZE);
+        int minTy = Math.floorDiv(-originY, TILE_SIZE);
+        int maxTy = Math.floorDiv(height - originY, TILE_SIZE);
+        level.fitTo((maxTx - minTx + 1) * (maxTy - minTy + 1));
+
+        // Find missing tiles first, so the fallback is drawn below the finished ones
+        boolean complete = true;
+        for (int ty = minTy; ty <= maxTy && complete; ty++) {
+            for (int tx = minTx; tx <= maxTx; tx++) {
+                if (!level.tiles.containsKey(key(tx, ty))) {
+                    complete = false;
+                    break;
+                }
+            }
+        }
+        if (complete) {
+            previous = null;
+        } else if (previous != null) {
+            drawStretched(g2, previous, scale, offsetX, offsetY, width, height);
+        } else {
+            drawDirect(g2, level, offsetX, offsetY, width, height);  //nothing rendered yet, e.g. on the first paint
+        }
+
+        for (int ty = minTy; ty <= maxTy; ty++) {
+            for (int tx = minTx; tx <= maxTx; tx++) {
+                long key = key(tx, ty);
+                BufferedImage tile = level.tiles.get(key);
+                if (tile == null) {
+                    request(level, tx, ty, key);
+                } else if (tile != EMPTY_TILE) {
+                    g2.drawImage(tile, originX + tx * TILE_SIZE, originY + ty * TILE_SIZE, TILE_SIZE, TILE_SIZE, null);
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops the renderer threads. Queued tiles are dropped.
+     */
+    public void dispose() {
+        current = null;
+        previous = null;
+        renderer.shutdownNow();
+    }
+
+    // Queues a tile for rendering, unless it is already queued
+    private void request(Level level, int tx, int ty, long key) {
+        if (!level.pending.add(key)) return;
+        renderer.execute(() -> {
+            if (level != current) return;                 //zoom changed, the tile is not needed anymore
+            BufferedImage tile;
+            try {
+                tile = renderTile(level, tx, ty);
+            } catch (RuntimeException e) {
+                App.logger.error("Error while rendering road tile\nError message: {}", e.getMessage());
+                return;
+            }
+            SwingUtilities.invokeLater(() -> {
+                level.pending.remove(key);
+                if (level == current) {
+                    level.tiles.put(key, tile);
+                    repaint.run();
+                }
+            });
+        });
+    }
+
+    // Rasterizes the lanes that intersect one tile
+    private BufferedImage renderTile(Level level, int tx, int ty) {
+        double scale = level.scale;
+        Rectangle2D world = new Rectangle2D.Double(
+                tx * TILE_SIZE / scale, -(ty + 1) * TILE_SIZE / scale,
+                TILE_SIZE / scale, TILE_SIZE / scale);
+
+        Map<Float, Path2D> visible = new HashMap<>();                //center lines in tile pixels, per lane width
+        double offsetX = -tx * TILE_SIZE, offsetY = -ty * TILE_SIZE;
+        index.query(world.getMinX(), world.getMinY(), world.getMaxX(), world.getMaxY(),
+                i -> lanes.appendTo(i, visible.computeIfAbsent(lanes.width(i), w -> new Path2D.Double()), scale, offsetX, offsetY));
+        if (visible.isEmpty()) return EMPTY_TILE;        //most tiles of sparse networks are empty
+
+        int size = (int) Math.ceil(TILE_SIZE * level.pixelScale);
+        BufferedImage tile = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = tile.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.scale(level.pixelScale, level.pixelScale);
+        g.setColor(Color.LIGHT_GRAY);
+        strokeLanes(g, level, visible);
+        g.dispose();
+        return tile;
+    }
+
+    // Draws the tiles of an older zoom level scaled to the current one
+    private void drawStretched(Graphics2D g2, Level old, double scale, double offsetX, double offsetY, int width, int height) {
+        double ratio = scale / old.scale;
+        double size = TILE_SIZE * ratio;
+        AffineTransform tx0 = g2.getTransform();
+        g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        for (Map.Entry<Long, BufferedImage> entry : old.tiles.entrySet()) {
+            if (entry.getValue() == EMPTY_TILE) continue;
+            int tx = (int) (entry.getKey() >> 32);
+            int ty = (int) (long) entry.getKey();
+            double x = offsetX + tx * size;
+            double y = offsetY + ty * size;
+            if (x > width || y > height || x + size < 0 || y + size < 0) continue;
+            g2.translate(x, y);
+            g2.scale(ratio, ratio);
+            g2.drawImage(entry.getValue(), 0, 0, TILE_SIZE, TILE_SIZE, null);
+            g2.setTransform(tx0);
+        }
+    }
+
+    // Draws the visible lanes as vectors, only used until the first tiles are ready
+    private void drawDirect(Graphics2D g2, Level level, double offsetX, double offsetY, int width, int height) {
+        double scale = level.scale;
+        Map<Float, Path2D> visible = new HashMap<>();
+        index.query(-offsetX / scale, (offsetY - height) / scale, (width - offsetX) / scale, offsetY / scale,
+                i -> lanes.appendTo(i, visible.computeIfAbsent(lanes.width(i), w -> new Path2D.Double()), scale, offsetX, offsetY));
+        Stroke stroke0 = g2.getStroke();
+        g2.setColor(Color.LIGHT_GRAY);
+        strokeLanes(g2, level, visible);
+        g2.setStroke(stroke0);
+    }
+
+    // Strokes the center lines in screen space, one draw call per lane width
+    private static void strokeLanes(Graphics2D g, Level level, Map<Float, Path2D> centerLines) {
+        for (Map.Entry<Float, Path2D> e : centerLines.entrySet()) {
+            g.setStroke(level.stroke(e.getKey()));
+            g.draw(e.getValue());
+        }
+    }
+
+    private static long key(int tx, int ty) {
+        return ((long) tx << 32) | (ty & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,177 @@
+package de.uni.trafficsim.view;
+
+import de.uni.trafficsim.model.VehicleSnapshot;
+import de.uni.trafficsim.model.VisibleVehicles;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+
+/**
+ * Draws the vehicles of a snapshot with a level of detail that depends on the zoom.
+ * <p>
+ * When vehicles are only a few pixels long, they are written as small dots directly
+ * into the pixel array of a reusable overlay image, which is drawn with a single call.
+ * When zoomed in, the triangles of all visible vehicles are built into one reusable
+ * path per color and filled together, and all outlines are drawn in one call.
+ * <p>
+ * Only used on the EDT.
+ */
+public class VehicleRenderer {
+    /** Vehicles shorter than this many pixels are drawn as dots. */
+    public static final double DOT_THRESHOLD_PX = 4.0;
+    private static final double HALF_WIDTH = 1.0;           //meters, as before
+    private static final double VIEW_MARGIN = 20.0;         //meters, longest vehicles reach out of the view
+    private static final BasicStroke OUTLINE = new BasicStroke(0.2f);
+
+    // Overlay for the dot mode, reused as long as the panel size stays the same
+    private BufferedImage overlay;
+    private int[] pixels;
+    private int[] written = new int[0];                     //pixel indices set in the last dot pass
+    private int writtenCount = 0;
+
+    // Reusable buffers for the shape mode
+    private long[] order = new long[0];                     //color in the high bits, vehicle index in the low bits
+    private final Path2D.Double fillPath = new Path2D.Double();
+    private final Path2D.Double outlinePath = new Path2D.Double();
+    private int visibleCount;
+
+    /**
+     * Draws all vehicles in view that pass the filter.
+     *
+     * @param g2 panel graphics without the world transform
+     * @param vehicles snapshot to draw
+     * @param visible vehicles of the snapshot that pass the active filter
+     * @param scale zoom level in pixels per meter
+     * @param offsetX screen x of world origin
+     * @param offsetY screen y of world origin
+     * @param width panel width
+     * @param height panel height
+     */
+    public void paint(Graphics2D g2, VehicleSnapshot vehicles, VisibleVehicles visible,
+                      double scale, double offsetX, double offsetY, int width, int height) {
+        double minX = -offsetX / scale - VIEW_MARGIN;
+        double maxX = (width - offsetX) / scale + VIEW_MARGIN;
+        double minY = (offsetY - height) / scale - VIEW_MARGIN;
+        double maxY = offsetY / scale + VIEW_MARGIN;
+
+        // Collect the visible vehicles, sorted by color
+        ensureOrderCapacity(vehicles.size());
+        visibleCount = 0;
+        vehicles.forEachIn(minX, minY, maxX, maxY, i -> {
+            if (visible.get(i)) {
+                order[visibleCount++] = ((long) (vehicles.rgb(i) & 0xFFFFFF) << 32) | i;
+            }
+        });
+        if (visibleCount == 0) return;
+
+        // typical vehicles are about 5 m long
+        if (5.0 * scale < DOT_THRESHOLD_PX) {
+            paintDots(g2, vehicles, scale, offsetX, offsetY, width, height);
+        } else {
+            Arrays.sort(order, 0, visibleCount);
+            paintShapes(g2, vehicles, scale, offsetX, offsetY);
+        }
+    }
+
+    // Low zoom: write 2x2 dots straight into the overlay raster
+    private void paintDots(Graphics2D g2, VehicleSnapshot vehicles,
+                           double scale, double offsetX, double offsetY, int width, int height) {
+        ensureOverlay(width, height);
+        // clear only what the last pass wrote instead of the whole image
+        for (int k = 0; k < writtenCount; k++) {
+            pixels[written[k]] = 0;
+        }
+        writtenCount = 0;
+        if (written.length < visibleCount * 4) {
+            written = new int[visibleCount * 4];
+        }
+
+        for (int k = 0; k < visibleCount; k++) {
+            int i = (int) order[k];
+            int px = (int) (offsetX + vehicles.x(i) * scale);
+            int py = (int) (offsetY - vehicles.y(i) * scale);
+            int argb = 0xFF000000 | (int) (order[k] >>> 32);
+            for (int dy = 0; dy < 2; dy++) {
+                int y = py + dy;
+                if (y < 0 || y >= height) continue;
+                for (int dx = 0; dx < 2; dx++) {
+                    int x = px + dx;
+                    if (x < 0 || x >= width) continue;
+                    int p = y * width + x;
+                    pixels[p] = argb;
+                    written[writtenCount++] = p;
+                }
+            }
+        }
+        g2.drawImage(overlay, 0, 0, null);
+    }
+
+    // High zoom: one filled path per color, one outline path for all vehicles
+    private void paintShapes(Graphics2D g2, VehicleSnapshot vehicles, double scale, double offsetX, double offsetY) {
+        AffineTransform tx = g2.getTransform();
+        g2.translate(offsetX, offsetY);
+        g2.scale(scale, -scale);
+
+        outlinePath.reset();
+        int k = 0;
+        while (k < visibleCount) {
+            long color = order[k] >>> 32;
+            Color awtColor = vehicles.color((int) order[k]);
+            fillPath.reset();
+            for (; k < visibleCount && (order[k] >>> 32) == color; k++) {
+                appendTriangle(vehicles, (int) order[k]);
+            }
+            g2.setColor(awtColor);
+            g2.fill(fillPath);
+        }
+
+        // Outline
+        g2.setColor(Color.BLACK);
+        g2.setStroke(OUTLINE); // Constant thin stroke relative to object
+        g2.draw(outlinePath);
+
+        g2.setTransform(tx);
+    }
+
+    // Adds the triangle of one vehicle to the fill and outline paths, in world coordinates
+    private void appendTriangle(VehicleSnapshot vehicles, int i) {
+        // Rotate vehicle (SUMO 0 is North/Up, Java 0 is East/Right): direction = 90 - angle
+        double rad = Math.toRadians(90 - vehicles.angle(i));
+        double cos = Math.cos(rad);
+        double sin = Math.sin(rad);
+        double halfLen = vehicles.length(i) / 2.0;
+        double x = vehicles.x(i);
+        double y = vehicles.y(i);
+
+        double fx = x + cos * halfLen, fy = y + sin * halfLen;                        // Front center
+        double lx = x - cos * halfLen - sin * HALF_WIDTH, ly = y - sin * halfLen + cos * HALF_WIDTH; // Back Left
+        double rx = x - cos * halfLen + sin * HALF_WIDTH, ry = y - sin * halfLen - cos * HALF_WIDTH; // Back Right
+
+        fillPath.moveTo(fx, fy);
+        fillPath.lineTo(lx, ly);
+        fillPath.lineTo(rx, ry);
+        fillPath.closePath();
+        outlinePath.moveTo(fx, fy);
+        outlinePath.lineTo(lx, ly);
+        outlinePath.lineTo(rx, ry);
+        outlinePath.closePath();
+    }
+
+    private void ensureOrderCapacity(int n) {
+        if (order.length < n) {
+            order = new long[Math.max(n, order.length + (order.length >> 1) + 16)];
+        }
+    }
+
+    private void ensureOverlay(int width, int height) {
+        if (overlay != null && overlay.getWidth() == width && overlay.getHeight() == height) return;
+        overlay = new BufferedImage(Math.max(1, width), Math.max(1, height), BufferedImage.TYPE_INT_ARGB);
+        pixels = ((DataBufferInt) overlay.getRaster().getDataBuffer()).getData();
+        writtenCount = 0;
+    }
+}
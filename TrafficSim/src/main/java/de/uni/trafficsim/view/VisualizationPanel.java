@@ -2,19 +2,17 @@ package de.uni.trafficsim.view;
 
 import de.uni.trafficsim.App;
 import de.uni.trafficsim.controller.SumoController;
+import de.uni.trafficsim.model.CompiledVehicleFilter;
 import de.uni.trafficsim.model.RoadNetwork;
 import de.uni.trafficsim.model.SimulationFrame;
 import de.uni.trafficsim.model.TrafficLight.TrafficLightWrapper;
 import de.uni.trafficsim.model.VehicleFilter;
-import de.uni.trafficsim.model.VehicleWrapper;
-import org.eclipse.sumo.libtraci.Simulation;
-import org.eclipse.sumo.libtraci.TraCIPosition;
+import de.uni.trafficsim.model.VehicleSnapshot;
 
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
 import java.awt.geom.AffineTransform;
-import java.awt.geom.Path2D;
 import java.awt.geom.Rectangle2D;
 
 
@@ -26,8 +24,16 @@ import java.awt.geom.Rectangle2D;
  */
 public class VisualizationPanel extends JPanel implements WindowListener {
     private RoadNetwork roadNetwork;
+    private volatile RoadLayerCache roadLayer;    // cached raster tiles of the roads
+    private final VehicleRenderer vehicleRenderer = new VehicleRenderer();
     private SimulationFrame currentFrame;
+    private VehicleSnapshot currentVehicles;      // vehicles of currentFrame, published with it
     private SumoController controller; // Reference to controller for callbacks
+    private final CompiledVehicleFilter noFilter = new VehicleFilter().compile(); // used while no controller is set, e.g. offscreen
+
+    // Culling margins in world units
+    private static final double TLS_CLICK_RADIUS = 5.0;
+    private static final double TLS_MARGIN = 1.0;
 
     // Viewport transforms
     private double scale = 2.0; // Zoom level
@@ -136,28 +142,52 @@ public class VisualizationPanel extends JPanel implements WindowListener {
 
     public void setRoadNetwork(RoadNetwork net) {
         this.roadNetwork = net;
+        RoadLayerCache old = roadLayer;
+        roadLayer = net == null ? null : new RoadLayerCache(net, this::repaint);
+        if (old != null) {
+            SwingUtilities.invokeLater(old::dispose);
+        }
         repaint();
     }
 
+    // Called on the EDT only, so paintComponent always sees a complete frame;
+    // the vehicles are the latest snapshot of the frame's manager (replay, empty frames)
     public void updateFrame(SimulationFrame frame) {
+        updateFrame(frame, frame != null ? frame.vehicleManager.acquireSnapshot() : null);
+    }
+
+    // Called on the EDT only (render clock) with the vehicle snapshot published together with the frame
+    public void updateFrame(SimulationFrame frame, VehicleSnapshot vehicles) {
         this.currentFrame = frame;
+        this.currentVehicles = vehicles;
         repaint();
     }
 
     //Method that takes a screen click position and cpnverts it into the aimulations world coordinates.
     //returns the traffic light with the smallest distance to the click postion (must be < 5 units), otherwise null.
     private TrafficLightWrapper getTlsAt(int screenX, int screenY) {
-        if (currentFrame == null) return null;
+        SimulationFrame frame = currentFrame;
+        if (frame == null || frame.trafficLightIndex == null) return null;
 
         // Convert Screen to World
         double worldX = (screenX - offsetX) / scale;
         double worldY = (offsetY - screenY) / scale;
 
-        for (TrafficLightWrapper l : currentFrame.trafficLights) {
-            double d = Math.sqrt(Math.pow(l.getPosition().getX() - worldX, 2) + Math.pow(l.getPosition().getY() - worldY, 2));
-            if (d < 5.0) return l;
-        }
-        return null;
+        // Only the signals near the click are checked, compared by squared distance
+        double[] best = {TLS_CLICK_RADIUS * TLS_CLICK_RADIUS};
+        TrafficLightWrapper[] hit = {null};
+        frame.trafficLightIndex.query(worldX - TLS_CLICK_RADIUS, worldY - TLS_CLICK_RADIUS,
+                worldX + TLS_CLICK_RADIUS, worldY + TLS_CLICK_RADIUS, i -> {
+                    TrafficLightWrapper l = frame.trafficLights.get(i);
+                    double dx = l.getPosition().getX() - worldX;
+                    double dy = l.getPosition().getY() - worldY;
+                    double d2 = dx * dx + dy * dy;
+                    if (d2 < best[0]) {
+                        best[0] = d2;
+                        hit[0] = l;
+                    }
+                });
+        return hit[0];
     }
 
     // Check whether click on the map was on a traffic light or not
@@ -230,7 +260,13 @@ public class VisualizationPanel extends JPanel implements WindowListener {
         Graphics2D g2 = (Graphics2D) g;
         g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
 
-        // --- 1. Coordinate System Setup ---
+        // --- 1. Draw Roads (Static, cached tiles in screen space) ---
+        RoadLayerCache layer = roadLayer;
+        if (layer != null) {
+            layer.paint(g2, scale, offsetX, offsetY, getWidth(), getHeight());
+        }
+
+        // --- 2. Coordinate System Setup ---
         AffineTransform oldTx = g2.getTransform();
 
         // Translate to offset
@@ -240,31 +276,30 @@ public class VisualizationPanel extends JPanel implements WindowListener {
         // Flip Y-Axis (SUMO is y-up, Java is y-down)
         g2.scale(1, -1);
 
-        // --- 2. Draw Roads (Static) ---
-        if (roadNetwork != null) {
-            g2.setColor(Color.LIGHT_GRAY);
-            for (Shape s : roadNetwork.getLaneShapes().values()) {
-                drawRoad(g2, s);
-            }
-        }
+        // --- 3. Draw Dynamic Entities (only inside the visible world rectangle) ---
+        SimulationFrame frame = currentFrame;
+        if (frame != null) {
+            double minX = -offsetX / scale;
+            double maxX = (getWidth() - offsetX) / scale;
+            double minY = (offsetY - getHeight()) / scale;
+            double maxY = offsetY / scale;
 
-        // --- 3. Draw Dynamic Entities ---
-        if (currentFrame != null) {
             // Draw Traffic Lights
-            for (TrafficLightWrapper tl: currentFrame.trafficLights) {
-                drawTrafficLight(g2, tl);
-            }
-
-            // Draw Vehicles
-            for (VehicleWrapper veh : currentFrame.vehicleManager.getVehicles()) {
-                if (controller.getFilter().matches(veh)) {
-                    drawVehicle(g2, veh);
-                }
+            if (frame.trafficLightIndex != null) {
+                frame.trafficLightIndex.query(minX - TLS_MARGIN, minY - TLS_MARGIN, maxX + TLS_MARGIN, maxY + TLS_MARGIN,
+                        i -> drawTrafficLight(g2, frame.trafficLights.get(i), frame.trafficLightStates));
             }
         }
 
         g2.setTransform(oldTx);
 
+        // Draw Vehicles (from the published snapshot, never from the live registry), level of detail by zoom
+        VehicleSnapshot vehicles = currentVehicles;
+        if (frame != null && vehicles != null) {
+            CompiledVehicleFilter filter = controller != null ? controller.getCompiledFilter() : noFilter;
+            vehicleRenderer.paint(g2, vehicles, filter.evaluate(vehicles), scale, offsetX, offsetY, getWidth(), getHeight());
+        }
+
         // --- 4. Draw HUD ---
         g2.setColor(Color.YELLOW);
         g2.setFont(new Font("Monospaced", Font.BOLD, 12));
@@ -272,41 +307,13 @@ public class VisualizationPanel extends JPanel implements WindowListener {
         g2.drawString(String.format("Zoom: %.2fx", scale), 10, 35);
     }
 
-    private void drawRoad(Graphics2D g2, Shape s) {
-        g2.fill(s); // Fill lane
-        g2.setColor(Color.lightGray);
-    }
-
-    private void drawVehicle(Graphics2D g2, VehicleWrapper vehicle) {
-        AffineTransform tx = g2.getTransform();
-        g2.translate(vehicle.getPosition().getX(), vehicle.getPosition().getY());
-        // Rotate vehicle (SUMO 0 is North/Up, Java 0 is East/Right)
-        // We flip Y axis previously, so we must adjust rotation carefully.
-        // Standard mapping: Java Rotation = Math.toRadians(90 - SumoAngle)
-        g2.rotate(Math.toRadians(90 - vehicle.getAngle()));
-
-        g2.setColor(vehicle.getColor());
-
-        double halfLen = vehicle.getLength() / 2.0;
-        Path2D veh = new Path2D.Double();
-        veh.moveTo(halfLen, 0); // Front center
-        veh.lineTo(-halfLen, 1.0); // Back Left
-        veh.lineTo(-halfLen, -1.0); // Back Right
-        veh.closePath();
-
-        g2.fill(veh);
-
-        // Outline
-        g2.setColor(Color.BLACK);
-        g2.setStroke(new BasicStroke((float)(0.2))); // Constant thin stroke relative to object
-        g2.draw(veh);
-
-        g2.setTransform(tx);
-    }
-
-    private void drawTrafficLight(Graphics2D g2, TrafficLightWrapper tl) {
+    private void drawTrafficLight(Graphics2D g2, TrafficLightWrapper tl, char[][] states) {
         // Simple visualization: A circle at the junction center
-        g2.setColor(tl.getColor());
+        // Color comes from the frame's state array, so it matches the drawn step
+        char[] state = tl.getTlsIndex() < states.length ? states[tl.getTlsIndex()] : null;
+        g2.setColor(state != null && tl.getLinkIndex() < state.length
+                ? TrafficLightWrapper.colorOf(state[tl.getLinkIndex()])
+                : tl.getColor());
         // Draw as a rotated bar section
         AffineTransform tx = g2.getTransform();
         g2.translate(tl.getPosition().getX(), tl.getPosition().getY());
@@ -328,7 +335,8 @@ public class VisualizationPanel extends JPanel implements WindowListener {
 
     @Override
     public void windowClosed(WindowEvent e) {
-        Simulation.close();
+        // the simulation thread closes SUMO when its loop ends
+        if (controller != null) controller.stop();
     }
 
     @Override
@@ -1,10 +1,10 @@
 package de.uni.trafficsim.view.dialogViews;
 
 import de.uni.trafficsim.App;
+import de.uni.trafficsim.backend.SumoBackend;
 import de.uni.trafficsim.controller.SumoController;
+import de.uni.trafficsim.controller.TaskKind;
 import de.uni.trafficsim.model.VehicleWrapper;
-import org.eclipse.sumo.libtraci.TraCIColor;
-import org.eclipse.sumo.libtraci.VehicleType;
 
 import javax.swing.*;
 import java.awt.*;
@@ -192,9 +192,14 @@ public class AddVehicleDialog extends JDialog {
         }
 
         // Schedule the Injection Task
-        controller.scheduleTask(() -> {
+        boolean queued = controller.scheduleTask(TaskKind.INJECTION, () -> {
             addCarToSimulation(isNewType, finalTypeId, vehId, routeId, length, speed, c);
         });
+        if (!queued) {
+            // Backpressure: the simulation has too many pending tasks
+            JOptionPane.showMessageDialog(this, "The simulation is busy, please try again in a moment.");
+            return;
+        }
 
         dispose();
     }
@@ -214,17 +219,19 @@ public class AddVehicleDialog extends JDialog {
                 // Try to copy from the first available type or default
                 String baseType = controller.getAvailableTypes().isEmpty() ? "DEFAULT_VEHTYPE" : controller.getAvailableTypes().get(0);
                 // Create new type by copying base
-                VehicleType.copy(baseType, finalTypeId);
+                SumoBackend backend = controller.getBackend();
+                backend.copyVehicleType(baseType, finalTypeId);
 
-                VehicleType.setLength(finalTypeId, length);
-                VehicleType.setMaxSpeed(finalTypeId, speed);
-                VehicleType.setColor(finalTypeId, new TraCIColor(c.getRed(), c.getGreen(), c.getBlue(), 255));
+                backend.setVehicleTypeLength(finalTypeId, length);
+                backend.setVehicleTypeMaxSpeed(finalTypeId, speed);
+                backend.setVehicleTypeColor(finalTypeId, c);
+                controller.getNetworkMetadata().invalidateTypes();  // new type shows up in the dropdown next time
 
                 App.logger.info("Created new type: {}", finalTypeId);
             }
 
             VehicleWrapper vehicleWrapper = new VehicleWrapper(vehId, routeId, c);
-            controller.getSimulationFrame().vehicleManager.addVehicleToSimulation(vehicleWrapper, finalTypeId);
+            controller.getSimulationFrame().vehicleManager.addVehicleToSimulation(controller.getBackend(), vehicleWrapper, finalTypeId);
         } catch (Exception ex) {
             App.logger.error("Failed to inject vehicle: {}", ex.getMessage());
         }
@@ -5,12 +5,16 @@ import de.uni.trafficsim.model.VehicleFilter;
 
 import javax.swing.*;
 import java.awt.*;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 
 /**
  * Dialog for configuring vehicle filtering options.
  * <p>
- * Lets the user enable filters by speed range, color and stopped state.
+ * Lets the user enable filters by speed range, color, stopped state, CO2 emission range,
+ * and by route, vehicle type or current edge (comma separated IDs).
  */
 public class FilterDialog extends JDialog {
     private final SumoController controller;
@@ -21,6 +25,11 @@ public class FilterDialog extends JDialog {
     private final JButton colorBtn;
     private Color selectedColor = Color.YELLOW;
     private final JCheckBox stoppedCheck;
+    private final JSpinner minCo2Spin;
+    private final JSpinner maxCo2Spin;
+    private final JTextField routesField;
+    private final JTextField typesField;
+    private final JTextField edgesField;
 
     /**
      * Creates the filter configuration dialog.
@@ -31,7 +40,7 @@ public class FilterDialog extends JDialog {
     public FilterDialog(Frame owner, SumoController controller) {
         super(owner, "Filter / Group Vehicles", false);
         this.controller = controller;
-        setSize(320, 270);
+        setSize(340, 470);
         setLocationRelativeTo(owner);
         setLayout(new BorderLayout());
 
@@ -66,7 +75,27 @@ public class FilterDialog extends JDialog {
         // Stopped
         stoppedCheck = new JCheckBox("Show only Stopped", current.showStoppedOnly);
 
+        // CO2 range in mg/s, the maximum 0 means no upper limit
+        JPanel co2Panel = new JPanel(new GridLayout(1, 2));
+        minCo2Spin = new JSpinner(new SpinnerNumberModel(current.minCo2, 0.0, 1_000_000.0, 100.0));
+        double maxCo2 = Double.isInfinite(current.maxCo2) ? 0.0 : current.maxCo2;
+        maxCo2Spin = new JSpinner(new SpinnerNumberModel(maxCo2, 0.0, 1_000_000.0, 100.0));
+        co2Panel.add(new JLabel("Min:"));
+        co2Panel.add(minCo2Spin);
+        co2Panel.add(new JLabel("Max:"));
+        co2Panel.add(maxCo2Spin);
+
+        // Route, type and edge IDs
+        routesField = new JTextField(String.join(", ", current.routeIds));
+        typesField = new JTextField(String.join(", ", current.typeIds));
+        edgesField = new JTextField(String.join(", ", current.edgeIds));
+
         setupForm(form, speedPanel, colorPanel);
+        form.add(new JLabel("CO2 Range (mg/s, max 0 = any):"));
+        form.add(co2Panel);
+        form.add(labeled("Routes:", routesField));
+        form.add(labeled("Types:", typesField));
+        form.add(labeled("Edges:", edgesField));
     }
 
     // Setting up color Button
@@ -84,6 +113,23 @@ public class FilterDialog extends JDialog {
         });
     }
 
+    private static JPanel labeled(String label, JComponent field) {
+        JPanel p = new JPanel(new BorderLayout(5, 0));
+        JLabel l = new JLabel(label);
+        l.setPreferredSize(new Dimension(60, l.getPreferredSize().height));
+        p.add(l, BorderLayout.WEST);
+        p.add(field, BorderLayout.CENTER);
+        return p;
+    }
+
+    // "a, b ,c" -> {a, b, c}; empty input means no restriction
+    private static Set<String> parseIds(JTextField field) {
+        return Arrays.stream(field.getText().split(","))
+                .map(String::trim)
+                .filter(id -> !id.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
     // Assembling UI Layout
     private void setupForm(JPanel form, JPanel speedPanel, JPanel colorPanel) {
         form.add(enableCheck);
@@ -112,6 +158,12 @@ public class FilterDialog extends JDialog {
             f.filterColor = null;
         }
         f.showStoppedOnly = stoppedCheck.isSelected();
+        f.minCo2 = (Double) minCo2Spin.getValue();
+        double maxCo2 = (Double) maxCo2Spin.getValue();
+        f.maxCo2 = maxCo2 > 0 ? maxCo2 : Double.POSITIVE_INFINITY;
+        f.routeIds = parseIds(routesField);
+        f.typeIds = parseIds(typesField);
+        f.edgeIds = parseIds(edgesField);
         controller.setFilter(f);
         this.dispose();
     }
@@ -2,8 +2,6 @@ package de.uni.trafficsim.view.dialogViews;
 
 import de.uni.trafficsim.controller.SumoController;
 import de.uni.trafficsim.model.TrafficLight.TrafficLightPhase;
-import org.eclipse.sumo.libtraci.TraCIPhase;
-import org.eclipse.sumo.libtraci.TrafficLight;
 
 import javax.swing.*;
 import java.awt.*;
@@ -28,15 +26,16 @@ public class PhaseEditorDialog extends JDialog {
      *
      * @param owner parent window for modality/positioning
      * @param tlsId traffic light system ID
+     * @param currentPhases phases of the current program, read from SUMO on the simulation thread
      * @param controller controller used to apply program changes
      */
-    public PhaseEditorDialog(Window owner, String tlsId, SumoController controller) {
+    public PhaseEditorDialog(Window owner, String tlsId, List<TrafficLightPhase> currentPhases, SumoController controller) {
         super(owner, "Edit Phases for " + tlsId, ModalityType.APPLICATION_MODAL);
         this.controller = controller;
         this.tlsId = tlsId;
 
-        // 1. Fetch Constraints
-        this.requiredLength = TrafficLight.getAllProgramLogics(tlsId).get(0).getPhases().get(0).getState().length();
+        // 1. Constraints from the current program
+        this.requiredLength = currentPhases.isEmpty() ? 0 : currentPhases.get(0).getState().length();
 
         setSize(600, 450);
         setLayout(new BorderLayout());
@@ -50,7 +49,7 @@ public class PhaseEditorDialog extends JDialog {
         phasesContainer = new JPanel();
         setupScroll();
 
-        setupPhaseRows();
+        setupPhaseRows(currentPhases);
 
         // --- Footer (Buttons) ---
         setUpFooter();
@@ -82,16 +81,9 @@ public class PhaseEditorDialog extends JDialog {
         add(scrollPane, BorderLayout.CENTER);
     }
 
-    // Reads current phase list from SUMO and adds a row for each
-    private void setupPhaseRows() {
-        String currentPG = TrafficLight.getProgram(tlsId);
-        List<TraCIPhase> phases = TrafficLight.getAllProgramLogics(tlsId).stream()
-                .filter(program -> program.getProgramID().equals(currentPG))
-                .toList()
-                .get(0)
-                .getPhases();
-
-        for (TraCIPhase ph: phases) {
+    // Adds a row for each phase of the current program
+    private void setupPhaseRows(List<TrafficLightPhase> phases) {
+        for (TrafficLightPhase ph: phases) {
             addPhaseRow(ph.getState(), ph.getDuration());
         }
     }
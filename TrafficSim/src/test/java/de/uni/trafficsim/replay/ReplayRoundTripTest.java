@@ -0,0 +1,206 @@
+package de.uni.trafficsim.replay;
+
+import de.uni.trafficsim.manager.VehicleManager;
+import de.uni.trafficsim.model.LaneGeometry;
+import de.uni.trafficsim.model.RoadNetwork;
+import de.uni.trafficsim.model.SimulationFrame;
+import de.uni.trafficsim.model.TrafficLight.TrafficLightWrapper;
+import de.uni.trafficsim.model.VehicleSnapshot;
+import de.uni.trafficsim.model.VehicleWrapper;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.awt.geom.Point2D;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+
+/**
+ * Records frames with {@link ReplayRecorder} and decodes them with {@link ReplayDecoder} in different seek orders.
+ * <p>
+ * Vehicles leave and come back across keyframes, and the signal states change between keyframes
+ * while other signals keep their state, so frames have to be rebuilt from their keyframe and the
+ * deltas after it.
+ */
+public class ReplayRoundTripTest {
+    private static final int FRAMES = 6 * ReplayFormat.KEYFRAME_INTERVAL + 17;
+    private static final int VEHICLES = 30;
+    private static final int LATE_VEHICLES = 5;                 // first seen after the third keyframe
+    private static final double STEP_SEC = 0.1;
+    // One array per signal and state, reused while the state holds, so unchanged signals keep their array
+    private static final char[][][] SIGNAL_STATES = {
+            {"rrG".toCharArray(), "yrG".toCharArray(), "GGr".toCharArray()},
+            {"Grr".toCharArray(), "Gyr".toCharArray(), "rrG".toCharArray()}};
+    // Frames in which a signal changes, next to, on and between keyframes; the signals change independently
+    private static final int[][] SIGNAL_CHANGES = {
+            {17, 33, 49, 51, 98, 121, 160, 199, 201, 240, 299},
+            {33, 50, 77, 150, 151, 152, 230, 300}};
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path directory;
+
+    @Before
+    public void record() throws IOException {
+        directory = folder.newFolder("run").toPath();
+        RoadNetwork network = new RoadNetwork();
+        network.setLanes(new LaneGeometry(List.of("l0", "l1"),
+                List.of(new double[]{0, 0, 10, 0, 20, 5}, new double[]{1, 1, 2, 2}), new double[]{3.2, 2.5}));
+        List<TrafficLightWrapper> signals = List.of(
+                new TrafficLightWrapper("j0", new Point2D.Double(5, 5), 90, 0, 0, 'r'),
+                new TrafficLightWrapper("j0", new Point2D.Double(6, 5), 90, 0, 2, 'G'),
+                new TrafficLightWrapper("j1", new Point2D.Double(50, 5), 0, 1, 1, 'r'));
+
+        VehicleManager manager = new VehicleManager();
+        try (ReplayRecorder recorder = new ReplayRecorder(directory, network)) {
+            for (int f = 0; f < FRAMES; f++) {
+                manager.beginUpdate();
+                for (int v = 0; v < VEHICLES; v++) {
+                    if (!present(v, f)) continue;
+                    VehicleWrapper w = manager.obtain(vehicleId(v));
+                    w.update(x(v, f), y(v, f), angle(v, f), speed(v, f), length(v, f), null, 0.0, 0.0);
+                    int rgb = rgb(v, f);
+                    w.updateColor(rgb >> 16, rgb >> 8, rgb);
+                }
+                manager.endUpdate();
+
+                SimulationFrame frame = new SimulationFrame(manager);
+                frame.trafficLights = signals;
+                frame.trafficLightStates = signalStates(f);
+                recorder.append(f * STEP_SEC, frame);
+            }
+        }
+    }
+
+    @Test
+    public void framesDecodeInOrder() throws IOException {
+        try (ReplayLog log = new ReplayLog(directory)) {
+            assertEquals(FRAMES, log.getFrameCount());
+            assertEquals(2, log.getTlsCount());
+            assertEquals(2, log.getRoadNetwork().getLanes().size());
+            assertEquals(20.0, log.getRoadNetwork().getLanes().x(0, 2), 0.0);
+            assertEquals(2.5, log.getRoadNetwork().getLanes().width(1), 1e-6);
+
+            ReplayDecoder decoder = new ReplayDecoder(log);
+            for (int f = 0; f < FRAMES; f++) {
+                assertFrame(decoder, f);
+            }
+        }
+    }
+
+    @Test
+    public void backwardSeeksAcrossKeyframes() throws IOException {
+        int k = ReplayFormat.KEYFRAME_INTERVAL;
+        int[] order = {
+                3 * k + 10, 3 * k - 1, 3 * k, 3 * k + 1, 2 * k + 30,         // back over one keyframe, then forward again
+                5 * k + 5, k + 2, k - 1, 0, 4 * k + 49, 4 * k + 48, 4 * k,   // back over several keyframes, within one span
+                FRAMES - 1, 1, FRAMES - 2, k + 1, k
+        };
+        try (ReplayLog log = new ReplayLog(directory)) {
+            ReplayDecoder decoder = new ReplayDecoder(log);
+            for (int f : order) {
+                assertFrame(decoder, f);
+            }
+        }
+    }
+
+    @Test
+    public void randomSeeksMatchTheRecording() throws IOException {
+        Random random = new Random(3);
+        try (ReplayLog log = new ReplayLog(directory)) {
+            ReplayDecoder decoder = new ReplayDecoder(log);
+            for (int i = 0; i < 300; i++) {
+                assertFrame(decoder, random.nextInt(FRAMES));
+            }
+        }
+    }
+
+    // Decodes a frame and compares it with the recorded values
+    private static void assertFrame(ReplayDecoder decoder, int f) throws IOException {
+        SimulationFrame frame = decoder.seek(f);
+        assertEquals(f, decoder.getCurrentFrame());
+        VehicleSnapshot vehicles = frame.vehicleManager.acquireSnapshot();
+
+        Set<String> seen = new HashSet<>();
+        for (int i = 0; i < vehicles.size(); i++) {
+            String id = vehicles.id(i);
+            assertTrue("duplicate vehicle " + id + " in frame " + f, seen.add(id));
+            int v = Integer.parseInt(id.substring("veh".length()));
+            String at = id + " in frame " + f;
+            assertTrue(at + " was not recorded", present(v, f));
+            assertEquals("x of " + at, x(v, f), vehicles.x(i), 0.5 / ReplayFormat.POSITION_SCALE + 1e-9);
+            assertEquals("y of " + at, y(v, f), vehicles.y(i), 0.5 / ReplayFormat.POSITION_SCALE + 1e-9);
+            assertEquals("angle of " + at, angle(v, f), vehicles.angle(i), 0.5 / ReplayFormat.ANGLE_SCALE + 1e-9);
+            assertEquals("speed of " + at, speed(v, f), vehicles.speed(i), 0.5 / ReplayFormat.SPEED_SCALE + 1e-9);
+            assertEquals("length of " + at, length(v, f), vehicles.length(i), 0.5 / ReplayFormat.LENGTH_SCALE + 1e-9);
+            assertEquals("color of " + at, rgb(v, f), vehicles.rgb(i));
+        }
+        int expected = 0;
+        for (int v = 0; v < VEHICLES; v++) {
+            if (present(v, f)) expected++;
+        }
+        assertEquals("vehicles in frame " + f, expected, vehicles.size());
+
+        char[][] states = signalStates(f);
+        assertEquals(states.length, frame.trafficLightStates.length);
+        for (int t = 0; t < states.length; t++) {
+            assertArrayEquals("signal " + t + " in frame " + f, states[t], frame.trafficLightStates[t]);
+        }
+    }
+
+    // Absent for 23 frames out of every 69, shifted per vehicle, so gaps start and end on both sides of keyframes
+    private static boolean present(int v, int f) {
+        if (v >= VEHICLES - LATE_VEHICLES && f < 3 * ReplayFormat.KEYFRAME_INTERVAL + 7) return false;
+        return ((f + 7 * v) / 23) % 3 != 0;
+    }
+
+    private static String vehicleId(int v) {
+        return "veh" + v;
+    }
+
+    private static double x(int v, int f) {
+        return v * 10.0 + f * 0.37;
+    }
+
+    private static double y(int v, int f) {
+        return -v * 2.0 + Math.sin(f * 0.05) * 30.0;
+    }
+
+    private static double angle(int v, int f) {
+        return (f * 3 + v * 11) % 360;
+    }
+
+    private static double speed(int v, int f) {
+        return (f / 10 + v) % 14 * 1.25;                        // changes every 10 frames only
+    }
+
+    private static double length(int v, int f) {
+        return v % 5 == 0 && f >= 150 ? 12.0 : 4.5 + v % 3;
+    }
+
+    private static int rgb(int v, int f) {
+        return (v * 8) << 16 | ((f / 40) * 20 % 256) << 8 | 7;
+    }
+
+    // A new outer array per frame with the cached state arrays, like TrafficLightStateTracker.snapshotStates()
+    private static char[][] signalStates(int f) {
+        char[][] states = new char[SIGNAL_STATES.length][];
+        for (int t = 0; t < states.length; t++) {
+            int changes = 0;
+            while (changes < SIGNAL_CHANGES[t].length && SIGNAL_CHANGES[t][changes] <= f) changes++;
+            states[t] = SIGNAL_STATES[t][changes % SIGNAL_STATES[t].length];
+        }
+        return states;
+    }
+}
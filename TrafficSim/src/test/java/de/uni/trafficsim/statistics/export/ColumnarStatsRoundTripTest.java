@@ -0,0 +1,175 @@
+package de.uni.trafficsim.statistics.export;
+
+import de.uni.trafficsim.statistics.EdgeIndex;
+import de.uni.trafficsim.statistics.EdgeStats;
+import de.uni.trafficsim.statistics.EdgeStepValues;
+import de.uni.trafficsim.statistics.StatsSnapshot;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+
+/**
+ * Writes statistics with {@link ColumnarStatsExporter} and reads them back with {@link ColumnarStatsReader}.
+ */
+public class ColumnarStatsRoundTripTest {
+    private static final double STEP_SEC = 0.5;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void everyValueSurvivesTheRoundTrip() throws IOException {
+        List<StatsSnapshot> history = history(9000);
+        Path file = ColumnarStatsExporter.export(history, folder.getRoot().toPath());
+
+        try (ColumnarStatsReader reader = new ColumnarStatsReader(file)) {
+            assertEquals(history.size(), reader.rowCount());
+            assertTrue("history should span several row groups", reader.rowGroups().size() > 2);
+
+            // dictionary: edges in order of first appearance, with their lengths
+            List<String> expectedIds = new ArrayList<>();
+            for (StatsSnapshot s : history) {
+                for (int i = 0; i < s.edges().size(); i++) {
+                    if (!expectedIds.contains(s.edges().id(i))) expectedIds.add(s.edges().id(i));
+                }
+            }
+            assertEquals(expectedIds, reader.edgeIds());
+            for (int e = 0; e < expectedIds.size(); e++) {
+                assertEquals(lengthOf(expectedIds.get(e)), reader.edgeLengthMeters(e), 0.0);
+            }
+
+            long row = 0;
+            for (int g = 0; g < reader.rowGroups().size(); g++) {
+                ColumnarStatsReader.RowGroup group = reader.rowGroups().get(g);
+                assertEquals(row, group.firstRow());
+                assertEquals(history.get((int) row).simulationTimeSec(), group.minTimeSec(), 0.0);
+                assertEquals(history.get((int) row + group.rows() - 1).simulationTimeSec(), group.maxTimeSec(), 0.0);
+                assertGroup(reader, g, history.subList((int) row, (int) row + group.rows()));
+                row += group.rows();
+            }
+            assertEquals(history.size(), row);
+        }
+    }
+
+    @Test
+    public void findsTheRowGroupOfATime() throws IOException {
+        Path file = ColumnarStatsExporter.export(history(9000), folder.getRoot().toPath());
+
+        try (ColumnarStatsReader reader = new ColumnarStatsReader(file)) {
+            List<ColumnarStatsReader.RowGroup> groups = reader.rowGroups();
+            assertEquals(0, reader.findRowGroup(-1.0));
+            for (int g = 0; g < groups.size(); g++) {
+                assertEquals(g, reader.findRowGroup(groups.get(g).minTimeSec()));
+                assertEquals(g, reader.findRowGroup(groups.get(g).maxTimeSec()));
+            }
+            assertEquals(-1, reader.findRowGroup(groups.get(groups.size() - 1).maxTimeSec() + STEP_SEC));
+        }
+    }
+
+    @Test
+    public void emptyHistoryHasNoRows() throws IOException {
+        Path file = ColumnarStatsExporter.export(List.of(), folder.getRoot().toPath());
+
+        try (ColumnarStatsReader reader = new ColumnarStatsReader(file)) {
+            assertEquals(0, reader.rowCount());
+            assertTrue(reader.rowGroups().isEmpty());
+            assertTrue(reader.edgeIds().isEmpty());
+            assertEquals(-1, reader.findRowGroup(0.0));
+        }
+    }
+
+    @Test
+    public void rejectsOtherFiles() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("stats.csv");
+        Files.writeString(file, "simulationTimeSec,globalAvgSpeedMs\n0.0,0.0\n1.0,2.5\n");
+        try (ColumnarStatsReader ignored = new ColumnarStatsReader(file)) {
+            fail("a CSV file was read as columnar statistics");
+        } catch (IOException expected) {
+            // not a columnar statistics file
+        }
+    }
+
+    // Compares all columns of one row group with the snapshots it was written from
+    private static void assertGroup(ColumnarStatsReader reader, int g, List<StatsSnapshot> rows) throws IOException {
+        int edges = reader.rowGroups().get(g).edgeCount();
+        double[][] globals = new double[StatsColumn.values().length][];
+        for (StatsColumn c : StatsColumn.values()) {
+            if (c.isPerEdge()) continue;
+            globals[c.ordinal()] = c.isInteger() ? toDoubles(reader.readInts(c, g)) : reader.readDoubles(c, g);
+            assertEquals(c.columnName(), rows.size(), globals[c.ordinal()].length);
+        }
+        int[] counts = reader.readInts(StatsColumn.EDGE_VEHICLE_COUNT, g);
+        double[] speeds = reader.readDoubles(StatsColumn.EDGE_MEAN_SPEED_MS, g);
+        double[] occupancies = reader.readDoubles(StatsColumn.EDGE_OCCUPANCY_PERCENT, g);
+        assertEquals(rows.size() * edges, counts.length);
+
+        for (int r = 0; r < rows.size(); r++) {
+            StatsSnapshot s = rows.get(r);
+            for (StatsColumn c : StatsColumn.values()) {
+                if (c.isPerEdge()) continue;
+                assertEquals(c.columnName() + " at " + s.simulationTimeSec(), c.globalValue(s), globals[c.ordinal()][r], 0.0);
+            }
+            for (int e = 0; e < edges; e++) {
+                int i = s.edges().index().indexOf(reader.edgeIds().get(e));
+                int k = r * edges + e;
+                // edges missing from a snapshot are stored as -1 and NaN
+                assertEquals(i < 0 ? -1 : s.edges().vehicleCount(i), counts[k]);
+                assertEquals(i < 0 ? Double.NaN : s.edges().meanSpeedMs(i), speeds[k], 0.0);
+                assertEquals(i < 0 ? Double.NaN : s.edges().occupancyPercent(i), occupancies[k], 0.0);
+            }
+        }
+    }
+
+    // Snapshots without edges, then a small network, then a larger one whose index lists the edges in another order
+    private static List<StatsSnapshot> history(int steps) {
+        Random random = new Random(7);
+        EdgeIndex small = new EdgeIndex(List.of("a", "b"));
+        List<String> largeIds = new ArrayList<>();
+        for (int i = 399; i >= 0; i--) largeIds.add("e" + i);
+        largeIds.add("b");
+        EdgeIndex large = new EdgeIndex(largeIds);
+
+        List<StatsSnapshot> history = new ArrayList<>();
+        for (int n = 0; n < steps; n++) {
+            EdgeStats edges = n < 3 ? EdgeStats.EMPTY : edgeStats(n < 100 ? small : large, random);
+            history.add(new StatsSnapshot(n * STEP_SEC, random.nextDouble() * 15, random.nextInt(2000),
+                    random.nextInt(100), random.nextDouble() * 50, random.nextDouble() * 20, n, edges));
+        }
+        return history;
+    }
+
+    private static EdgeStats edgeStats(EdgeIndex index, Random random) {
+        int size = index.size();
+        int[] counts = new int[size];
+        double[] speeds = new double[size], occupancies = new double[size], lengths = new double[size];
+        for (int i = 0; i < size; i++) {
+            counts[i] = random.nextInt(30);
+            speeds[i] = counts[i] == 0 ? 0.0 : random.nextDouble() * 20;
+            occupancies[i] = random.nextDouble() * 100;
+            lengths[i] = lengthOf(index.id(i));
+        }
+        return new EdgeStats(index, new EdgeStepValues(counts, speeds, occupancies, lengths));
+    }
+
+    private static double lengthOf(String edgeId) {
+        return 50.0 + edgeId.hashCode() % 500;
+    }
+
+    private static double[] toDoubles(int[] values) {
+        double[] d = new double[values.length];
+        for (int i = 0; i < values.length; i++) d[i] = values[i];
+        return d;
+    }
+}
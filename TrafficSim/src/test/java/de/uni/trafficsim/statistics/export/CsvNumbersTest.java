@@ -0,0 +1,71 @@
+package de.uni.trafficsim.statistics.export;
+
+import org.junit.Test;
+
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+
+/**
+ * Checks that {@link CsvNumbers#appendFixed} writes exactly what {@link String#format} writes.
+ */
+public class CsvNumbersTest {
+    private static final int[] DECIMALS = {2, 3, 6};
+
+    private static final double[] EDGE_CASES = {
+            0.0, -0.0, 1.0, -1.0,
+            0.125, 0.375, 2.5, -2.5, 0.0625, 1.0005, 0.0000005, 1.5e-6, 0.005, 0.015, 1.005, -1.005,   // ties and near ties
+            -0.001, -0.004, -0.0049, -1e-9, -1e-300, -Double.MIN_VALUE, Double.MIN_VALUE,            // tiny values
+            999_999_999_999_999.0, 1e15, -1e15, 1.2345678901234567e17, 9.223372036854776e18, 1e300,  // beyond the long fast path
+            Double.MAX_VALUE, -Double.MAX_VALUE,
+            Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY
+    };
+
+    @Test
+    public void edgeCasesMatchStringFormat() {
+        for (int decimals : DECIMALS) {
+            for (double v : EDGE_CASES) {
+                assertSameText(v, decimals);
+            }
+        }
+    }
+
+    @Test
+    public void valuesAroundEveryTieMatchStringFormat() {
+        for (int decimals : DECIMALS) {
+            double step = Math.pow(10, -decimals);
+            for (int i = 0; i < 2000; i++) {
+                double tie = (i + 0.5) * step;
+                assertSameText(tie, decimals);
+                assertSameText(-tie, decimals);
+                assertSameText(Math.nextUp(tie), decimals);
+                assertSameText(Math.nextDown(tie), decimals);
+            }
+        }
+    }
+
+    @Test
+    public void randomValuesMatchStringFormat() {
+        Random random = new Random(42);
+        for (int i = 0; i < 200_000; i++) {
+            double v = switch (i % 4) {
+                case 0 -> random.nextDouble() * 200.0 - 100.0;                        // speeds, ratios
+                case 1 -> random.nextDouble() * 1e6;                                   // emissions, lengths
+                case 2 -> (random.nextBoolean() ? 1 : -1) * Math.pow(10, random.nextDouble() * 40 - 20);
+                default -> Math.round(random.nextDouble() * 1e7) / 1e4;               // short decimals, often ties
+            };
+            for (int decimals : DECIMALS) {
+                assertSameText(v, decimals);
+            }
+        }
+    }
+
+    private static void assertSameText(double v, int decimals) {
+        String expected = String.format(Locale.US, "%." + decimals + "f", v);
+        StringBuilder sb = new StringBuilder();
+        CsvNumbers.appendFixed(sb, v, decimals);
+        assertEquals("value " + v + " with " + decimals + " decimals", expected, sb.toString());
+    }
+}